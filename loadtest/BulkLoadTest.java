@@ -0,0 +1,106 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loads the same number of new rows over HTTP twice: once as single {@code POST /api/transactions} requests and
+ * once as NDJSON bodies of {@code batchRows} rows to {@code POST /api/transactions/bulk}, both with
+ * {@code concurrency} closed-loop clients. Prints rows per second for each and their ratio. Each mode gets a
+ * warmup run of a tenth of the rows first.
+ * <p>
+ * Usage: {@code java loadtest/BulkLoadTest.java [baseUrl] [rows] [concurrency] [batchRows]}
+ */
+public class BulkLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+        int batchRows = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        single(client, baseUrl, rows / 10, concurrency);
+        double single = single(client, baseUrl, rows, concurrency);
+        bulk(client, baseUrl, rows / 10, concurrency, batchRows);
+        double bulk = bulk(client, baseUrl, rows, concurrency, batchRows);
+        System.out.printf("rows=%d concurrency=%d batch=%d single=%.0f rows/s bulk=%.0f rows/s ratio=%.1fx%n",
+                rows, concurrency, batchRows, single, bulk, bulk / single);
+    }
+
+    private static double single(HttpClient client, String baseUrl, int rows, int concurrency) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        return load(rows, concurrency, errors -> {
+            int i;
+            while ((i = next.getAndIncrement()) < rows) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/transactions"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(row(i)))
+                        .build();
+                send(client, request, errors);
+            }
+        });
+    }
+
+    private static double bulk(HttpClient client, String baseUrl, int rows, int concurrency, int batchRows)
+            throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        return load(rows, concurrency, errors -> {
+            int first;
+            while ((first = next.getAndAdd(batchRows)) < rows) {
+                StringBuilder body = new StringBuilder(batchRows * 100);
+                for (int i = first; i < Math.min(first + batchRows, rows); i++) {
+                    body.append(row(i)).append('\n');
+                }
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/transactions/bulk"))
+                        .header("Content-Type", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                        .build();
+                send(client, request, errors);
+            }
+        });
+    }
+
+    private interface Client {
+        void run(AtomicLong errors);
+    }
+
+    private static double load(int rows, int concurrency, Client body) {
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.execute(() -> body.run(errors));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (errors.get() > 0) {
+            throw new IllegalStateException(errors.get() + " requests failed");
+        }
+        return rows / seconds;
+    }
+
+    private static void send(HttpClient client, HttpRequest request, AtomicLong errors) {
+        try {
+            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 400) {
+                errors.incrementAndGet();
+            }
+        } catch (Exception e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private static String row(int i) {
+        return "{\"accountId\":\"LOAD" + i % 100 + "\",\"amount\":" + (i % 1000 + 1)
+                + ".25,\"type\":\"DEPOSIT\",\"description\":\"bulk load test " + i + "\"}";
+    }
+}
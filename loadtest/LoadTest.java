@@ -0,0 +1,125 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop HTTP load generator: {@code concurrency} clients each send a request, wait for the answer and send
+ * the next. 10% creates, 60% reads by id, 30% account pages. Prints throughput and latency percentiles.
+ * <p>
+ * Usage: {@code java loadtest/LoadTest.java [baseUrl] [concurrency] [seconds] [warmupSeconds]}
+ */
+public class LoadTest {
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int warmupSeconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        List<String> ids = seed(client, baseUrl, 1000);
+
+        run(client, baseUrl, ids, concurrency, warmupSeconds);
+        Result result = run(client, baseUrl, ids, concurrency, seconds);
+        System.out.printf("requests=%d errors=%d throughput=%.0f/s p50=%.2fms p99=%.2fms max=%.2fms%n",
+                result.latencies.length, result.errors, result.latencies.length / (double) seconds,
+                percentile(result.latencies, 0.50), percentile(result.latencies, 0.99),
+                percentile(result.latencies, 1.0));
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+
+    private static List<String> seed(HttpClient client, String baseUrl, int count) throws Exception {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HttpResponse<String> response = client.send(create(baseUrl, i), HttpResponse.BodyHandlers.ofString());
+            Matcher matcher = ID.matcher(response.body());
+            if (matcher.find()) {
+                ids.add(matcher.group(1));
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("Could not seed transactions at " + baseUrl);
+        }
+        return ids;
+    }
+
+    private static Result run(HttpClient client, String baseUrl, List<String> ids, int concurrency, int seconds)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(seconds).toNanos();
+        Queue<long[]> perClient = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < concurrency; c++) {
+                clients.execute(() -> {
+                    long[] latencies = new long[1024];
+                    int n = 0;
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        int dice = random.nextInt(100);
+                        HttpRequest request = dice < 10 ? create(baseUrl, random.nextInt())
+                                : dice < 70 ? get(baseUrl + "/api/transactions/" + ids.get(random.nextInt(ids.size())))
+                                : get(baseUrl + "/api/transactions/account/LOAD" + random.nextInt(100) + "?page=0&size=20");
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() >= 400) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (n == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, n * 2);
+                        }
+                        latencies[n++] = System.nanoTime() - start;
+                    }
+                    perClient.add(Arrays.copyOf(latencies, n));
+                });
+            }
+        }
+        long[] all = perClient.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, errors.get());
+    }
+
+    private static HttpRequest create(String baseUrl, int i) {
+        String body = "{\"accountId\":\"LOAD" + Math.floorMod(i, 100) + "\",\"amount\":" + (Math.floorMod(i, 1000) + 1)
+                + ".25,\"type\":\"DEPOSIT\",\"description\":\"load test " + i + "\"}";
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/api/transactions"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static HttpRequest get(String url) {
+        return HttpRequest.newBuilder(URI.create(url)).GET().build();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1e6;
+    }
+}
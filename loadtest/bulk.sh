@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+# Loads the same rows into a fresh instance as single creates and as bulk imports over HTTP, without and with the
+# journal, and prints rows per second for each and their ratio.
+#
+# Usage: loadtest/bulk.sh [rows] [concurrency] [batchRows]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+ROWS=${1:-50000}
+CONCURRENCY=${2:-16}
+BATCH=${3:-1000}
+PORT=18080
+JAR=target/bank-transactions-0.0.1-SNAPSHOT.jar
+JOURNAL=$(mktemp -d)
+
+[ -f "$JAR" ] || mvn -B -q package -DskipTests
+
+for journal in false true; do
+  java -jar "$JAR" --server.port=$PORT --transactions.journal.enabled=$journal \
+       --transactions.journal.directory="$JOURNAL" \
+       --logging.level.root=warn --logging.level.com.example.banktransactions=warn > /dev/null 2>&1 &
+  pid=$!
+  trap 'kill $pid 2>/dev/null || true; rm -rf "$JOURNAL"' EXIT
+  until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do sleep 1; done
+
+  printf 'journal=%-5s %s\n' "$journal" \
+    "$(java loadtest/BulkLoadTest.java "http://localhost:$PORT" "$ROWS" "$CONCURRENCY" "$BATCH")"
+
+  kill $pid
+  wait $pid 2>/dev/null || true
+done
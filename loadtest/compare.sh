@@ -0,0 +1,32 @@
+#!/usr/bin/env bash
+# Runs the same load against the application in platform-thread and virtual-thread mode and prints throughput,
+# latency percentiles, resident memory and live thread count for each.
+#
+# Usage: loadtest/compare.sh [concurrency] [seconds]
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+CONCURRENCY=${1:-400}
+SECONDS_PER_RUN=${2:-30}
+PORT=18080
+JAR=target/bank-transactions-0.0.1-SNAPSHOT.jar
+
+[ -f "$JAR" ] || mvn -B -q package -DskipTests
+
+for mode in platform virtual; do
+  virtual=false
+  [ "$mode" = virtual ] && virtual=true
+  java -jar "$JAR" --server.port=$PORT --spring.threads.virtual.enabled=$virtual \
+       --logging.level.root=warn --logging.level.com.example.banktransactions=warn > /dev/null 2>&1 &
+  pid=$!
+  trap 'kill $pid 2>/dev/null || true' EXIT
+  until curl -sf "http://localhost:$PORT/actuator/health" > /dev/null; do sleep 1; done
+
+  result=$(java loadtest/LoadTest.java "http://localhost:$PORT" "$CONCURRENCY" "$SECONDS_PER_RUN" 10)
+  rss=$(awk '/VmRSS/ {printf "%.0fMB", $2 / 1024}' /proc/$pid/status)
+  threads=$(awk '/Threads/ {print $2}' /proc/$pid/status)
+  printf '%-9s %s rss=%s threads=%s\n' "$mode" "$result" "$rss" "$threads"
+
+  kill $pid
+  wait $pid 2>/dev/null || true
+done
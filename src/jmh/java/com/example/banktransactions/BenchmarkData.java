@@ -0,0 +1,98 @@
+package com.example.banktransactions;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.JdbcTransactionRepository;
+import com.example.banktransactions.repository.PartitionedTransactionRepository;
+import com.example.banktransactions.repository.TransactionRepository;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import com.example.banktransactions.repository.store.ColumnarTransactionStore;
+import com.example.banktransactions.repository.store.ObjectTransactionStore;
+import com.example.banktransactions.repository.store.OffHeapTransactionStore;
+import com.example.banktransactions.repository.store.TransactionStore;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Deterministic fixtures shared by the benchmarks: rows spread over {@link #ACCOUNTS} accounts, one second apart.
+ * Every string field is a distinct instance, as it would be after JSON deserialization.
+ */
+public final class BenchmarkData {
+
+    public static final int ACCOUNTS = 1000;
+    private static final String[] TYPES = {"DEPOSIT", "WITHDRAWAL", "TRANSFER"};
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int POPULATE_BATCH = 1000;
+    // one in-memory H2 database per benchmark JVM, emptied whenever a new jdbc repository is requested
+    private static HikariDataSource h2;
+
+    private BenchmarkData() {
+    }
+
+    public static String accountId(long i) {
+        return "ACC" + i % ACCOUNTS;
+    }
+
+    public static Transaction transaction(long i) {
+        Transaction transaction = new Transaction(accountId(i), BigDecimal.valueOf(i % 100_000 + 1, 2),
+                new String(TYPES[(int) (i % TYPES.length)]), "Benchmark payment " + i % 5000);
+        transaction.setTimestamp(START.plusSeconds(i));
+        return transaction;
+    }
+
+    /**
+     * An empty repository: the memory engine on storage {@code object}, {@code columnar} or {@code offheap},
+     * {@code partitioned} with one object-store partition per core, or {@code jdbc} on an in-memory H2 database.
+     */
+    public static TransactionRepository repository(String engine) {
+        if ("jdbc".equals(engine)) {
+            return jdbcRepository();
+        }
+        if ("partitioned".equals(engine)) {
+            return new PartitionedTransactionRepository(new SnowflakeIdGenerator(0),
+                    Runtime.getRuntime().availableProcessors(), ObjectTransactionStore::new);
+        }
+        TransactionStore store = switch (engine) {
+            case "columnar" -> new ColumnarTransactionStore();
+            case "offheap" -> new OffHeapTransactionStore();
+            default -> new ObjectTransactionStore();
+        };
+        return new localMemoryTransactionRepository(Optional.empty(), new SnowflakeIdGenerator(0), store);
+    }
+
+    /**
+     * Fills a fresh repository in import-sized batches and returns the generated ids in insertion order.
+     */
+    public static String[] populate(TransactionRepository repository, int rows) {
+        String[] ids = new String[rows];
+        for (int start = 0; start < rows; start += POPULATE_BATCH) {
+            List<Transaction> batch = new ArrayList<>();
+            for (int i = start; i < Math.min(rows, start + POPULATE_BATCH); i++) {
+                batch.add(transaction(i));
+            }
+            repository.createAll(batch);
+            for (int i = 0; i < batch.size(); i++) {
+                ids[start + i] = batch.get(i).getId();
+            }
+        }
+        return ids;
+    }
+
+    private static synchronized TransactionRepository jdbcRepository() {
+        if (h2 == null) {
+            h2 = new HikariDataSource();
+            h2.setJdbcUrl("jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1");
+            h2.setMaximumPoolSize(16);
+        }
+        new JdbcTemplate(h2).execute("DROP ALL OBJECTS");
+        JdbcTransactionRepository repository = new JdbcTransactionRepository(h2, new SnowflakeIdGenerator(0));
+        repository.initialize();
+        return repository;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.banktransactions.log;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request id generation of {@link TraceIdFilter}: the previous {@code UUID.randomUUID()} strings against
+ * {@link TraceIds}. Run with {@code -t 4} to see the contention on UUID's shared SecureRandom.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceIdBenchmark {
+
+    @Benchmark
+    public String uuid() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @Benchmark
+    public String traceId() {
+        return TraceIds.traceId();
+    }
+
+    @Benchmark
+    public String spanId() {
+        return TraceIds.spanId();
+    }
+}
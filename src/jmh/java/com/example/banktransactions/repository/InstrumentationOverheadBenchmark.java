@@ -0,0 +1,83 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.BenchmarkData;
+import com.example.banktransactions.model.Transaction;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of {@link InstrumentedTransactionRepository} on the cheapest calls of the in-memory engine, with the
+ * registry set up as in application.yml (Prometheus, percentiles and histogram buckets). {@code sampleEvery=0} is
+ * the bare engine, {@code 1} times every call; run with {@code -t 4} to include contention on the shared meters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationOverheadBenchmark {
+
+    private static final int ROWS = 100_000;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"0", "1", "16", "64"})
+    public int sampleEvery;
+
+    private final AtomicLong sequence = new AtomicLong(ROWS);
+    private PrometheusMeterRegistry registry;
+    private TransactionRepository repository;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkData.repository("object");
+        ids = BenchmarkData.populate(repository, ROWS);
+        if (sampleEvery > 0) {
+            registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder()
+                            .percentiles(0.5, 0.95, 0.99, 0.999)
+                            .percentilesHistogram(true)
+                            .build()
+                            .merge(config);
+                }
+            });
+            repository = new InstrumentedTransactionRepository(repository, registry, sampleEvery);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (registry != null) {
+            registry.close();
+        }
+    }
+
+    @Benchmark
+    public Optional<Transaction> findById() {
+        return repository.findById(ids[ThreadLocalRandom.current().nextInt(ROWS)]);
+    }
+
+    @Benchmark
+    public List<Transaction> findByAccountId() {
+        return repository.findByAccountId(BenchmarkData.accountId(ThreadLocalRandom.current().nextInt()), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Transaction create() {
+        return repository.create(BenchmarkData.transaction(sequence.incrementAndGet()));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.BenchmarkData;
+import com.example.banktransactions.model.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths of every repository engine at increasing sizes. Add {@code -p rows=10000000} (and a larger heap
+ * via {@code -jvmArgsAppend -Xmx8g}) for the 10^7 case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryReadBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"object", "columnar", "offheap", "partitioned", "jdbc"})
+    public String engine;
+
+    private TransactionRepository repository;
+    private String[] ids;
+    private TransactionKey middle;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkData.repository(engine);
+        ids = BenchmarkData.populate(repository, rows);
+        middle = TransactionKey.of(repository.findById(ids[rows / 2]).orElseThrow());
+    }
+
+    @Benchmark
+    public Optional<Transaction> findById() {
+        return repository.findById(ids[ThreadLocalRandom.current().nextInt(rows)]);
+    }
+
+    @Benchmark
+    public List<Transaction> findAllFirstPage() {
+        return repository.findAll(0, PAGE_SIZE);
+    }
+
+    /**
+     * Offset paging half way through the data set; compare with {@link #findAllAfterCursor()}.
+     */
+    @Benchmark
+    public List<Transaction> findAllMiddlePage() {
+        return repository.findAll(rows / PAGE_SIZE / 2, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> findAllAfterCursor() {
+        return repository.findAllAfter(middle, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> findByAccountId() {
+        return repository.findByAccountId(BenchmarkData.accountId(ThreadLocalRandom.current().nextInt()), 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> search() {
+        return repository.search("payment 42", 0, PAGE_SIZE);
+    }
+}
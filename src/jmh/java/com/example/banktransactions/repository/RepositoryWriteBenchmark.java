@@ -0,0 +1,72 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.BenchmarkData;
+import com.example.banktransactions.model.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Create throughput into a pre-filled repository, single-threaded, with 8 contending writers and with one writer
+ * per core. The repository is rebuilt before every iteration so its size stays close to {@code rows}. Run
+ * {@code createAllCores} with {@code -t 1,2,4,...} to see how an engine scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryWriteBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"object", "columnar", "offheap", "partitioned", "jdbc"})
+    public String engine;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private TransactionRepository repository;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        repository = BenchmarkData.repository(engine);
+        BenchmarkData.populate(repository, rows);
+        sequence.set(rows);
+    }
+
+    @Benchmark
+    public Transaction create() {
+        return repository.create(BenchmarkData.transaction(sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction createContended() {
+        return repository.create(BenchmarkData.transaction(sequence.incrementAndGet()));
+    }
+
+    /**
+     * Each writer numbers its own rows, so the only shared state is the repository's.
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Transaction createAllCores(Writer writer) {
+        return repository.create(BenchmarkData.transaction(writer.next++));
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+
+        private static final AtomicInteger WRITERS = new AtomicInteger();
+
+        long next;
+
+        @Setup(Level.Trial)
+        public void setUp(RepositoryWriteBenchmark benchmark) {
+            next = benchmark.rows + WRITERS.incrementAndGet() * 1_000_000_000L;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.banktransactions.repository.journal;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Journaled create throughput per durability mode with 16 concurrent writers, so BATCHED can share fsyncs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(16)
+public class JournalBenchmark {
+
+    @Param({"FSYNC", "BATCHED", "ASYNC"})
+    public DurabilityMode mode;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private Path directory;
+    private localMemoryTransactionRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        repository = new localMemoryTransactionRepository(
+                Optional.of(new TransactionJournal(directory, mode, 10, 256L << 20)), new SnowflakeIdGenerator(0));
+        repository.recover();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Transaction create() {
+        long i = sequence.incrementAndGet();
+        return repository.create(new Transaction("ACC" + i % 1000, BigDecimal.valueOf(i, 2), "DEPOSIT",
+                "benchmark write " + i));
+    }
+}
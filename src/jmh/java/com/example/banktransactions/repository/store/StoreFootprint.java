@@ -0,0 +1,81 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.BenchmarkData;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Memory of a repository at each of several row counts. Retained heap is measured by walking the object graph
+ * with JOL, once for the store alone and once for the whole repository (store plus time, account and search
+ * indexes). The live heap columns cross-check it without JOL: heap in use after a full GC, before and after
+ * loading the rows, in total and per row; a total that stays put as the rows grow is a flat heap. Direct memory
+ * is what the JVM's direct buffer pool grew by. Takes the row counts as a comma-separated argument.
+ */
+public class StoreFootprint {
+
+    public static void main(String[] args) {
+        int[] counts = Arrays.stream((args.length > 0 ? args[0] : "100000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        System.out.printf("%-9s %10s %14s %19s %15s %17s %15s%n", "engine", "rows", "store B/row", "repository B/row",
+                "live heap MB", "live heap B/row", "direct B/row");
+        // offheap first: its live heap is a few bytes per row, and the garbage of the other engines' runs is noise
+        for (int rows : counts) {
+            measure("offheap", rows, OffHeapTransactionStore::new);
+        }
+        for (int rows : counts) {
+            measure("object", rows, ObjectTransactionStore::new);
+        }
+        for (int rows : counts) {
+            measure("columnar", rows, ColumnarTransactionStore::new);
+        }
+    }
+
+    private static void measure(String engine, int rows, Supplier<TransactionStore> factory) {
+        long empty = liveHeap();
+        long emptyDirect = directMemory();
+        TransactionStore store = factory.get();
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository(
+                Optional.empty(), new SnowflakeIdGenerator(0), store);
+        for (int i = 0; i < rows; i++) {
+            repository.create(BenchmarkData.transaction(i));
+        }
+        long live = liveHeap() - empty;
+        long direct = directMemory() - emptyDirect;
+        System.out.printf("%-9s %10d %14.1f %19.1f %15.1f %17.1f %15.1f%n", engine, rows,
+                GraphLayout.parseInstance(store).totalSize() / (double) rows,
+                GraphLayout.parseInstance(repository).totalSize() / (double) rows,
+                live / 1e6,
+                live / (double) rows,
+                direct / (double) rows);
+        Reference.reachabilityFence(repository);
+    }
+
+    private static long directMemory() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    private static long liveHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            // gives the cleaner thread time to free the direct buffers of earlier runs
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.BenchmarkData;
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.model.BulkImportResult;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.journal.DurabilityMode;
+import com.example.banktransactions.repository.journal.TransactionJournal;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Per-row cost of loading {@link #ROWS} new transactions through the single-create path against the bulk import.
+ * {@code single} does per row what {@code POST /api/transactions} does around the HTTP exchange: read the JSON
+ * body, validate, create, write the response. The bulk methods stream one NDJSON or CSV body through
+ * {@link TransactionImportReader}. HTTP itself is left out, so the ratio understates the saving per request.
+ * {@code journal=FSYNC} adds a journal that forces every write, which a batch does once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkImportBenchmark {
+
+    private static final int ROWS = 1000;
+
+    @Param({"NONE", "FSYNC"})
+    public String journal;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private byte[][] singleBodies;
+    private byte[] ndjson;
+    private byte[] csv;
+    private Path directory;
+    private localMemoryTransactionRepository repository;
+    private TransactionService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        singleBodies = new byte[ROWS][];
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        ByteArrayOutputStream csvRows = new ByteArrayOutputStream();
+        csvRows.writeBytes("accountId,amount,type,description,timestamp\n".getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < ROWS; i++) {
+            Transaction transaction = BenchmarkData.transaction(i);
+            singleBodies[i] = objectMapper.writeValueAsBytes(transaction);
+            lines.writeBytes(singleBodies[i]);
+            lines.write('\n');
+            csvRows.writeBytes((transaction.getAccountId() + "," + transaction.getAmount() + "," + transaction.getType()
+                    + "," + transaction.getDescription() + "," + transaction.getTimestamp() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        ndjson = lines.toByteArray();
+        csv = csvRows.toByteArray();
+    }
+
+    /**
+     * A fresh repository per iteration keeps every run inserting into a store of the same size.
+     */
+    @Setup(Level.Iteration)
+    public void newRepository() throws IOException {
+        if ("FSYNC".equals(journal)) {
+            directory = Files.createTempDirectory("import-benchmark");
+            repository = new localMemoryTransactionRepository(
+                    Optional.of(new TransactionJournal(directory, DurabilityMode.FSYNC, 10, 256L << 20)),
+                    new SnowflakeIdGenerator(0));
+            repository.recover();
+        } else {
+            repository = new localMemoryTransactionRepository();
+        }
+        service = new TransactionService(repository, new AccountBalanceView(repository),
+                new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC), new TransactionChangeFeed(256),
+                TransactionCluster.standalone(), new NoOpCacheManager(), validator, ROWS, ROWS);
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeRepository() throws IOException {
+        repository.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+            directory = null;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void single(Blackhole blackhole) throws IOException {
+        for (byte[] body : singleBodies) {
+            Transaction transaction = objectMapper.readValue(body, Transaction.class);
+            if (!validator.validate(transaction).isEmpty()) {
+                throw new ConstraintViolationException(validator.validate(transaction));
+            }
+            blackhole.consume(objectMapper.writeValueAsBytes(service.createTransaction(transaction, null)));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public BulkImportResult bulkNdjson() {
+        return service.importTransactions(TransactionImportReader.ndjson(new ByteArrayInputStream(ndjson), objectMapper));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public BulkImportResult bulkCsv() {
+        return service.importTransactions(TransactionImportReader.csv(new ByteArrayInputStream(csv)));
+    }
+}
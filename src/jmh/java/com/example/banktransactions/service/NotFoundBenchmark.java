@@ -0,0 +1,90 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.BenchmarkData;
+import com.example.banktransactions.exception.TransactionNotFoundException;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A lookup of an unknown id through {@link TransactionService}: the previous exception with a stack trace, a
+ * stackless {@link TransactionNotFoundException}, and the empty {@code Optional} the service returns now. A stack
+ * trace costs in proportion to the stack's depth; {@code depth} adds frames above the call, and a request reaching
+ * the service through Tomcat, the filters and the cache proxy is well over a hundred frames deep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NotFoundBenchmark {
+
+    @Param({"0", "150"})
+    public int depth;
+
+    private ValidatorFactory validatorFactory;
+    private TransactionService service;
+
+    // what TransactionNotFoundException was before it became stackless
+    private static final class TracedNotFoundException extends RuntimeException {
+        TracedNotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository();
+        BenchmarkData.populate(repository, 10_000);
+        AccountBalanceView balances = new AccountBalanceView(repository);
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        service = new TransactionService(repository, balances, new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC),
+                new TransactionChangeFeed(256), TransactionCluster.standalone(), new NoOpCacheManager(),
+                validatorFactory.getValidator(), 1000, 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Object tracedException() {
+        return atDepth(depth, 0);
+    }
+
+    @Benchmark
+    public Object stacklessException() {
+        return atDepth(depth, 1);
+    }
+
+    @Benchmark
+    public Object emptyOptional() {
+        return atDepth(depth, 2);
+    }
+
+    private Object atDepth(int remaining, int variant) {
+        if (remaining > 0) {
+            return atDepth(remaining - 1, variant);
+        }
+        String id = "missing";
+        try {
+            return switch (variant) {
+                case 0 -> service.getTransactionById(id)
+                        .orElseThrow(() -> new TracedNotFoundException("Transaction with ID " + id + " not found"));
+                case 1 -> service.getTransactionById(id)
+                        .orElseThrow(() -> new TransactionNotFoundException("Transaction with ID " + id + " not found"));
+                default -> service.getTransactionById(id).orElse(null);
+            };
+        } catch (TracedNotFoundException | TransactionNotFoundException e) {
+            return e;
+        }
+    }
+}
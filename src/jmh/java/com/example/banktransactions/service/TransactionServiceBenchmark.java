@@ -0,0 +1,73 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.BenchmarkData;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Partial updates through {@link TransactionService}: copy, merge, re-index and balance adjustment. The service
+ * is wired by hand, so cache proxies are not part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionServiceBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private ValidatorFactory validatorFactory;
+    private TransactionService service;
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository();
+        ids = BenchmarkData.populate(repository, rows);
+        AccountBalanceView balances = new AccountBalanceView(repository);
+        balances.rebuild();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        service = new TransactionService(repository, balances, new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC),
+                new TransactionChangeFeed(256), TransactionCluster.standalone(), new NoOpCacheManager(),
+                validatorFactory.getValidator(), 1000, 1000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Optional<Transaction> updateAmount() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Transaction change = new Transaction();
+        change.setId(ids[random.nextInt(rows)]);
+        change.setAmount(BigDecimal.valueOf(random.nextInt(1, 100_000), 2));
+        return service.updateTransaction(change, null);
+    }
+
+    /**
+     * Description changes also rewrite the row's search postings.
+     */
+    @Benchmark
+    public Optional<Transaction> updateDescription() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Transaction change = new Transaction();
+        change.setId(ids[random.nextInt(rows)]);
+        change.setDescription("Updated payment " + random.nextInt(5000));
+        return service.updateTransaction(change, null);
+    }
+}
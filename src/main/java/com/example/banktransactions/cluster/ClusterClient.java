@@ -0,0 +1,149 @@
+package com.example.banktransactions.cluster;
+
+import com.example.banktransactions.exception.NodeUnavailableException;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Requests to one peer node. Connections are opened on demand and kept in a pool for the next request, one request
+ * at a time per connection; any I/O failure or timeout drops the connection and surfaces as
+ * {@link NodeUnavailableException}. A failed request is not retried: the peer may have applied it. Every new
+ * connection first answers the peer's nonce with the proof of the shared secret.
+ */
+final class ClusterClient implements AutoCloseable {
+
+    interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    interface Reply<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    private final String node;
+    private final InetSocketAddress address;
+    private final int timeoutMs;
+    private final String secret;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    ClusterClient(String node, InetSocketAddress address, int timeoutMs, String secret) {
+        this.node = node;
+        this.address = address;
+        this.timeoutMs = timeoutMs;
+        this.secret = secret;
+    }
+
+    String node() {
+        return node;
+    }
+
+    /**
+     * Sends one request and decodes the reply; null when the peer answered {@link ClusterCodec#EMPTY}. Errors the
+     * peer reported are rethrown as the exceptions it threw.
+     */
+    <T> T call(byte operation, Body body, Reply<T> reply) {
+        ByteArrayOutputStream request = new ByteArrayOutputStream();
+        Connection connection = null;
+        byte status;
+        byte[] response;
+        try {
+            DataOutputStream requestOut = new DataOutputStream(request);
+            requestOut.writeByte(operation);
+            body.write(requestOut);
+            connection = idle.poll();
+            if (connection == null) {
+                connection = new Connection(open());
+                connection.authenticate(secret);
+            }
+            connection.out.writeInt(request.size());
+            request.writeTo(connection.out);
+            connection.out.flush();
+            int length = connection.in.readInt();
+            if (length < 1 || length > ClusterCodec.MAX_MESSAGE_BYTES) {
+                throw new IOException("Bad reply length " + length);
+            }
+            status = connection.in.readByte();
+            response = new byte[length - 1];
+            connection.in.readFully(response);
+        } catch (IOException e) {
+            if (connection != null) {
+                connection.close();
+            }
+            throw new NodeUnavailableException("Cluster node " + node + " is unavailable", e);
+        }
+        release(connection);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(response));
+        try {
+            return switch (status) {
+                case ClusterCodec.OK -> reply.read(in);
+                case ClusterCodec.EMPTY -> null;
+                default -> throw ClusterCodec.exception(status, ClusterCodec.readString(in));
+            };
+        } catch (IOException e) {
+            throw new NodeUnavailableException("Cluster node " + node + " sent a malformed reply", e);
+        }
+    }
+
+    private Socket open() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timeoutMs);
+            socket.connect(new InetSocketAddress(address.getHostString(), address.getPort()), timeoutMs);
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private void release(Connection connection) {
+        idle.offer(connection);
+        // close() may have drained the pool in between
+        if (closed && idle.remove(connection)) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        private void authenticate(String secret) throws IOException {
+            byte[] nonce = new byte[ClusterCodec.NONCE_BYTES];
+            in.readFully(nonce);
+            out.write(ClusterCodec.proof(secret, nonce));
+            out.flush();
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.banktransactions.cluster;
+
+import com.example.banktransactions.exception.IdempotencyKeyReusedException;
+import com.example.banktransactions.exception.InvalidCursorException;
+import com.example.banktransactions.exception.TransactionAlreadyExistsException;
+import com.example.banktransactions.exception.TransactionNotFoundException;
+import com.example.banktransactions.exception.TransactionVersionConflictException;
+import com.example.banktransactions.model.AccountBalance;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.TransactionKey;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Wire format between cluster nodes. Every message is {@code [int length][byte code][body]}, where the code is an
+ * operation in a request and a status in a response, and {@code length} counts the code and the body. Strings and
+ * byte arrays are length-prefixed ({@code -1} for null), timestamps are epoch micros and amounts an unscaled value
+ * plus scale, as in the journal, so a transaction costs its field bytes plus about 40 bytes.
+ * <p>
+ * Before the first message the server sends a random nonce of {@link #NONCE_BYTES} and the client answers with
+ * its {@link #proof} of {@code transactions.cluster.secret}; a connection without the right proof is closed. The
+ * secret itself never crosses the network, but nothing after the handshake is encrypted.
+ */
+final class ClusterCodec {
+
+    static final byte CREATE = 1;
+    static final byte UPDATE = 2;
+    static final byte DELETE = 3;
+    static final byte FIND_ALL_BY_ID = 4;
+    static final byte PAGE = 5;
+    static final byte COUNT = 6;
+    static final byte BALANCE = 7;
+    static final byte IMPORT = 8;
+    static final byte REPLICATE = 9;
+    static final byte CATCH_UP = 10;
+
+    static final byte OK = 0;
+    // the Optional.empty() / false outcome: unknown id, not deleted
+    static final byte EMPTY = 1;
+    static final byte NOT_FOUND = 2;
+    static final byte ALREADY_EXISTS = 3;
+    static final byte VERSION_CONFLICT = 4;
+    static final byte KEY_REUSED = 5;
+    static final byte INVALID_CURSOR = 6;
+    static final byte FAILED = 7;
+
+    static final byte REPLICA_PUT = 1;
+    static final byte REPLICA_DELETE = 2;
+
+    // far above any batch the service sends; guards against reading garbage as a length
+    static final int MAX_MESSAGE_BYTES = 64 * 1024 * 1024;
+
+    static final int NONCE_BYTES = 16;
+    static final int PROOF_BYTES = 32;
+
+    private ClusterCodec() {
+    }
+
+    /**
+     * HMAC-SHA256 of the server's nonce under the shared secret.
+     */
+    static byte[] proof(String secret, byte[] nonce) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(nonce);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    static byte status(RuntimeException e) {
+        if (e instanceof TransactionNotFoundException) {
+            return NOT_FOUND;
+        } else if (e instanceof TransactionAlreadyExistsException) {
+            return ALREADY_EXISTS;
+        } else if (e instanceof TransactionVersionConflictException) {
+            return VERSION_CONFLICT;
+        } else if (e instanceof IdempotencyKeyReusedException) {
+            return KEY_REUSED;
+        } else if (e instanceof InvalidCursorException) {
+            return INVALID_CURSOR;
+        }
+        return FAILED;
+    }
+
+    /**
+     * The exception the remote node threw, rebuilt on this side, so callers see the same outcome as locally.
+     */
+    static RuntimeException exception(byte status, String message) {
+        return switch (status) {
+            case NOT_FOUND -> new TransactionNotFoundException(message);
+            case ALREADY_EXISTS -> new TransactionAlreadyExistsException(message);
+            case VERSION_CONFLICT -> new TransactionVersionConflictException(message);
+            case KEY_REUSED -> new IdempotencyKeyReusedException(message);
+            case INVALID_CURSOR -> new InvalidCursorException(message);
+            default -> new IllegalStateException(message);
+        };
+    }
+
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(raw.length);
+            out.write(raw);
+        }
+    }
+
+    static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] raw = new byte[length];
+        in.readFully(raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    static void writeTime(DataOutput out, LocalDateTime value) throws IOException {
+        out.writeLong(TransactionKey.toMicros(value));
+    }
+
+    static LocalDateTime readTime(DataInput in) throws IOException {
+        long micros = in.readLong();
+        return micros == Long.MIN_VALUE ? null : TransactionKey.fromMicros(micros);
+    }
+
+    static void writeAmount(DataOutput out, BigDecimal amount) throws IOException {
+        if (amount == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] unscaled = amount.unscaledValue().toByteArray();
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(amount.scale());
+    }
+
+    static BigDecimal readAmount(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+
+    static void writeTransaction(DataOutput out, Transaction transaction) throws IOException {
+        writeString(out, transaction.getId());
+        writeString(out, transaction.getAccountId());
+        writeString(out, transaction.getType());
+        writeString(out, transaction.getDescription());
+        writeAmount(out, transaction.getAmount());
+        writeTime(out, transaction.getTimestamp());
+        out.writeLong(transaction.getVersion());
+    }
+
+    static Transaction readTransaction(DataInput in) throws IOException {
+        Transaction transaction = new Transaction();
+        transaction.setId(readString(in));
+        transaction.setAccountId(readString(in));
+        transaction.setType(readString(in));
+        transaction.setDescription(readString(in));
+        transaction.setAmount(readAmount(in));
+        transaction.setTimestamp(readTime(in));
+        transaction.setVersion(in.readLong());
+        return transaction;
+    }
+
+    static void writeTransactions(DataOutput out, List<Transaction> transactions) throws IOException {
+        out.writeInt(transactions.size());
+        for (Transaction transaction : transactions) {
+            writeTransaction(out, transaction);
+        }
+    }
+
+    static List<Transaction> readTransactions(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(readTransaction(in));
+        }
+        return transactions;
+    }
+
+    static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    static List<String> readStrings(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    static void writeBalance(DataOutput out, AccountBalance balance) throws IOException {
+        writeString(out, balance.getAccountId());
+        writeAmount(out, balance.getBalance());
+        writeAmount(out, balance.getDepositTotal());
+        writeAmount(out, balance.getWithdrawalTotal());
+        writeAmount(out, balance.getTransferTotal());
+        out.writeLong(balance.getCount());
+        writeTime(out, balance.getLastActivity());
+    }
+
+    static AccountBalance readBalance(DataInput in) throws IOException {
+        return new AccountBalance(readString(in), readAmount(in), readAmount(in), readAmount(in), readAmount(in),
+                in.readLong(), readTime(in));
+    }
+
+    static void writeQuery(DataOutput out, PageQuery query) throws IOException {
+        out.writeByte(query.kind().ordinal());
+        writeString(out, query.accountId());
+        writeTime(out, query.from());
+        writeTime(out, query.to());
+        writeString(out, query.text());
+        out.writeBoolean(query.keyset());
+        out.writeBoolean(query.after() != null);
+        if (query.after() != null) {
+            out.writeLong(query.after().timeMicros());
+            writeString(out, query.after().id());
+        }
+        out.writeInt(query.page());
+        out.writeInt(query.size());
+    }
+
+    static PageQuery readQuery(DataInput in) throws IOException {
+        PageQuery.Kind kind = PageQuery.Kind.values()[in.readByte()];
+        String accountId = readString(in);
+        LocalDateTime from = readTime(in);
+        LocalDateTime to = readTime(in);
+        String text = readString(in);
+        boolean keyset = in.readBoolean();
+        TransactionKey after = in.readBoolean() ? new TransactionKey(in.readLong(), readString(in)) : null;
+        return new PageQuery(kind, accountId, from, to, text, keyset, after, in.readInt(), in.readInt());
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.banktransactions.cluster;
+
+import com.example.banktransactions.model.AccountBalance;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.TransactionKey;
+import com.example.banktransactions.service.TransactionService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves the requests of the other nodes on this node's address in {@code transactions.cluster.nodes}, one virtual
+ * thread per connection, to clients that prove they know the shared secret (see {@link ClusterCodec}). Calls
+ * run through the {@link TransactionService} in {@link TransactionCluster#local} mode, so forwarded writes update
+ * this node's balances, caches, change feed and replication exactly as local ones do; replica reads and
+ * replicated writes go to the cluster's replica store.
+ */
+@Slf4j
+public class ClusterServer implements AutoCloseable {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final TransactionCluster cluster;
+    private final TransactionService service;
+    private final ServerSocket server;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    public ClusterServer(TransactionCluster cluster, TransactionService service) throws IOException {
+        this.cluster = cluster;
+        this.service = service;
+        this.server = new ServerSocket();
+        server.setReuseAddress(true);
+        InetSocketAddress address = cluster.address();
+        // only the interface the other members were told about, not every one of the host's
+        server.bind(new InetSocketAddress(address.getHostString(), address.getPort()));
+        Thread.ofVirtual().name("cluster-server").start(this::accept);
+        log.info("Cluster node {} listening on {}", cluster.self(), server.getLocalSocketAddress());
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread.ofVirtual().start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!server.isClosed()) {
+                    log.warn("Cluster server accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            if (!authenticate(in, out)) {
+                log.warn("Cluster connection from {} rejected: wrong secret", socket.getRemoteSocketAddress());
+                return;
+            }
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (length < 1 || length > ClusterCodec.MAX_MESSAGE_BYTES) {
+                    throw new IOException("Bad request length " + length);
+                }
+                byte operation = in.readByte();
+                byte[] body = new byte[length - 1];
+                in.readFully(body);
+                ByteArrayOutputStream reply = new ByteArrayOutputStream();
+                byte status;
+                try {
+                    status = handle(operation, new DataInputStream(new ByteArrayInputStream(body)), new DataOutputStream(reply));
+                } catch (RuntimeException e) {
+                    status = ClusterCodec.status(e);
+                    if (status == ClusterCodec.FAILED) {
+                        log.warn("Cluster request {} failed", operation, e);
+                    }
+                    reply.reset();
+                    ClusterCodec.writeString(new DataOutputStream(reply), e.getMessage());
+                }
+                out.writeInt(reply.size() + 1);
+                out.writeByte(status);
+                reply.writeTo(out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            log.debug("Cluster connection from {} closed", socket.getRemoteSocketAddress(), e);
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private boolean authenticate(DataInputStream in, DataOutputStream out) throws IOException {
+        byte[] nonce = new byte[ClusterCodec.NONCE_BYTES];
+        RANDOM.nextBytes(nonce);
+        out.write(nonce);
+        out.flush();
+        byte[] proof = new byte[ClusterCodec.PROOF_BYTES];
+        in.readFully(proof);
+        return MessageDigest.isEqual(proof, ClusterCodec.proof(cluster.secret(), nonce));
+    }
+
+    byte handle(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (operation) {
+            case ClusterCodec.CREATE -> {
+                Transaction transaction = ClusterCodec.readTransaction(in);
+                String idempotencyKey = ClusterCodec.readString(in);
+                ClusterCodec.writeTransaction(out, cluster.local(() -> service.createTransaction(transaction, idempotencyKey)));
+            }
+            case ClusterCodec.IMPORT -> {
+                List<Transaction> batch = ClusterCodec.readTransactions(in);
+                Map<Transaction, Integer> positions = new IdentityHashMap<>();
+                for (int i = 0; i < batch.size(); i++) {
+                    positions.put(batch.get(i), i);
+                }
+                Map<Transaction, String> rejected = cluster.local(() -> service.createTransactions(batch));
+                out.writeInt(rejected.size());
+                for (Map.Entry<Transaction, String> rejection : rejected.entrySet()) {
+                    out.writeInt(positions.get(rejection.getKey()));
+                    ClusterCodec.writeString(out, rejection.getValue());
+                }
+            }
+            case ClusterCodec.UPDATE -> {
+                Transaction changes = ClusterCodec.readTransaction(in);
+                Long expectedVersion = readVersion(in);
+                Optional<Transaction> updated = cluster.local(() -> service.updateTransaction(changes, expectedVersion));
+                if (updated.isEmpty()) {
+                    return ClusterCodec.EMPTY;
+                }
+                ClusterCodec.writeTransaction(out, updated.get());
+            }
+            case ClusterCodec.DELETE -> {
+                String id = ClusterCodec.readString(in);
+                Long expectedVersion = readVersion(in);
+                if (!cluster.local(() -> service.deleteTransaction(id, expectedVersion))) {
+                    return ClusterCodec.EMPTY;
+                }
+            }
+            case ClusterCodec.FIND_ALL_BY_ID -> {
+                boolean replica = in.readBoolean();
+                List<String> ids = ClusterCodec.readStrings(in);
+                ClusterCodec.writeTransactions(out, replica
+                        ? List.copyOf(cluster.replicas().findAllById(ids).values())
+                        : cluster.local(() -> service.getTransactionsByIds(ids)).getFound());
+            }
+            case ClusterCodec.PAGE -> {
+                boolean replica = in.readBoolean();
+                PageQuery query = ClusterCodec.readQuery(in);
+                ClusterCodec.writeTransactions(out, replica
+                        ? query.run(cluster.replicas())
+                        : cluster.local(() -> query.run(service)));
+            }
+            case ClusterCodec.COUNT -> {
+                boolean replica = in.readBoolean();
+                String accountId = ClusterCodec.readString(in);
+                if (replica) {
+                    out.writeLong(cluster.replicaBalances().count(accountId));
+                } else {
+                    out.writeLong(cluster.local(() -> accountId == null
+                            ? service.getTransactionCount()
+                            : service.getAccountTransactionCount(accountId)));
+                }
+            }
+            case ClusterCodec.BALANCE -> {
+                boolean replica = in.readBoolean();
+                String accountId = ClusterCodec.readString(in);
+                Optional<AccountBalance> balance = replica
+                        ? cluster.replicaBalances().get(accountId)
+                        : cluster.local(() -> service.getAccountBalance(accountId));
+                if (balance.isEmpty()) {
+                    return ClusterCodec.EMPTY;
+                }
+                ClusterCodec.writeBalance(out, balance.get());
+            }
+            case ClusterCodec.REPLICATE -> {
+                String owner = ClusterCodec.readString(in);
+                boolean catchUp = in.readBoolean();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    if (in.readByte() == ClusterCodec.REPLICA_PUT) {
+                        cluster.applyReplica(ClusterCodec.readTransaction(in));
+                    } else {
+                        cluster.removeReplica(ClusterCodec.readString(in), in.readLong());
+                    }
+                }
+                if (catchUp) {
+                    cluster.catchUp(owner);
+                }
+            }
+            case ClusterCodec.CATCH_UP -> {
+                String follower = ClusterCodec.readString(in);
+                TransactionKey after = TransactionKey.fromCursor(ClusterCodec.readString(in));
+                int size = in.readInt();
+                cluster.writeCatchUpPage(out, follower,
+                        cluster.local(() -> service.getAllTransactionsAfter(after, size)), size);
+            }
+            default -> throw new IOException("Unknown cluster operation " + operation);
+        }
+        return ClusterCodec.OK;
+    }
+
+    private static Long readVersion(DataInputStream in) throws IOException {
+        boolean present = in.readBoolean();
+        long version = in.readLong();
+        return present ? version : null;
+    }
+
+    SocketAddress localAddress() {
+        return server.getLocalSocketAddress();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.banktransactions.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Consistent-hash ring of node names. Each node is placed at {@code virtualNodes} points; a key belongs to the
+ * first point at or after its hash, wrapping around, and its follower is the next point that belongs to a
+ * different node. Adding or removing a node therefore moves only the keys next to that node's points, and every
+ * node with the same member list computes the same owners.
+ */
+public final class HashRing {
+
+    private final long[] points;
+    private final String[] nodes;
+
+    public HashRing(Collection<String> members, int virtualNodes) {
+        if (members.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A ring needs at least one node and one point per node");
+        }
+        List<String> sorted = members.stream().sorted().distinct().toList();
+        int size = sorted.size() * virtualNodes;
+        long[] hashes = new long[size];
+        Integer[] order = new Integer[size];
+        for (int n = 0; n < sorted.size(); n++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                int i = n * virtualNodes + v;
+                hashes[i] = hash(sorted.get(n) + "#" + v);
+                order[i] = i;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(hashes[a], hashes[b]));
+        points = new long[size];
+        nodes = new String[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = hashes[order[i]];
+            nodes[i] = sorted.get(order[i] / virtualNodes);
+        }
+    }
+
+    public String owner(String key) {
+        return nodes[index(key)];
+    }
+
+    /**
+     * The node that holds the replica of {@code key}, or null on a single-node ring.
+     */
+    public String follower(String key) {
+        int start = index(key);
+        String owner = nodes[start];
+        for (int i = 1; i < nodes.length; i++) {
+            String candidate = nodes[(start + i) % nodes.length];
+            if (!candidate.equals(owner)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private int index(String key) {
+        int found = Arrays.binarySearch(points, hash(key == null ? "" : key));
+        int index = found >= 0 ? found : -found - 1;
+        return index == points.length ? 0 : index;
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with MurmurHash3's fmix64 so that keys differing only in their
+     * last characters still land far apart.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.banktransactions.cluster;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.TransactionKey;
+import com.example.banktransactions.repository.TransactionRepository;
+import com.example.banktransactions.service.TransactionService;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One page request of any listing, in a form that can be sent to another node, run there and merged with the
+ * pages of the other nodes. Keyset pages ({@code keyset}, continuing after {@code after}) merge cheaply: every
+ * node returns its next {@code size} rows and the first {@code size} of the union win. An offset page cannot be
+ * split that way, so each node is asked for everything up to the end of the page ({@link #widened()}), which
+ * makes deep offset pages cost {@code nodes * (page + 1) * size} rows.
+ */
+public record PageQuery(Kind kind, String accountId, LocalDateTime from, LocalDateTime to, String text,
+                        boolean keyset, TransactionKey after, int page, int size) {
+
+    public enum Kind {ALL, ACCOUNT, RANGE, SEARCH}
+
+    private static final Comparator<Transaction> ORDER = Comparator.comparing(TransactionKey::of);
+
+    public static PageQuery all(int page, int size) {
+        return new PageQuery(Kind.ALL, null, null, null, null, false, null, page, size);
+    }
+
+    public static PageQuery allAfter(TransactionKey after, int size) {
+        return new PageQuery(Kind.ALL, null, null, null, null, true, after, 0, size);
+    }
+
+    public static PageQuery account(String accountId, int page, int size) {
+        return new PageQuery(Kind.ACCOUNT, accountId, null, null, null, false, null, page, size);
+    }
+
+    public static PageQuery accountAfter(String accountId, TransactionKey after, int size) {
+        return new PageQuery(Kind.ACCOUNT, accountId, null, null, null, true, after, 0, size);
+    }
+
+    public static PageQuery range(String accountId, LocalDateTime from, LocalDateTime to, int page, int size) {
+        return new PageQuery(Kind.RANGE, accountId, from, to, null, false, null, page, size);
+    }
+
+    public static PageQuery rangeAfter(String accountId, LocalDateTime from, LocalDateTime to,
+                                       TransactionKey after, int size) {
+        return new PageQuery(Kind.RANGE, accountId, from, to, null, true, after, 0, size);
+    }
+
+    public static PageQuery search(String text, int page, int size) {
+        return new PageQuery(Kind.SEARCH, null, null, null, text, false, null, page, size);
+    }
+
+    /**
+     * True when all matching rows belong to one account, and so to one node.
+     */
+    public boolean routed() {
+        return accountId != null;
+    }
+
+    /**
+     * The query each node runs so that {@link #merge} can cut the requested page out of the union.
+     */
+    public PageQuery widened() {
+        if (keyset || page == 0) {
+            return this;
+        }
+        return new PageQuery(kind, accountId, from, to, text, false, null, 0, Math.multiplyExact(page + 1, size));
+    }
+
+    public List<Transaction> merge(List<List<Transaction>> parts) {
+        return parts.stream()
+                .flatMap(List::stream)
+                .sorted(ORDER)
+                .skip(keyset ? 0 : (long) page * size)
+                .limit(size)
+                .toList();
+    }
+
+    public List<Transaction> run(TransactionService service) {
+        return switch (kind) {
+            case ALL -> keyset ? service.getAllTransactionsAfter(after, size) : service.getAllTransactions(page, size);
+            case ACCOUNT -> keyset ? service.getTransactionsByAccountIdAfter(accountId, after, size)
+                    : service.getTransactionsByAccountId(accountId, page, size);
+            case RANGE -> keyset ? service.getTransactionsInRangeAfter(accountId, from, to, after, size)
+                    : service.getTransactionsInRange(accountId, from, to, page, size);
+            case SEARCH -> service.searchTransactions(text, page, size);
+        };
+    }
+
+    public List<Transaction> run(TransactionRepository repository) {
+        return switch (kind) {
+            case ALL -> keyset ? repository.findAllAfter(after, size) : repository.findAll(page, size);
+            case ACCOUNT -> keyset ? repository.findByAccountIdAfter(accountId, after, size)
+                    : repository.findByAccountId(accountId, page, size);
+            case RANGE -> keyset ? repository.findByTimeRange(accountId, from, to, after, size)
+                    : repository.findByTimeRange(accountId, from, to, page, size);
+            case SEARCH -> repository.search(text, page, size);
+        };
+    }
+}
@@ -0,0 +1,713 @@
+package com.example.banktransactions.cluster;
+
+import com.example.banktransactions.exception.NodeUnavailableException;
+import com.example.banktransactions.log.RateLimitedLog;
+import com.example.banktransactions.model.AccountBalance;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.TransactionKey;
+import com.example.banktransactions.repository.TransactionRepository;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import com.example.banktransactions.service.AccountBalanceView;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Membership, routing and replication of a cluster of nodes that share the transactions by account. Every node
+ * has the same static member list and so the same {@link HashRing}: an account belongs to its ring owner, which
+ * stores all of the account's transactions, keeps its balance and serves its pages. The {@code TransactionService}
+ * asks {@link #owns} before it touches local state and otherwise forwards the call here; listings that are not
+ * about one account, counts and lookups by id alone are scattered to every node and gathered.
+ * <p>
+ * Every write applied on its owner is queued for the account's follower (the next node on the ring), which keeps
+ * a replica store. Writes to one row are applied in version order: a replicated delete carries the deleted version
+ * and leaves a tombstone for {@link #TOMBSTONE_TTL}, so a put queued just behind it cannot bring the row back. A
+ * row created again under a deleted id starts over at version 1, so a put a tombstone holds back is not dropped
+ * but checked against the owner's current row.
+ * Replication is asynchronous; an owner whose queue to a follower filled up
+ * ({@code transactions.cluster.replication-queue-size}) says so with its next batch, and the follower then catches
+ * up by paging through the owner's rows for it. A follower does the same with every owner when it starts, as its
+ * replica store starts empty. While an owner is unreachable its accounts stay readable from the follower's
+ * replica, but not writable.
+ * <p>
+ * A request that arrived from another node runs in {@link #local} mode, in which this node answers from its own
+ * data only, so a request crosses the network at most once.
+ * <p>
+ * The total count is a scatter-gather too; the other nodes' share is reused for
+ * {@code transactions.cluster.count-cache-ms}, so paging does not cost one round of requests per page.
+ */
+@Slf4j
+public class TransactionCluster implements MeterBinder, AutoCloseable {
+
+    private static final RateLimitedLog DROP_LOG = new RateLimitedLog(log, 1);
+    private static final int REPLICATION_BATCH = 512;
+    private static final long MAX_RETRY_DELAY_MS = 1000;
+    // far longer than a put can queue behind the delete of its row, or a catch-up page can be in flight
+    static final Duration TOMBSTONE_TTL = Duration.ofMinutes(1);
+    static final int CATCH_UP_PAGE = 1000;
+
+    private final String self;
+    private final Map<String, InetSocketAddress> nodes;
+    private final HashRing ring;
+    private final Map<String, ClusterClient> peers = new LinkedHashMap<>();
+    private final Map<String, ReplicationLink> links = new LinkedHashMap<>();
+    private final TransactionRepository replicas = new localMemoryTransactionRepository();
+    private final AccountBalanceView replicaBalances = new AccountBalanceView(replicas);
+    // the last delete per replicated id; every replica write to an id runs inside this map's compute for it
+    private final ConcurrentMap<String, Tombstone> tombstones =
+            Caffeine.newBuilder().expireAfterWrite(TOMBSTONE_TTL).<String, Tombstone>build().asMap();
+    private final Set<String> catchingUp = ConcurrentHashMap.newKeySet();
+    private final Set<String> catchUpAgain = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Boolean> forwarded = ThreadLocal.withInitial(() -> false);
+    private final LongAdder dropped = new LongAdder();
+    private final ExecutorService scatter = Executors.newVirtualThreadPerTaskExecutor();
+    private final String secret;
+    private final long countCacheNanos;
+    // the other nodes' total and when it was fetched, replaced together
+    private volatile long[] remoteCount;
+    private volatile boolean closed;
+
+    /**
+     * A cluster of {@code nodes} (name to address) as seen from the node named {@code self}, whose members
+     * authenticate each other with {@code secret}.
+     */
+    public TransactionCluster(String self, Map<String, InetSocketAddress> nodes, int virtualNodes, int timeoutMs,
+                              int replicationQueueSize, String secret, long countCacheMs) {
+        if (!nodes.containsKey(self)) {
+            throw new IllegalArgumentException("Node " + self + " is not in the cluster nodes " + nodes.keySet());
+        }
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("transactions.cluster.secret must be set in cluster mode");
+        }
+        this.self = self;
+        this.secret = secret;
+        this.countCacheNanos = TimeUnit.MILLISECONDS.toNanos(countCacheMs);
+        this.nodes = Map.copyOf(nodes);
+        this.ring = new HashRing(nodes.keySet(), virtualNodes);
+        for (Map.Entry<String, InetSocketAddress> node : new TreeMap<>(nodes).entrySet()) {
+            if (!node.getKey().equals(self)) {
+                ClusterClient client = new ClusterClient(node.getKey(), node.getValue(), timeoutMs, secret);
+                peers.put(node.getKey(), client);
+                ReplicationLink link = new ReplicationLink(client, replicationQueueSize);
+                links.put(node.getKey(), link);
+                Thread.ofVirtual().name("cluster-replication-" + node.getKey()).start(link);
+            }
+        }
+        // the replica store starts empty; fill it from the owners, who may have been up all along
+        peers.keySet().forEach(this::catchUp);
+    }
+
+    private TransactionCluster() {
+        this.self = null;
+        this.nodes = Map.of();
+        this.ring = null;
+        this.secret = null;
+        this.countCacheNanos = 0;
+    }
+
+    /**
+     * The single-node setup: this node owns every account and nothing is forwarded.
+     */
+    public static TransactionCluster standalone() {
+        return new TransactionCluster();
+    }
+
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public String self() {
+        return self;
+    }
+
+    /**
+     * This node's address in the member list, which its cluster server binds to.
+     */
+    public InetSocketAddress address() {
+        return nodes.get(self);
+    }
+
+    String secret() {
+        return secret;
+    }
+
+    /**
+     * This node's position among the sorted node names; distinct per node, so usable as its snowflake node id.
+     */
+    public int nodeIndex() {
+        return new TreeSet<>(nodes.keySet()).headSet(self).size();
+    }
+
+    /**
+     * True when this node answers for {@code accountId}: it is the ring owner, there is no cluster, or the call
+     * was forwarded here. Evaluated by the service's cache conditions too, so only owners cache.
+     */
+    public boolean owns(String accountId) {
+        return ring == null || forwarded.get() || self.equals(ring.owner(accountId));
+    }
+
+    /**
+     * True when a call that is not about one account has to ask the other nodes as well.
+     */
+    public boolean scatters() {
+        return ring != null && !forwarded.get();
+    }
+
+    public String owner(String accountId) {
+        return ring == null ? self : ring.owner(accountId);
+    }
+
+    String follower(String accountId) {
+        return ring.follower(accountId);
+    }
+
+    /**
+     * Runs {@code action} as a forwarded call: against this node's data only.
+     */
+    public <T> T local(Supplier<T> action) {
+        boolean outer = forwarded.get();
+        forwarded.set(true);
+        try {
+            return action.get();
+        } finally {
+            forwarded.set(outer);
+        }
+    }
+
+    public Transaction create(Transaction transaction, String idempotencyKey) {
+        return peer(ring.owner(transaction.getAccountId())).call(ClusterCodec.CREATE, out -> {
+            ClusterCodec.writeTransaction(out, transaction);
+            ClusterCodec.writeString(out, idempotencyKey);
+        }, ClusterCodec::readTransaction);
+    }
+
+    /**
+     * Inserts a batch on {@code node}; returns the positions in {@code batch} of the rows it did not insert, with
+     * the reason.
+     */
+    public Map<Integer, String> createAll(String node, List<Transaction> batch) {
+        return peer(node).call(ClusterCodec.IMPORT, out -> ClusterCodec.writeTransactions(out, batch), in -> {
+            int count = in.readInt();
+            Map<Integer, String> rejected = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                rejected.put(in.readInt(), ClusterCodec.readString(in));
+            }
+            return rejected;
+        });
+    }
+
+    /**
+     * Updates on the account's owner, or, when {@code changes} carries no accountId, on whichever node stores it.
+     */
+    public Optional<Transaction> update(Transaction changes, Long expectedVersion) {
+        ClusterClient.Body body = out -> {
+            ClusterCodec.writeTransaction(out, changes);
+            writeVersion(out, expectedVersion);
+        };
+        if (changes.getAccountId() != null) {
+            return Optional.ofNullable(peer(ring.owner(changes.getAccountId()))
+                    .call(ClusterCodec.UPDATE, body, ClusterCodec::readTransaction));
+        }
+        List<String> failed = new ArrayList<>();
+        Optional<Transaction> updated = gather(peers.keySet(), ClusterCodec.UPDATE, body, ClusterCodec::readTransaction, failed)
+                .values().stream().filter(Objects::nonNull).findFirst();
+        if (updated.isEmpty() && !failed.isEmpty()) {
+            throw unavailable(failed);
+        }
+        return updated;
+    }
+
+    public boolean delete(String id, Long expectedVersion) {
+        List<String> failed = new ArrayList<>();
+        boolean deleted = gather(peers.keySet(), ClusterCodec.DELETE, out -> {
+            ClusterCodec.writeString(out, id);
+            writeVersion(out, expectedVersion);
+        }, in -> true, failed).containsValue(true);
+        if (!deleted && !failed.isEmpty()) {
+            throw unavailable(failed);
+        }
+        return deleted;
+    }
+
+    /**
+     * Looks the id up on the other nodes. If one of them is down its rows are looked for in the replicas, which
+     * between them hold every partition of a single failed node.
+     */
+    public Optional<Transaction> findById(String id) {
+        return Optional.ofNullable(findAllById(List.of(id)).get(id));
+    }
+
+    public Map<String, Transaction> findAllById(Collection<String> ids) {
+        List<String> list = List.copyOf(ids);
+        List<String> failed = new ArrayList<>();
+        Map<String, Transaction> found = new HashMap<>();
+        gather(peers.keySet(), ClusterCodec.FIND_ALL_BY_ID, findBody(list, false), ClusterCodec::readTransactions, failed)
+                .values().forEach(part -> part.forEach(transaction -> found.put(transaction.getId(), transaction)));
+        if (failed.isEmpty() || found.size() == list.size()) {
+            return found;
+        }
+        List<String> missing = list.stream().filter(id -> !found.containsKey(id)).toList();
+        found.putAll(replicas.findAllById(missing));
+        Set<String> live = new LinkedHashSet<>(peers.keySet());
+        failed.forEach(live::remove);
+        List<String> replicaFailed = new ArrayList<>(failed);
+        gather(live, ClusterCodec.FIND_ALL_BY_ID, findBody(missing, true), ClusterCodec::readTransactions, replicaFailed)
+                .values().forEach(part -> part.forEach(transaction -> found.putIfAbsent(transaction.getId(), transaction)));
+        if (replicaFailed.size() > 1 && found.size() < list.size()) {
+            // with two nodes down, some partition may have lost both its owner and its follower
+            throw unavailable(replicaFailed);
+        }
+        return found;
+    }
+
+    /**
+     * Runs a listing across the cluster: a query about one account on its owner (or the follower's replica while
+     * the owner is down), any other on every node, this node's share on {@code local}.
+     */
+    public List<Transaction> query(PageQuery query, TransactionRepository local) {
+        if (query.routed()) {
+            return routed(query.accountId(), ClusterCodec.PAGE, replica -> out -> {
+                out.writeBoolean(replica);
+                ClusterCodec.writeQuery(out, query);
+            }, ClusterCodec::readTransactions, () -> query.run(replicas));
+        }
+        PageQuery widened = query.widened();
+        List<String> failed = new ArrayList<>();
+        Future<Map<String, List<Transaction>>> remote = scatter.submit(() -> gather(peers.keySet(), ClusterCodec.PAGE,
+                out -> {
+                    out.writeBoolean(false);
+                    ClusterCodec.writeQuery(out, widened);
+                }, ClusterCodec::readTransactions, failed));
+        List<List<Transaction>> parts = new ArrayList<>();
+        parts.add(widened.run(local));
+        parts.addAll(join(remote).values());
+        if (!failed.isEmpty()) {
+            throw unavailable(failed);
+        }
+        return query.merge(parts);
+    }
+
+    /**
+     * The other nodes' transactions, as of at most {@code transactions.cluster.count-cache-ms} ago.
+     */
+    public long count() {
+        long[] cached = remoteCount;
+        long now = System.nanoTime();
+        if (cached != null && now - cached[1] < countCacheNanos) {
+            return cached[0];
+        }
+        List<String> failed = new ArrayList<>();
+        Map<String, Long> counts = gather(peers.keySet(), ClusterCodec.COUNT, out -> {
+            out.writeBoolean(false);
+            ClusterCodec.writeString(out, null);
+        }, DataInputStream::readLong, failed);
+        if (!failed.isEmpty()) {
+            throw unavailable(failed);
+        }
+        long total = counts.values().stream().mapToLong(Long::longValue).sum();
+        remoteCount = new long[]{total, now};
+        return total;
+    }
+
+    public long count(String accountId) {
+        return routed(accountId, ClusterCodec.COUNT, replica -> out -> {
+            out.writeBoolean(replica);
+            ClusterCodec.writeString(out, accountId);
+        }, DataInputStream::readLong, () -> replicaBalances.count(accountId));
+    }
+
+    public Optional<AccountBalance> balance(String accountId) {
+        return Optional.ofNullable(routed(accountId, ClusterCodec.BALANCE, replica -> out -> {
+            out.writeBoolean(replica);
+            ClusterCodec.writeString(out, accountId);
+        }, ClusterCodec::readBalance, () -> replicaBalances.get(accountId).orElse(null)));
+    }
+
+    /**
+     * Queues a write this node applied as owner for the account's follower; {@code previous} and {@code current}
+     * as in {@code AccountBalanceView.onChange}. Never blocks: with the queue full the change is dropped.
+     */
+    public void replicate(Transaction previous, Transaction current) {
+        if (ring == null) {
+            return;
+        }
+        Transaction changed = current != null ? current : previous;
+        String follower = ring.follower(changed.getAccountId());
+        ReplicationLink link = follower == null ? null : links.get(follower);
+        if (link != null) {
+            link.offer(current != null ? new Replicated(current, null, 0)
+                    : new Replicated(null, previous.getId(), previous.getVersion()));
+        }
+    }
+
+    TransactionRepository replicas() {
+        return replicas;
+    }
+
+    AccountBalanceView replicaBalances() {
+        return replicaBalances;
+    }
+
+    /**
+     * Applies a replicated write unless a newer version of the row, or its delete, is already here.
+     */
+    void applyReplica(Transaction transaction) {
+        boolean[] heldBack = new boolean[1];
+        tombstones.compute(transaction.getId(), (id, deleted) -> {
+            if (deleted != null && deleted.version() >= transaction.getVersion()) {
+                heldBack[0] = true;
+                return deleted;
+            }
+            storeReplica(transaction);
+            return null;
+        });
+        if (heldBack[0]) {
+            Thread.ofVirtual().name("cluster-check-" + transaction.getId()).start(() -> check(transaction));
+        }
+    }
+
+    private void storeReplica(Transaction transaction) {
+        Transaction previous = replicas.findById(transaction.getId()).orElse(null);
+        if (previous == null || previous.getVersion() <= transaction.getVersion()) {
+            replicas.create(transaction);
+            replicaBalances.onChange(previous, transaction);
+        }
+    }
+
+    /**
+     * Settles a write held back by a tombstone: it was either older than the delete, or the row was created again.
+     * The owner's current row decides, unless another delete came in while it was asked for.
+     */
+    private void check(Transaction heldBack) {
+        Tombstone seen = tombstones.get(heldBack.getId());
+        if (seen == null) {
+            return;
+        }
+        Transaction current;
+        try {
+            current = peer(ring.owner(heldBack.getAccountId())).call(ClusterCodec.FIND_ALL_BY_ID,
+                    findBody(List.of(heldBack.getId()), false), ClusterCodec::readTransactions)
+                    .stream().findFirst().orElse(null);
+        } catch (NodeUnavailableException | IllegalStateException e) {
+            log.debug("Could not check replicated write of {} with its owner", heldBack.getId(), e);
+            return;
+        }
+        if (current != null) {
+            tombstones.compute(current.getId(), (id, deleted) -> {
+                if (deleted != seen) {
+                    return deleted;
+                }
+                storeReplica(current);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Removes the replica of a row deleted at {@code version} unless a newer version of it is already here, and
+     * remembers the delete so that older writes of the row arriving later are ignored.
+     */
+    void removeReplica(String id, long version) {
+        tombstones.compute(id, (key, deleted) -> {
+            Transaction previous = replicas.findById(id).orElse(null);
+            if (previous != null && previous.getVersion() > version) {
+                return deleted;
+            }
+            if (previous != null) {
+                replicas.remove(id);
+                replicaBalances.onChange(previous, null);
+            }
+            return new Tombstone(deleted == null ? version : Math.max(deleted.version(), version));
+        });
+    }
+
+    /**
+     * Fills this node's replicas of {@code owner}'s accounts from the owner, in the background and retrying while
+     * it is down. A request made while a catch-up with the same owner runs starts another one after it.
+     */
+    void catchUp(String owner) {
+        if (!catchingUp.add(owner)) {
+            catchUpAgain.add(owner);
+            return;
+        }
+        Thread.ofVirtual().name("cluster-catch-up-" + owner).start(() -> {
+            try {
+                long delay = 10;
+                while (!closed) {
+                    try {
+                        catchUpNow(owner);
+                        break;
+                    } catch (NodeUnavailableException e) {
+                        log.debug("Catch-up from {} failed, retrying in {} ms", owner, delay);
+                        Thread.sleep(delay);
+                        delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                catchingUp.remove(owner);
+            }
+            if (catchUpAgain.remove(owner) && !closed) {
+                catchUp(owner);
+            }
+        });
+    }
+
+    /**
+     * Pages through the owner's rows that this node follows and applies them as replicated writes. Replicas of
+     * the owner's accounts that were here before and that the owner no longer has are then removed as deleted at
+     * the version they had: a replicated write that came in meanwhile carries a higher one and stays.
+     */
+    private void catchUpNow(String owner) {
+        Map<String, Long> before = new HashMap<>();
+        replicas.forEach(transaction -> {
+            if (owner.equals(ring.owner(transaction.getAccountId()))) {
+                before.put(transaction.getId(), transaction.getVersion());
+            }
+        });
+        ClusterClient client = peer(owner);
+        String cursor = null;
+        do {
+            String after = cursor;
+            CatchUpPage page = client.call(ClusterCodec.CATCH_UP, out -> {
+                ClusterCodec.writeString(out, self);
+                ClusterCodec.writeString(out, after);
+                out.writeInt(CATCH_UP_PAGE);
+            }, in -> new CatchUpPage(ClusterCodec.readTransactions(in), ClusterCodec.readString(in)));
+            for (Transaction transaction : page.rows()) {
+                before.remove(transaction.getId());
+                applyReplica(transaction);
+            }
+            cursor = page.next();
+        } while (cursor != null);
+        before.forEach(this::removeReplica);
+        log.info("Caught up with {}: {} replicas removed", owner, before.size());
+    }
+
+    /**
+     * The owner's side of {@link #catchUpNow}: one page of {@code rows}, which are this node's own rows after the
+     * cursor, filtered down to those {@code follower} follows, and the cursor of the next page, or null at the end.
+     */
+    void writeCatchUpPage(DataOutput out, String follower, List<Transaction> rows, int size) throws IOException {
+        ClusterCodec.writeTransactions(out, rows.stream()
+                .filter(transaction -> follower.equals(ring.follower(transaction.getAccountId())))
+                .toList());
+        ClusterCodec.writeString(out, rows.size() < size ? null : TransactionKey.of(rows.get(rows.size() - 1)).toCursor());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (ring == null) {
+            return;
+        }
+        Gauge.builder("transactions.cluster.replication.pending", links,
+                        all -> all.values().stream().mapToInt(link -> link.queue.size()).sum())
+                .description("Replicated writes waiting to be sent to follower nodes")
+                .register(registry);
+        FunctionCounter.builder("transactions.cluster.replication.dropped", dropped, LongAdder::sum)
+                .description("Replicated writes dropped because a follower's queue was full")
+                .register(registry);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        scatter.shutdownNow();
+        peers.values().forEach(ClusterClient::close);
+    }
+
+    private interface RequestFactory {
+        ClusterClient.Body body(boolean replica);
+    }
+
+    private ClusterClient peer(String node) {
+        ClusterClient client = peers.get(node);
+        if (client == null) {
+            throw new IllegalStateException("Node " + node + " is not a peer of " + self);
+        }
+        return client;
+    }
+
+    /**
+     * Asks the account's owner; if it cannot be reached, the follower answers from its replica, or this node does
+     * when it is the follower.
+     */
+    private <T> T routed(String accountId, byte operation, RequestFactory request, ClusterClient.Reply<T> reply,
+                         Supplier<T> localReplica) {
+        String owner = ring.owner(accountId);
+        try {
+            return peer(owner).call(operation, request.body(false), reply);
+        } catch (NodeUnavailableException e) {
+            String follower = ring.follower(accountId);
+            if (follower == null) {
+                throw e;
+            }
+            if (self.equals(follower)) {
+                return localReplica.get();
+            }
+            try {
+                return peer(follower).call(operation, request.body(true), reply);
+            } catch (NodeUnavailableException second) {
+                e.addSuppressed(second);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Sends the same request to {@code targets} in parallel. Answers, null for EMPTY, are keyed by node; the
+     * nodes that could not be reached are added to {@code failed}. Any other error is rethrown.
+     */
+    private <T> Map<String, T> gather(Collection<String> targets, byte operation, ClusterClient.Body body,
+                                      ClusterClient.Reply<T> reply, List<String> failed) {
+        Map<String, Future<T>> calls = new LinkedHashMap<>();
+        for (String node : targets) {
+            ClusterClient client = peer(node);
+            calls.put(node, scatter.submit(() -> client.call(operation, body, reply)));
+        }
+        Map<String, T> answers = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<T>> call : calls.entrySet()) {
+            try {
+                answers.put(call.getKey(), join(call.getValue()));
+            } catch (NodeUnavailableException e) {
+                failed.add(call.getKey());
+            }
+        }
+        return answers;
+    }
+
+    private static <T> T join(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for cluster nodes", e);
+        }
+    }
+
+    private static ClusterClient.Body findBody(List<String> ids, boolean replica) {
+        return out -> {
+            out.writeBoolean(replica);
+            ClusterCodec.writeStrings(out, ids);
+        };
+    }
+
+    private static void writeVersion(DataOutput out, Long expectedVersion) throws IOException {
+        out.writeBoolean(expectedVersion != null);
+        out.writeLong(expectedVersion == null ? 0 : expectedVersion);
+    }
+
+    private static NodeUnavailableException unavailable(List<String> failed) {
+        return new NodeUnavailableException("Cluster nodes " + failed + " are unavailable", null);
+    }
+
+    /**
+     * A replicated write: the row to store, or the id and version of a deleted row.
+     */
+    record Replicated(Transaction put, String deletedId, long deletedVersion) {
+    }
+
+    private record CatchUpPage(List<Transaction> rows, String next) {
+    }
+
+    /**
+     * A replicated delete; a new instance per delete, so {@link #check} can tell whether another one came in.
+     */
+    private record Tombstone(long version) {
+    }
+
+    /**
+     * Sends one follower its replicated writes in order, batching whatever queued up while the previous batch was
+     * in flight, and retrying with backoff while the follower is down.
+     */
+    private final class ReplicationLink implements Runnable {
+
+        private final ClusterClient client;
+        private final BlockingQueue<Replicated> queue;
+        // set when a write was dropped; the next batch asks the follower to catch up
+        private final AtomicBoolean lost = new AtomicBoolean();
+
+        private ReplicationLink(ClusterClient client, int queueSize) {
+            this.client = client;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        private void offer(Replicated change) {
+            if (!queue.offer(change)) {
+                lost.set(true);
+                dropped.increment();
+                DROP_LOG.info("Replication queue to {} is full, dropping writes", client.node());
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Replicated> batch = new ArrayList<>(REPLICATION_BATCH);
+            try {
+                while (!closed) {
+                    Replicated first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null && !lost.get()) {
+                        continue;
+                    }
+                    if (first != null) {
+                        batch.add(first);
+                    }
+                    queue.drainTo(batch, REPLICATION_BATCH - 1);
+                    send(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void send(List<Replicated> batch) throws InterruptedException {
+            long delay = 10;
+            boolean catchUp = lost.getAndSet(false);
+            while (!closed) {
+                try {
+                    client.call(ClusterCodec.REPLICATE, out -> {
+                        ClusterCodec.writeString(out, self);
+                        out.writeBoolean(catchUp);
+                        out.writeInt(batch.size());
+                        for (Replicated change : batch) {
+                            if (change.put() != null) {
+                                out.writeByte(ClusterCodec.REPLICA_PUT);
+                                ClusterCodec.writeTransaction(out, change.put());
+                            } else {
+                                out.writeByte(ClusterCodec.REPLICA_DELETE);
+                                ClusterCodec.writeString(out, change.deletedId());
+                                out.writeLong(change.deletedVersion());
+                            }
+                        }
+                    }, in -> true);
+                    return;
+                } catch (NodeUnavailableException e) {
+                    log.debug("Replication to {} failed, retrying in {} ms", client.node(), delay);
+                    Thread.sleep(delay);
+                    delay = Math.min(delay * 2, MAX_RETRY_DELAY_MS);
+                }
+            }
+        }
+    }
+}
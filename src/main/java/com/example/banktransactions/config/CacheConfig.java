@@ -1,28 +1,48 @@
 package com.example.banktransactions.config;
 
+import com.example.banktransactions.repository.TransactionRepository;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 
+/**
+ * One Caffeine cache per entry of {@code transactions.cache.specs}, each built from its own
+ * {@link CaffeineSpec} string. Specs with {@code refreshAfterWrite} reload entries in the background from the
+ * repository, which is only possible for caches keyed by transaction id.
+ */
 @Configuration
 @EnableCaching
 public class CacheConfig {
 
+    static final String DEFAULT_SPEC = "maximumSize=1000,expireAfterWrite=1h,recordStats";
+
     @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager("transactions");
-        cacheManager.setCaffeine(caffeineCacheBuilder());
+    public CacheManager cacheManager(Environment environment, TransactionRepository repository) {
+        Map<String, String> specs = Binder.get(environment)
+                .bind("transactions.cache.specs", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of("transactions", DEFAULT_SPEC, "accountTransactions", DEFAULT_SPEC));
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        // caches not listed in the specs are a configuration mistake, not something to create on the fly
+        cacheManager.setCacheNames(specs.keySet());
+        specs.forEach((name, spec) -> {
+            Caffeine<Object, Object> builder = Caffeine.from(spec);
+            if (!spec.contains("refreshAfterWrite")) {
+                cacheManager.registerCustomCache(name, builder.build());
+            } else if ("transactions".equals(name)) {
+                cacheManager.registerCustomCache(name, builder.build(id -> repository.findById((String) id).orElse(null)));
+            } else {
+                throw new IllegalArgumentException("refreshAfterWrite is not supported for cache " + name);
+            }
+        });
         return cacheManager;
     }
-
-    private Caffeine<Object, Object> caffeineCacheBuilder() {
-        return Caffeine.newBuilder()
-                .expireAfterWrite(1, TimeUnit.HOURS)
-                .maximumSize(1000);
-    }
-}
\ No newline at end of file
+}
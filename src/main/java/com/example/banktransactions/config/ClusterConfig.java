@@ -0,0 +1,64 @@
+package com.example.banktransactions.config;
+
+import com.example.banktransactions.cluster.ClusterServer;
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.service.TransactionService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+public class ClusterConfig {
+
+    /**
+     * Always defined, as the service and its cache conditions consult it; a standalone instance unless
+     * {@code transactions.cluster.enabled}.
+     */
+    @Bean
+    public TransactionCluster transactionCluster(
+            @Value("${transactions.cluster.enabled:false}") boolean enabled,
+            @Value("${transactions.cluster.node:}") String node,
+            @Value("${transactions.cluster.nodes:}") String nodes,
+            @Value("${transactions.cluster.virtual-nodes:128}") int virtualNodes,
+            @Value("${transactions.cluster.timeout-ms:2000}") int timeoutMs,
+            @Value("${transactions.cluster.replication-queue-size:100000}") int replicationQueueSize,
+            @Value("${transactions.cluster.secret:}") String secret,
+            @Value("${transactions.cluster.count-cache-ms:1000}") long countCacheMs) {
+        if (!enabled) {
+            return TransactionCluster.standalone();
+        }
+        return new TransactionCluster(node, parseNodes(nodes), virtualNodes, timeoutMs, replicationQueueSize,
+                secret, countCacheMs);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "transactions.cluster", name = "enabled", havingValue = "true")
+    public ClusterServer clusterServer(TransactionCluster cluster, TransactionService service) throws IOException {
+        return new ClusterServer(cluster, service);
+    }
+
+    /**
+     * Parses {@code name=host:port,name=host:port,...}.
+     */
+    static Map<String, InetSocketAddress> parseNodes(String nodes) {
+        Map<String, InetSocketAddress> parsed = new LinkedHashMap<>();
+        for (String entry : nodes.split(",")) {
+            String trimmed = entry.trim();
+            int equals = trimmed.indexOf('=');
+            int colon = trimmed.lastIndexOf(':');
+            if (equals < 1 || colon < equals + 2 || colon == trimmed.length() - 1) {
+                throw new IllegalArgumentException("transactions.cluster.nodes entries look like name=host:port, not "
+                        + trimmed);
+            }
+            parsed.put(trimmed.substring(0, equals), InetSocketAddress.createUnresolved(
+                    trimmed.substring(equals + 1, colon), Integer.parseInt(trimmed.substring(colon + 1))));
+        }
+        return parsed;
+    }
+}
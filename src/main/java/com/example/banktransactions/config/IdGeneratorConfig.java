@@ -0,0 +1,28 @@
+package com.example.banktransactions.config;
+
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.repository.id.IdGenerator;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.id.UuidIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class IdGeneratorConfig {
+
+    /**
+     * In cluster mode the snowflake node id is the node's position in {@code transactions.cluster.nodes}, so the
+     * nodes cannot generate the same id.
+     */
+    @Bean
+    public IdGenerator idGenerator(@Value("${transactions.id.strategy:snowflake}") String strategy,
+                                   @Value("${transactions.id.node-id:0}") int nodeId,
+                                   TransactionCluster cluster) {
+        return switch (strategy) {
+            case "snowflake" -> new SnowflakeIdGenerator(cluster.isEnabled() ? cluster.nodeIndex() : nodeId);
+            case "uuid" -> new UuidIdGenerator();
+            default -> throw new IllegalArgumentException("Unknown transactions.id.strategy " + strategy);
+        };
+    }
+}
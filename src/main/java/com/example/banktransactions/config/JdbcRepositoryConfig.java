@@ -0,0 +1,40 @@
+package com.example.banktransactions.config;
+
+import com.example.banktransactions.repository.JdbcTransactionRepository;
+import com.example.banktransactions.repository.id.IdGenerator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The embedded database engine. The DataSource is only created here, so the default in-memory engine never opens
+ * a database.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "transactions.repository", name = "engine", havingValue = "jdbc")
+public class JdbcRepositoryConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource transactionDataSource(
+            @Value("${transactions.repository.jdbc.url:jdbc:h2:file:./data/h2/transactions}") String url,
+            @Value("${transactions.repository.jdbc.username:sa}") String username,
+            @Value("${transactions.repository.jdbc.password:}") String password,
+            @Value("${transactions.repository.jdbc.pool-size:16}") int poolSize) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("transactions");
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        return new HikariDataSource(config);
+    }
+
+    @Bean
+    public JdbcTransactionRepository jdbcTransactionRepository(HikariDataSource transactionDataSource,
+                                                               IdGenerator idGenerator) {
+        return new JdbcTransactionRepository(transactionDataSource, idGenerator);
+    }
+}
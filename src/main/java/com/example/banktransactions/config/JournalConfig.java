@@ -0,0 +1,52 @@
+package com.example.banktransactions.config;
+
+import com.example.banktransactions.repository.journal.DurabilityMode;
+import com.example.banktransactions.repository.journal.TransactionJournal;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "transactions.journal", name = "enabled", havingValue = "true")
+public class JournalConfig {
+
+    private final ObjectProvider<localMemoryTransactionRepository> repository;
+
+    public JournalConfig(ObjectProvider<localMemoryTransactionRepository> repository) {
+        this.repository = repository;
+    }
+
+    @Bean
+    public TransactionJournal transactionJournal(
+            @Value("${transactions.journal.directory:./data/journal}") Path directory,
+            @Value("${transactions.journal.durability:BATCHED}") DurabilityMode durability,
+            @Value("${transactions.journal.flush-interval-ms:10}") long flushIntervalMillis,
+            @Value("${transactions.journal.max-segment-size:256MB}") DataSize maxSegmentSize) throws IOException {
+        return new TransactionJournal(directory, durability, flushIntervalMillis, maxSegmentSize.toBytes());
+    }
+
+    @Scheduled(initialDelayString = "${transactions.journal.snapshot-interval-ms:600000}",
+            fixedDelayString = "${transactions.journal.snapshot-interval-ms:600000}")
+    public void snapshot() {
+        // the journal belongs to the in-memory engine; other engines persist on their own
+        localMemoryTransactionRepository memory = repository.getIfAvailable();
+        if (memory == null) {
+            return;
+        }
+        try {
+            memory.snapshot();
+        } catch (IOException e) {
+            log.error("Journal snapshot failed", e);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.banktransactions.config;
+
+import com.example.banktransactions.repository.InstrumentedTransactionRepository;
+import com.example.banktransactions.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Puts {@link InstrumentedTransactionRepository} in front of whichever engine is configured. It is the primary
+ * {@link TransactionRepository}, so the service, the balance view and the cache loader all go through it, while
+ * the engine bean itself stays injectable by its own type (the journal snapshot task needs that).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "transactions.metrics", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MetricsConfig {
+
+    @Bean
+    @Primary
+    public InstrumentedTransactionRepository instrumentedTransactionRepository(
+            TransactionRepository engine,
+            MeterRegistry registry,
+            @Value("${transactions.metrics.sample-every:64}") int sampleEvery) {
+        // the engine is the only other TransactionRepository: Spring leaves this bean out of its own candidates
+        return new InstrumentedTransactionRepository(engine, registry, sampleEvery);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.banktransactions.config;
+
+import com.example.banktransactions.repository.PartitionedTransactionRepository;
+import com.example.banktransactions.repository.id.IdGenerator;
+import com.example.banktransactions.repository.journal.TransactionJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+
+@Configuration
+@ConditionalOnProperty(prefix = "transactions.repository", name = "engine", havingValue = "partitioned")
+public class PartitionedRepositoryConfig {
+
+    @Bean
+    public PartitionedTransactionRepository partitionedTransactionRepository(
+            IdGenerator idGenerator,
+            Optional<TransactionJournal> journal,
+            @Value("${transactions.repository.partitions:0}") int partitions,
+            @Value("${transactions.storage.engine:object}") String engine,
+            @Value("${transactions.storage.offheap.segments:16}") int offHeapSegments,
+            @Value("${transactions.storage.offheap.page-size:4MB}") DataSize offHeapPageSize) {
+        if (journal.isPresent()) {
+            throw new IllegalStateException("transactions.journal is only supported by the memory repository engine");
+        }
+        int count = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        // the configured off-heap segments are shared out, so partitioning does not multiply the pages in use
+        int segmentsPerPartition = Integer.highestOneBit(Math.max(1, offHeapSegments / count));
+        return new PartitionedTransactionRepository(idGenerator, count,
+                () -> TransactionStoreConfig.newStore(engine, segmentsPerPartition, offHeapPageSize));
+    }
+}
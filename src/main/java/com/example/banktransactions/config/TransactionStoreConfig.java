@@ -0,0 +1,31 @@
+package com.example.banktransactions.config;
+
+import com.example.banktransactions.repository.store.ColumnarTransactionStore;
+import com.example.banktransactions.repository.store.ObjectTransactionStore;
+import com.example.banktransactions.repository.store.OffHeapTransactionStore;
+import com.example.banktransactions.repository.store.TransactionStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+public class TransactionStoreConfig {
+
+    @Bean
+    public TransactionStore transactionStore(
+            @Value("${transactions.storage.engine:object}") String engine,
+            @Value("${transactions.storage.offheap.segments:16}") int offHeapSegments,
+            @Value("${transactions.storage.offheap.page-size:4MB}") DataSize offHeapPageSize) {
+        return newStore(engine, offHeapSegments, offHeapPageSize);
+    }
+
+    static TransactionStore newStore(String engine, int offHeapSegments, DataSize offHeapPageSize) {
+        return switch (engine) {
+            case "object" -> new ObjectTransactionStore();
+            case "columnar" -> new ColumnarTransactionStore();
+            case "offheap" -> new OffHeapTransactionStore(offHeapSegments, Math.toIntExact(offHeapPageSize.toBytes()));
+            default -> throw new IllegalArgumentException("Unknown transactions.storage.engine " + engine);
+        };
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.banktransactions.controller;
+
+import com.example.banktransactions.model.TransactionChange;
+import com.example.banktransactions.service.TransactionChangeFeed;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+/**
+ * Writes feed changes as server-sent events: the event id is the change's sequence and the data its JSON.
+ */
+class SseChangeSink implements TransactionChangeFeed.Sink {
+
+    private final SseEmitter emitter;
+
+    SseChangeSink(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void send(TransactionChange change) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(Long.toString(change.getSequence()))
+                .data(change, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public void heartbeat() throws IOException {
+        emitter.send(SseEmitter.event().comment("heartbeat"));
+    }
+
+    @Override
+    public void close() {
+        emitter.complete();
+    }
+}
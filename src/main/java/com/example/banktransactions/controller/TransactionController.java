@@ -1,22 +1,42 @@
 package com.example.banktransactions.controller;
 
+import com.example.banktransactions.log.RateLimitedLog;
+import com.example.banktransactions.model.AccountBalance;
+import com.example.banktransactions.model.BulkImportResult;
 import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.model.TransactionLookupResult;
+import com.example.banktransactions.repository.TransactionKey;
+import com.example.banktransactions.service.TransactionChangeFeed;
+import com.example.banktransactions.service.TransactionExportWriter;
+import com.example.banktransactions.service.TransactionImportReader;
 import com.example.banktransactions.service.TransactionService;
 import com.example.banktransactions.exception.TransactionAlreadyExistsException;
-import com.example.banktransactions.exception.TransactionNotFoundException;
+import com.example.banktransactions.exception.TransactionVersionConflictException;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 @Slf4j
 @RestController
 @RequestMapping("/api/transactions")
@@ -24,15 +44,29 @@ import java.util.List;
 @Tag(name = "Transaction Management API", description = "API for managing bank transactions")
 public class TransactionController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    static final int MAX_LOOKUP_IDS = 1000;
+
+    // unknown ids and duplicate creates are client outcomes, not server errors; a burst of them is logged once
+    private static final RateLimitedLog CLIENT_ERROR_LOG = new RateLimitedLog(log, 10);
+
     private final TransactionService transactionService;
+    private final ObjectMapper objectMapper;
 
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, ObjectMapper objectMapper) {
         this.transactionService = transactionService;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(
             summary = "Create a new transaction",
-            description = "Creates a new transaction with unique ID",
+            description = "Creates a new transaction with unique ID. A retry carrying the same Idempotency-Key as "
+                    + "an earlier request gets that request's transaction instead of creating another one",
             responses = {
                     @ApiResponse(
                             responseCode = "201",
@@ -48,30 +82,131 @@ public class TransactionController {
                             responseCode = "409",
                             description = "Transaction already exists",
                             content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "422",
+                            description = "Idempotency-Key already used for a different transaction",
+                            content = @Content
                     )
             }
     )
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public ResponseEntity<Transaction> createTransaction(@Valid @RequestBody Transaction transaction) {
+    public ResponseEntity<Transaction> createTransaction(
+            @Valid @RequestBody Transaction transaction,
+            @Parameter(description = "Client-chosen key, at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters; "
+                    + "remembered for transactions.idempotency.spec")
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            return ResponseEntity.badRequest().build();
+        }
         try {
-            Transaction createdTransaction = transactionService.createTransaction(transaction);
-            return new ResponseEntity<>(createdTransaction, HttpStatus.CREATED);
+            Transaction createdTransaction = transactionService.createTransaction(transaction, idempotencyKey);
+            return ResponseEntity.status(HttpStatus.CREATED).eTag(etag(createdTransaction)).body(createdTransaction);
         } catch (TransactionAlreadyExistsException e) {
-            log.error(e.getMessage());
+            CLIENT_ERROR_LOG.info("Create rejected: {}", e.getMessage());
             return new ResponseEntity<>(HttpStatus.CONFLICT);
         }
     }
 
+    @Operation(
+            summary = "Bulk import transactions",
+            description = "Streams an NDJSON (one transaction object per line) or CSV (header row first) body, "
+                    + "validating and inserting rows in batches. Invalid or duplicate rows are reported per line",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Import finished; see accepted, rejected and errors",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkImportResult.class))
+                    )
+            }
+    )
+    @PostMapping(value = "/bulk", consumes = {NDJSON, CSV})
+    public ResponseEntity<BulkImportResult> importTransactions(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        TransactionImportReader rows = contentType.startsWith(CSV)
+                ? TransactionImportReader.csv(body)
+                : TransactionImportReader.ndjson(body, objectMapper);
+        return ResponseEntity.ok(transactionService.importTransactions(rows));
+    }
+
+    @Operation(
+            summary = "Export transactions",
+            description = "Streams all matching transactions, oldest first, as NDJSON or CSV without paging. "
+                    + "Optional filters: accountId and a [from, to) timestamp window",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Export streamed",
+                            content = {@Content(mediaType = NDJSON), @Content(mediaType = CSV)}
+                    )
+            }
+    )
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @Parameter(description = "ndjson or csv") @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        TransactionExportWriter.Format exportFormat;
+        try {
+            exportFormat = TransactionExportWriter.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            try (TransactionExportWriter writer = new TransactionExportWriter(exportFormat, out, objectMapper)) {
+                transactionService.exportTransactions(accountId, from, to, writer::write);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("transactions." + exportFormat.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
+    }
+
+    @Operation(
+            summary = "Stream transaction changes",
+            description = "Server-sent events for every transaction created, updated or deleted from now on, for one "
+                    + "account or, without accountId, for all of them. A client that falls too far behind is "
+                    + "disconnected and should reconnect and re-read what it missed",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Event stream opened",
+                            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+                    )
+            }
+    )
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) String accountId) {
+        // no timeout of its own: spring.mvc.async.request-timeout ends the stream and EventSource reconnects
+        SseEmitter emitter = new SseEmitter();
+        TransactionChangeFeed.Subscription subscription = transactionService.subscribe(accountId, new SseChangeSink(emitter));
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(e -> subscription.cancel());
+        return emitter;
+    }
+
     @Operation(
             summary = "Get transaction by ID",
-            description = "Retrieves a transaction by its unique ID",
+            description = "Retrieves a transaction by its unique ID. The ETag header carries its version; a request "
+                    + "whose If-None-Match still matches it gets 304 without a body",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
                             description = "Transaction found",
                             content = @Content(mediaType = "application/json", schema = @Schema(implementation = Transaction.class))
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "Transaction unchanged since the ETag in If-None-Match",
+                            content = @Content
+                    ),
                     @ApiResponse(
                             responseCode = "404",
                             description = "Transaction not found",
@@ -81,18 +216,45 @@ public class TransactionController {
     )
     @GetMapping("/{id}")
     public ResponseEntity<Transaction> getTransactionById(@PathVariable String id) {
-        try {
-            Transaction transaction = transactionService.getTransactionById(id);
-            return ResponseEntity.ok(transaction);
-        } catch (TransactionNotFoundException e) {
-            log.error(e.getMessage());
+        Optional<Transaction> transaction = transactionService.getTransactionById(id);
+        if (transaction.isEmpty()) {
+            CLIENT_ERROR_LOG.info("Lookup failed: transaction with ID {} not found", id);
             return ResponseEntity.notFound().build();
         }
+        // for GET, Spring answers 304 itself when If-None-Match matches this ETag
+        return ResponseEntity.ok().eTag(etag(transaction.get())).body(transaction.get());
+    }
+
+    @Operation(
+            summary = "Get transactions by IDs",
+            description = "Looks up to " + MAX_LOOKUP_IDS + " transaction IDs in one request. Returns the stored "
+                    + "transactions and the IDs that are not stored, both in request order",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Lookup done; unknown IDs are listed in missing",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = TransactionLookupResult.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "More than " + MAX_LOOKUP_IDS + " IDs, or a null ID",
+                            content = @Content
+                    )
+            }
+    )
+    @PostMapping("/lookup")
+    public ResponseEntity<TransactionLookupResult> getTransactionsByIds(@RequestBody List<String> ids) {
+        if (ids.size() > MAX_LOOKUP_IDS || ids.contains(null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(transactionService.getTransactionsByIds(ids));
     }
 
     @Operation(
             summary = "Get all transactions",
-            description = "Retrieves a list of all transactions with pagination",
+            description = "Retrieves a list of all transactions, oldest first, with page or cursor pagination. "
+                    + "When a full page is returned the X-Next-Cursor header carries the cursor for the next one; "
+                    + "X-Total-Count always carries the number of stored transactions",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -104,14 +266,19 @@ public class TransactionController {
     @GetMapping
     public ResponseEntity<List<Transaction>> getAllTransactions(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        List<Transaction> transactions = transactionService.getAllTransactions(page, size);
-        return ResponseEntity.ok(transactions);
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cursor from X-Next-Cursor; when present (even empty) page is ignored")
+            @RequestParam(required = false) String after) {
+        List<Transaction> transactions = after == null
+                ? transactionService.getAllTransactions(page, size)
+                : transactionService.getAllTransactionsAfter(TransactionKey.fromCursor(after), size);
+        return withNextCursor(transactions, size, transactionService.getTransactionCount());
     }
 
     @Operation(
             summary = "Get transactions by account ID",
-            description = "Retrieves a list of transactions for a specific account with pagination",
+            description = "Retrieves a list of transactions for a specific account, oldest first, with page or cursor "
+                    + "pagination. X-Total-Count carries the number of transactions in the account",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -124,14 +291,109 @@ public class TransactionController {
     public ResponseEntity<List<Transaction>> getTransactionsByAccountId(
             @PathVariable String accountId,
             @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cursor from X-Next-Cursor; when present (even empty) page is ignored")
+            @RequestParam(required = false) String after) {
+        List<Transaction> transactions = after == null
+                ? transactionService.getTransactionsByAccountId(accountId, page, size)
+                : transactionService.getTransactionsByAccountIdAfter(accountId, TransactionKey.fromCursor(after), size);
+        return withNextCursor(transactions, size, transactionService.getAccountTransactionCount(accountId));
+    }
+
+    @Operation(
+            summary = "Get transactions in a time range",
+            description = "Retrieves transactions with from <= timestamp < to (either bound optional, ISO date-time), "
+                    + "oldest first, with page or cursor pagination",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Transactions retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Transaction.class))
+                    )
+            }
+    )
+    @GetMapping("/range")
+    public ResponseEntity<List<Transaction>> getTransactionsInRange(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cursor from X-Next-Cursor; when present (even empty) page is ignored")
+            @RequestParam(required = false) String after) {
+        return rangePage(null, from, to, page, size, after);
+    }
+
+    @Operation(
+            summary = "Get an account's transactions in a time range",
+            description = "Retrieves an account's transactions with from <= timestamp < to (either bound optional), "
+                    + "oldest first, with page or cursor pagination",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Transactions retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Transaction.class))
+                    )
+            }
+    )
+    @GetMapping("/account/{accountId}/range")
+    public ResponseEntity<List<Transaction>> getAccountTransactionsInRange(
+            @PathVariable String accountId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Cursor from X-Next-Cursor; when present (even empty) page is ignored")
+            @RequestParam(required = false) String after) {
+        return rangePage(accountId, from, to, page, size, after);
+    }
+
+    @Operation(
+            summary = "Get account balance",
+            description = "Returns the running balance, deposit/withdrawal/transfer totals, transaction count and "
+                    + "last activity of an account. Deposits add to the balance; withdrawals and transfers subtract",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Balance found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = AccountBalance.class))
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Account has no transactions",
+                            content = @Content
+                    )
+            }
+    )
+    @GetMapping("/account/{accountId}/balance")
+    public ResponseEntity<AccountBalance> getAccountBalance(@PathVariable String accountId) {
+        return ResponseEntity.of(transactionService.getAccountBalance(accountId));
+    }
+
+    @Operation(
+            summary = "Search transactions",
+            description = "Finds transactions whose description, type or account ID contain words starting with "
+                    + "every word of the query, oldest first, with pagination",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Matching transactions retrieved successfully",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = Transaction.class))
+                    )
+            }
+    )
+    @GetMapping("/search")
+    public ResponseEntity<List<Transaction>> searchTransactions(
+            @RequestParam String query,
+            @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        List<Transaction> transactions = transactionService.getTransactionsByAccountId(accountId, page, size);
+        List<Transaction> transactions = transactionService.searchTransactions(query, page, size);
         return ResponseEntity.ok(transactions);
     }
 
     @Operation(
             summary = "Update a transaction",
-            description = "Updates an existing transaction",
+            description = "Updates an existing transaction. With If-Match (the ETag from a previous read) the update "
+                    + "only applies if nobody changed the transaction since",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -142,24 +404,32 @@ public class TransactionController {
                             responseCode = "404",
                             description = "Transaction not found",
                             content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "412",
+                            description = "Transaction changed since the ETag in If-Match",
+                            content = @Content
                     )
             }
     )
     @PutMapping("/{id}")
-    public ResponseEntity<Transaction> updateTransaction(@PathVariable String id, @Valid @RequestBody Transaction transaction) {
+    public ResponseEntity<Transaction> updateTransaction(
+            @PathVariable String id,
+            @Valid @RequestBody Transaction transaction,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         transaction.setId(id);
-        try {
-            Transaction updatedTransaction = transactionService.updateTransaction(transaction);
-            return ResponseEntity.ok(updatedTransaction);
-        } catch (TransactionNotFoundException e) {
-            log.error(e.getMessage());
+        // a stale If-Match is a TransactionVersionConflictException, answered 412 by TransactionExceptionHandler
+        Optional<Transaction> updatedTransaction = transactionService.updateTransaction(transaction, expectedVersion(ifMatch));
+        if (updatedTransaction.isEmpty()) {
+            CLIENT_ERROR_LOG.info("Update failed: transaction with ID {} not found", id);
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.ok().eTag(etag(updatedTransaction.get())).body(updatedTransaction.get());
     }
 
     @Operation(
             summary = "Delete a transaction",
-            description = "Deletes a transaction by its ID",
+            description = "Deletes a transaction by its ID; with If-Match only if it is still at that version",
             responses = {
                     @ApiResponse(
                             responseCode = "204",
@@ -170,17 +440,23 @@ public class TransactionController {
                             responseCode = "404",
                             description = "Transaction not found",
                             content = @Content
+                    ),
+                    @ApiResponse(
+                            responseCode = "412",
+                            description = "Transaction changed since the ETag in If-Match",
+                            content = @Content
                     )
             }
     )
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteTransaction(@PathVariable String id) {
-        try {
-            boolean deleted = transactionService.deleteTransaction(id);
-            return ResponseEntity.noContent().build();
-        } catch (TransactionNotFoundException e) {
+    public ResponseEntity<Void> deleteTransaction(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (!transactionService.deleteTransaction(id, expectedVersion(ifMatch))) {
+            CLIENT_ERROR_LOG.info("Delete failed: transaction with ID {} not found", id);
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.noContent().build();
     }
 
     @Operation(
@@ -204,4 +480,54 @@ public class TransactionController {
     public String index() {
         return "transactions";
     }
+
+    private ResponseEntity<List<Transaction>> rangePage(String accountId, LocalDateTime from, LocalDateTime to,
+                                                        int page, int size, String after) {
+        List<Transaction> transactions = after == null
+                ? transactionService.getTransactionsInRange(accountId, from, to, page, size)
+                : transactionService.getTransactionsInRangeAfter(accountId, from, to, TransactionKey.fromCursor(after), size);
+        return withNextCursor(transactions, size);
+    }
+
+    private static String etag(Transaction transaction) {
+        return "\"" + transaction.getVersion() + "\"";
+    }
+
+    /**
+     * The version an If-Match header asks for: null when absent or {@code *} (any existing row). Weak or foreign
+     * ETags can never match a version, so they fail the precondition.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.parseLong(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                // not one of ours
+            }
+        }
+        throw new TransactionVersionConflictException("If-Match " + ifMatch + " does not name a version");
+    }
+
+    private ResponseEntity<List<Transaction>> withNextCursor(List<Transaction> transactions, int size) {
+        return withNextCursor(transactions, size, null);
+    }
+
+    /**
+     * A page with its {@code X-Next-Cursor} and, when the collection's size is known without a scan, its
+     * {@code X-Total-Count}.
+     */
+    private ResponseEntity<List<Transaction>> withNextCursor(List<Transaction> transactions, int size, Long total) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (total != null) {
+            response.header(TOTAL_COUNT_HEADER, Long.toString(total));
+        }
+        if (!transactions.isEmpty() && transactions.size() >= size) {
+            response.header(NEXT_CURSOR_HEADER, TransactionKey.of(transactions.get(transactions.size() - 1)).toCursor());
+        }
+        return response.body(transactions);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.banktransactions.exception;
+
+public class IdempotencyKeyReusedException extends StacklessException {
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.banktransactions.exception;
+
+public class InvalidCursorException extends StacklessException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.banktransactions.exception;
+
+/**
+ * A cluster node that owns (or has to be asked about) the requested data could not be reached. Unlike the
+ * {@link StacklessException}s this is not the client's doing, so it keeps its cause.
+ */
+public class NodeUnavailableException extends RuntimeException {
+    public NodeUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.banktransactions.exception;
+
+/**
+ * Base of the exceptions that report an expected client outcome (unknown id, stale version, duplicate...), which
+ * {@link TransactionExceptionHandler} turns into a 4xx. They are created without a stack trace: nothing reads it,
+ * and walking the stack is most of what a throw costs.
+ */
+public abstract class StacklessException extends RuntimeException {
+
+    protected StacklessException(String message) {
+        super(message, null, false, false);
+    }
+}
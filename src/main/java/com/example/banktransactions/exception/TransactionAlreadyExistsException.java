@@ -1,6 +1,6 @@
 package com.example.banktransactions.exception;
 
-public class TransactionAlreadyExistsException extends RuntimeException {
+public class TransactionAlreadyExistsException extends StacklessException {
     public TransactionAlreadyExistsException(String message) {
         super(message);
     }
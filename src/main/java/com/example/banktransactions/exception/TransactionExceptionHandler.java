@@ -25,4 +25,32 @@ public class TransactionExceptionHandler extends ResponseEntityExceptionHandler
         return handleExceptionInternal(ex, ex.getMessage(),
                 new HttpHeaders(), HttpStatus.NOT_FOUND, request);
     }
+
+    @ExceptionHandler(value = {TransactionVersionConflictException.class})
+    protected ResponseEntity<Object> handleTransactionVersionConflict(
+            TransactionVersionConflictException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(),
+                new HttpHeaders(), HttpStatus.PRECONDITION_FAILED, request);
+    }
+
+    @ExceptionHandler(value = {IdempotencyKeyReusedException.class})
+    protected ResponseEntity<Object> handleIdempotencyKeyReused(
+            IdempotencyKeyReusedException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(),
+                new HttpHeaders(), HttpStatus.UNPROCESSABLE_ENTITY, request);
+    }
+
+    @ExceptionHandler(value = {InvalidCursorException.class})
+    protected ResponseEntity<Object> handleInvalidCursor(
+            InvalidCursorException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(),
+                new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(value = {NodeUnavailableException.class})
+    protected ResponseEntity<Object> handleNodeUnavailable(
+            NodeUnavailableException ex, WebRequest request) {
+        return handleExceptionInternal(ex, ex.getMessage(),
+                new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,6 @@
 package com.example.banktransactions.exception;
 
-public class TransactionNotFoundException extends RuntimeException {
+public class TransactionNotFoundException extends StacklessException {
     public TransactionNotFoundException(String message) {
         super(message);
     }
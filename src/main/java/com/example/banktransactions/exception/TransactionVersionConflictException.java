@@ -0,0 +1,7 @@
+package com.example.banktransactions.exception;
+
+public class TransactionVersionConflictException extends StacklessException {
+    public TransactionVersionConflictException(String message) {
+        super(message);
+    }
+}
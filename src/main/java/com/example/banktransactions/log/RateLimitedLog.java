@@ -0,0 +1,52 @@
+package com.example.banktransactions.log;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs at most {@code permitsPerSecond} messages a second and counts the rest, for expected outcomes such as
+ * lookups of unknown ids: a client or scanner hammering missing ids would otherwise fill the log queue with one
+ * line per request. The first message after a suppressed stretch says how many were dropped. The limit is
+ * approximate under contention; nothing blocks and a suppressed message is never formatted.
+ */
+public class RateLimitedLog {
+
+    private final Logger log;
+    private final int permitsPerSecond;
+    private final AtomicLong window = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger used = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    public RateLimitedLog(Logger log, int permitsPerSecond) {
+        this.log = log;
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    public void info(String format, Object arg) {
+        if (!log.isInfoEnabled()) {
+            return;
+        }
+        if (!acquire()) {
+            suppressed.increment();
+            return;
+        }
+        long dropped = suppressed.sumThenReset();
+        if (dropped == 0) {
+            log.info(format, arg);
+        } else {
+            log.info(format + " ({} similar messages suppressed)", arg, dropped);
+        }
+    }
+
+    private boolean acquire() {
+        long second = System.nanoTime() / 1_000_000_000L;
+        long current = window.get();
+        if (second != current && window.compareAndSet(current, second)) {
+            used.set(0);
+        }
+        return used.incrementAndGet() <= permitsPerSecond;
+    }
+}
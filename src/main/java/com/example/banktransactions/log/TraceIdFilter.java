@@ -6,7 +6,6 @@ import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.UUID;
 
 @Component
 public class TraceIdFilter implements Filter {
@@ -25,10 +24,10 @@ public class TraceIdFilter implements Filter {
             String spanId = httpRequest.getHeader("X-Span-Id");
 
             if (traceId == null) {
-                traceId = UUID.randomUUID().toString().replace("-", "");
+                traceId = TraceIds.traceId();
             }
             if (spanId == null) {
-                spanId = UUID.randomUUID().toString().replace("-", "");
+                spanId = TraceIds.spanId();
             }
 
             // 将 traceId 和 spanId 设置到 MDC 中
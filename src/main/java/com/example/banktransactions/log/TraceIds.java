@@ -0,0 +1,39 @@
+package com.example.banktransactions.log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Trace and span ids in the W3C trace-context sizes: 32 and 16 lowercase hex characters. They only have to be
+ * unique enough to correlate log lines, so they come from {@link ThreadLocalRandom}, which needs no lock and no
+ * entropy, instead of {@code UUID.randomUUID()}'s shared SecureRandom, and are hex-encoded straight into the
+ * string's bytes.
+ */
+public final class TraceIds {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private TraceIds() {
+    }
+
+    public static String traceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        byte[] hex = new byte[32];
+        encode(random.nextLong(), hex, 0);
+        encode(random.nextLong(), hex, 16);
+        return new String(hex, StandardCharsets.US_ASCII);
+    }
+
+    public static String spanId() {
+        byte[] hex = new byte[16];
+        encode(ThreadLocalRandom.current().nextLong(), hex, 0);
+        return new String(hex, StandardCharsets.US_ASCII);
+    }
+
+    private static void encode(long value, byte[] hex, int offset) {
+        for (int i = offset + 15; i >= offset; i--) {
+            hex[i] = HEX[(int) value & 0xf];
+            value >>>= 4;
+        }
+    }
+}
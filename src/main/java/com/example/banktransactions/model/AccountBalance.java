@@ -0,0 +1,63 @@
+package com.example.banktransactions.model;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Running totals of one account. Deposits add to the balance; withdrawals and (outgoing) transfers subtract.
+ * Instances are immutable: every change produces a new one.
+ */
+@Getter
+public class AccountBalance {
+
+    private final String accountId;
+    private final BigDecimal balance;
+    private final BigDecimal depositTotal;
+    private final BigDecimal withdrawalTotal;
+    private final BigDecimal transferTotal;
+    private final long count;
+    private final LocalDateTime lastActivity;
+
+    public AccountBalance(String accountId, BigDecimal balance, BigDecimal depositTotal, BigDecimal withdrawalTotal,
+                          BigDecimal transferTotal, long count, LocalDateTime lastActivity) {
+        this.accountId = accountId;
+        this.balance = balance;
+        this.depositTotal = depositTotal;
+        this.withdrawalTotal = withdrawalTotal;
+        this.transferTotal = transferTotal;
+        this.count = count;
+        this.lastActivity = lastActivity;
+    }
+
+    public static AccountBalance empty(String accountId) {
+        return new AccountBalance(accountId, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, 0, null);
+    }
+
+    /**
+     * Adds ({@code sign = 1}) or removes ({@code sign = -1}) one transaction's contribution.
+     */
+    public AccountBalance apply(Transaction transaction, int sign, LocalDateTime activity) {
+        BigDecimal amount = transaction.getAmount() == null ? BigDecimal.ZERO : transaction.getAmount();
+        BigDecimal signed = sign < 0 ? amount.negate() : amount;
+        BigDecimal deposits = depositTotal;
+        BigDecimal withdrawals = withdrawalTotal;
+        BigDecimal transfers = transferTotal;
+        BigDecimal newBalance = balance;
+        TransactionType type = TransactionType.parse(transaction.getType());
+        if (type == TransactionType.DEPOSIT) {
+            deposits = deposits.add(signed);
+            newBalance = newBalance.add(signed);
+        } else if (type == TransactionType.WITHDRAWAL) {
+            withdrawals = withdrawals.add(signed);
+            newBalance = newBalance.subtract(signed);
+        } else if (type == TransactionType.TRANSFER) {
+            transfers = transfers.add(signed);
+            newBalance = newBalance.subtract(signed);
+        }
+        LocalDateTime latest = lastActivity == null || (activity != null && activity.isAfter(lastActivity))
+                ? activity : lastActivity;
+        return new AccountBalance(accountId, newBalance, deposits, withdrawals, transfers, count + sign, latest);
+    }
+}
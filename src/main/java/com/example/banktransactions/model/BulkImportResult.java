@@ -0,0 +1,36 @@
+package com.example.banktransactions.model;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import: row counts plus the first {@value #MAX_REPORTED_ERRORS} rejected rows.
+ */
+@Getter
+public class BulkImportResult {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long accepted;
+    private long rejected;
+    private boolean errorsTruncated;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public record RowError(long line, String id, String message) {
+    }
+
+    public void accept(int rows) {
+        accepted += rows;
+    }
+
+    public void reject(long line, String id, String message) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, id, message));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+}
@@ -1,14 +1,18 @@
 package com.example.banktransactions.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.validation.constraints.*;
+import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.Setter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-
-@Setter
+/**
+ * A transaction as received, stored and served. Rows kept by a repository or cache are {@link #freeze() frozen}:
+ * their setters throw, so a row handed out by a lookup cannot be changed behind the store's back. Change a
+ * {@link #Transaction(Transaction) copy} instead.
+ */
 @Getter
 public class Transaction {
 
@@ -29,6 +33,13 @@ public class Transaction {
 
     private LocalDateTime timestamp;
 
+    // bumped by every update; served as the ETag. Clients send it back in If-Match, never in the body
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private long version;
+
+    @Getter(AccessLevel.NONE)
+    private boolean frozen;
+
     // Constructors
     public Transaction() {
         this.timestamp = LocalDateTime.now();
@@ -42,6 +53,65 @@ public class Transaction {
         this.description = description;
     }
 
+    public Transaction(Transaction other) {
+        this.id = other.id;
+        this.accountId = other.accountId;
+        this.amount = other.amount;
+        this.type = other.type;
+        this.description = other.description;
+        this.timestamp = other.timestamp;
+        this.version = other.version;
+    }
+
+    /**
+     * Makes this instance read-only; done by the repositories to every row they keep.
+     */
+    public Transaction freeze() {
+        frozen = true;
+        return this;
+    }
+
+    public void setId(String id) {
+        checkMutable();
+        this.id = id;
+    }
+
+    public void setAccountId(String accountId) {
+        checkMutable();
+        this.accountId = accountId;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        checkMutable();
+        this.amount = amount;
+    }
+
+    public void setType(String type) {
+        checkMutable();
+        this.type = type;
+    }
+
+    public void setDescription(String description) {
+        checkMutable();
+        this.description = description;
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        checkMutable();
+        this.timestamp = timestamp;
+    }
+
+    public void setVersion(long version) {
+        checkMutable();
+        this.version = version;
+    }
+
+    private void checkMutable() {
+        if (frozen) {
+            throw new IllegalStateException("Transaction " + id + " is stored and cannot be changed; change a copy");
+        }
+    }
+
     @Override
     public String toString() {
         return "Transaction{" +
@@ -51,6 +121,7 @@ public class Transaction {
                 ", type='" + type + '\'' +
                 ", description='" + description + '\'' +
                 ", timestamp=" + timestamp +
+                ", version=" + version +
                 '}';
     }
 }
\ No newline at end of file
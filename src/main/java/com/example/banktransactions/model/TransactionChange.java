@@ -0,0 +1,28 @@
+package com.example.banktransactions.model;
+
+import lombok.Getter;
+
+/**
+ * One write as pushed to change feed subscribers: the transaction after a create or update, or as it was before a
+ * delete. {@code sequence} increases with every change published by this instance; it is taken after the write,
+ * so two concurrent writes to one transaction may be numbered out of order. The transaction's {@code version}
+ * orders the changes to one row: a delete carries the deleted row's version plus one, so it orders after the
+ * write that produced that row.
+ */
+@Getter
+public class TransactionChange {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Transaction transaction;
+
+    public TransactionChange(long sequence, Type type, Transaction transaction) {
+        this.sequence = sequence;
+        this.type = type;
+        this.transaction = transaction;
+    }
+}
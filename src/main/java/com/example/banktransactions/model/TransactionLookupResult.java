@@ -0,0 +1,21 @@
+package com.example.banktransactions.model;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of a multi-get: the stored transactions, and the requested ids that are not stored, both in request
+ * order.
+ */
+@Getter
+public class TransactionLookupResult {
+
+    private final List<Transaction> found;
+    private final List<String> missing;
+
+    public TransactionLookupResult(List<Transaction> found, List<String> missing) {
+        this.found = found;
+        this.missing = missing;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.banktransactions.model;
+
+import java.util.Locale;
+
+public enum TransactionType {
+    DEPOSIT,
+    WITHDRAWAL,
+    TRANSFER;
+
+    /**
+     * Case-insensitive lookup; returns null for values outside the known types.
+     */
+    public static TransactionType parse(String type) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return valueOf(type.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
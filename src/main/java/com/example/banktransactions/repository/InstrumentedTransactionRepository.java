@@ -0,0 +1,294 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Meters every operation of the engine it wraps, tagged by operation: {@code transactions.repository.calls}
+ * counts every call, {@code transactions.repository.operations} times a random one in {@code sampleEvery}, and
+ * {@code transactions.repository.scanned} records how many rows the sampled page queries walked (offset pages walk
+ * the skipped rows too). Reading the clock is what costs: it stalls until the lookup's cache misses are served, and
+ * Micrometer reads the clock again on every timer and summary update, which together can outweigh an in-memory
+ * {@code findById}. Counting is a striped add without a clock read. All meters are registered up front, so no call
+ * looks anything up in the registry; calls that throw are counted but not timed. Percentiles and histogram buckets
+ * are switched on per meter name through {@code management.metrics.distribution}.
+ */
+public class InstrumentedTransactionRepository implements TransactionRepository {
+
+    static final String CALLS = "transactions.repository.calls";
+    static final String OPERATIONS = "transactions.repository.operations";
+    static final String SCANNED = "transactions.repository.scanned";
+    static final String SIZE = "transactions.repository.size";
+
+    private final TransactionRepository delegate;
+    private final int sampleMask;
+
+    private final Operation create;
+    private final Operation createIfAbsent;
+    private final Operation createAll;
+    private final Operation findById;
+    private final Operation findAllById;
+    private final Operation findAll;
+    private final Operation findAllAfter;
+    private final Operation findByAccountId;
+    private final Operation findByAccountIdAfter;
+    private final Operation findByTimeRange;
+    private final Operation search;
+    private final Operation replace;
+    private final Operation replaceIfVersion;
+    private final Operation remove;
+    private final Operation removeIfVersion;
+    private final Operation forEach;
+
+    /**
+     * @param sampleEvery time one call in this many, a power of two; 1 times every call
+     */
+    public InstrumentedTransactionRepository(TransactionRepository delegate, MeterRegistry registry, int sampleEvery) {
+        if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("sampleEvery must be a power of two: " + sampleEvery);
+        }
+        this.delegate = delegate;
+        this.sampleMask = sampleEvery - 1;
+        create = new Operation(registry, "create", false);
+        createIfAbsent = new Operation(registry, "createIfAbsent", false);
+        createAll = new Operation(registry, "createAll", false);
+        findById = new Operation(registry, "findById", false);
+        findAllById = new Operation(registry, "findAllById", false);
+        findAll = new Operation(registry, "findAll", true);
+        findAllAfter = new Operation(registry, "findAllAfter", true);
+        findByAccountId = new Operation(registry, "findByAccountId", true);
+        findByAccountIdAfter = new Operation(registry, "findByAccountIdAfter", true);
+        findByTimeRange = new Operation(registry, "findByTimeRange", true);
+        search = new Operation(registry, "search", true);
+        replace = new Operation(registry, "replace", false);
+        replaceIfVersion = new Operation(registry, "replaceIfVersion", false);
+        remove = new Operation(registry, "remove", false);
+        removeIfVersion = new Operation(registry, "removeIfVersion", false);
+        forEach = new Operation(registry, "forEach", false);
+        // read on scrape only; for the jdbc engine that is one COUNT query per scrape
+        Gauge.builder(SIZE, delegate, TransactionRepository::count)
+                .description("Stored transactions")
+                .register(registry);
+    }
+
+    public InstrumentedTransactionRepository(TransactionRepository delegate, MeterRegistry registry) {
+        this(delegate, registry, 1);
+    }
+
+    public TransactionRepository delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Transaction create(Transaction transaction) {
+        if (!create.sample()) {
+            return delegate.create(transaction);
+        }
+        long start = System.nanoTime();
+        return create.stop(start, delegate.create(transaction));
+    }
+
+    @Override
+    public boolean createIfAbsent(Transaction transaction) {
+        if (!createIfAbsent.sample()) {
+            return delegate.createIfAbsent(transaction);
+        }
+        long start = System.nanoTime();
+        return createIfAbsent.stop(start, delegate.createIfAbsent(transaction));
+    }
+
+    @Override
+    public List<Transaction> createAll(List<Transaction> batch) {
+        if (!createAll.sample()) {
+            return delegate.createAll(batch);
+        }
+        long start = System.nanoTime();
+        return createAll.stop(start, delegate.createAll(batch));
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        if (!findById.sample()) {
+            return delegate.findById(id);
+        }
+        long start = System.nanoTime();
+        return findById.stop(start, delegate.findById(id));
+    }
+
+    @Override
+    public Map<String, Transaction> findAllById(Collection<String> ids) {
+        if (!findAllById.sample()) {
+            return delegate.findAllById(ids);
+        }
+        long start = System.nanoTime();
+        return findAllById.stop(start, delegate.findAllById(ids));
+    }
+
+    @Override
+    public List<Transaction> findAll(int page, int size) {
+        if (!findAll.sample()) {
+            return delegate.findAll(page, size);
+        }
+        long start = System.nanoTime();
+        return findAll.stopPage(start, (long) page * size, delegate.findAll(page, size));
+    }
+
+    @Override
+    public List<Transaction> findAllAfter(TransactionKey after, int size) {
+        if (!findAllAfter.sample()) {
+            return delegate.findAllAfter(after, size);
+        }
+        long start = System.nanoTime();
+        return findAllAfter.stopPage(start, 0, delegate.findAllAfter(after, size));
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId, int page, int size) {
+        if (!findByAccountId.sample()) {
+            return delegate.findByAccountId(accountId, page, size);
+        }
+        long start = System.nanoTime();
+        return findByAccountId.stopPage(start, (long) page * size, delegate.findByAccountId(accountId, page, size));
+    }
+
+    @Override
+    public List<Transaction> findByAccountIdAfter(String accountId, TransactionKey after, int size) {
+        if (!findByAccountIdAfter.sample()) {
+            return delegate.findByAccountIdAfter(accountId, after, size);
+        }
+        long start = System.nanoTime();
+        return findByAccountIdAfter.stopPage(start, 0, delegate.findByAccountIdAfter(accountId, after, size));
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to,
+                                             TransactionKey after, int size) {
+        if (!findByTimeRange.sample()) {
+            return delegate.findByTimeRange(accountId, from, to, after, size);
+        }
+        long start = System.nanoTime();
+        return findByTimeRange.stopPage(start, 0, delegate.findByTimeRange(accountId, from, to, after, size));
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to, int page, int size) {
+        if (!findByTimeRange.sample()) {
+            return delegate.findByTimeRange(accountId, from, to, page, size);
+        }
+        long start = System.nanoTime();
+        List<Transaction> result = delegate.findByTimeRange(accountId, from, to, page, size);
+        return findByTimeRange.stopPage(start, (long) page * size, result);
+    }
+
+    @Override
+    public List<Transaction> search(String query, int page, int size) {
+        if (!search.sample()) {
+            return delegate.search(query, page, size);
+        }
+        long start = System.nanoTime();
+        return search.stopPage(start, (long) page * size, delegate.search(query, page, size));
+    }
+
+    @Override
+    public Transaction replace(Transaction transaction) {
+        if (!replace.sample()) {
+            return delegate.replace(transaction);
+        }
+        long start = System.nanoTime();
+        return replace.stop(start, delegate.replace(transaction));
+    }
+
+    @Override
+    public Transaction replaceIfVersion(Transaction transaction, long expectedVersion) {
+        if (!replaceIfVersion.sample()) {
+            return delegate.replaceIfVersion(transaction, expectedVersion);
+        }
+        long start = System.nanoTime();
+        return replaceIfVersion.stop(start, delegate.replaceIfVersion(transaction, expectedVersion));
+    }
+
+    @Override
+    public Transaction remove(String id) {
+        if (!remove.sample()) {
+            return delegate.remove(id);
+        }
+        long start = System.nanoTime();
+        return remove.stop(start, delegate.remove(id));
+    }
+
+    @Override
+    public Transaction removeIfVersion(String id, long expectedVersion) {
+        if (!removeIfVersion.sample()) {
+            return delegate.removeIfVersion(id, expectedVersion);
+        }
+        long start = System.nanoTime();
+        return removeIfVersion.stop(start, delegate.removeIfVersion(id, expectedVersion));
+    }
+
+    @Override
+    public void forEach(Consumer<Transaction> action) {
+        // a full scan: always worth timing
+        forEach.calls.increment();
+        long start = System.nanoTime();
+        delegate.forEach(action);
+        forEach.stop(start, null);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    private final class Operation {
+
+        final Counter calls;
+        final Timer timer;
+        final DistributionSummary scanned;
+
+        Operation(MeterRegistry registry, String operation, boolean page) {
+            calls = Counter.builder(CALLS)
+                    .description("Repository calls")
+                    .tag("operation", operation)
+                    .register(registry);
+            timer = Timer.builder(OPERATIONS)
+                    .description("Repository operation latency, sampled")
+                    .tag("operation", operation)
+                    .register(registry);
+            scanned = !page ? null : DistributionSummary.builder(SCANNED)
+                    .description("Rows walked by a page query, skipped rows included, sampled")
+                    .baseUnit("rows")
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+
+        boolean sample() {
+            calls.increment();
+            return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+        }
+
+        <T> T stop(long start, T result) {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        }
+
+        List<Transaction> stopPage(long start, long skipped, List<Transaction> result) {
+            stop(start, result);
+            // for a page past the end this is an upper bound: fewer than skipped rows existed
+            scanned.record(skipped + result.size());
+            return result;
+        }
+    }
+}
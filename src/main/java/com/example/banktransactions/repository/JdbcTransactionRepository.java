@@ -0,0 +1,403 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.IdGenerator;
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Embedded database engine ({@code transactions.repository.engine=jdbc}), written against H2: rows survive a
+ * restart without the journal. Every statement is a constant SQL string with placeholders, so the driver's
+ * statement cache can reuse the parsed plans, and batches go to the database as JDBC batches in one database
+ * transaction. Search tokens are kept in a side table and matched by prefix like the in-memory index.
+ */
+public class JdbcTransactionRepository implements TransactionRepository {
+
+    static final String SCHEMA = "db/transactions-h2.sql";
+
+    private static final String COLUMNS = "id, account_id, amount, amount_scale, type, description, time_micros, version";
+    private static final String SELECT = "SELECT " + COLUMNS + " FROM transactions";
+    private static final String INSERT = "INSERT INTO transactions (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String MERGE = "MERGE INTO transactions (" + COLUMNS + ") KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_FOR_UPDATE = SELECT + " WHERE id = ? FOR UPDATE";
+    private static final String INSERT_TOKEN = "INSERT INTO transaction_tokens (token, id) VALUES (?, ?)";
+    private static final String DELETE_TOKENS = "DELETE FROM transaction_tokens WHERE id = ?";
+    // ON DELETE CASCADE drops the row's tokens
+    private static final String DELETE = "DELETE FROM transactions WHERE id = ?";
+    private static final String ORDER = " ORDER BY time_micros, id LIMIT ? OFFSET ?";
+    private static final String COUNT_TOKEN =
+            "SELECT COUNT(*) FROM (SELECT 1 FROM transaction_tokens WHERE token BETWEEN ? AND ? LIMIT ?)";
+    // a token with fewer matching rows than this drives the search query
+    private static final int DRIVER_LIMIT = 1000;
+
+    // versions are never negative, so this expected version matches any stored row
+    private static final long ANY_VERSION = -1;
+
+    private static final RowMapper<Transaction> ROW_MAPPER = (rs, rowNum) -> map(rs);
+    private static final int IN_LIST_CHUNK = 500;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final TransactionTemplate transactionTemplate;
+    private final IdGenerator idGenerator;
+
+    public JdbcTransactionRepository(DataSource dataSource, IdGenerator idGenerator) {
+        this.dataSource = dataSource;
+        this.jdbc = new JdbcTemplate(dataSource);
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbc);
+        this.transactionTemplate = new TransactionTemplate(new JdbcTransactionManager(dataSource));
+        this.idGenerator = idGenerator;
+    }
+
+    /**
+     * Creates the schema and shows the id generator the highest stored id shaped like a snowflake id, so ids
+     * generated after a restart stay above the stored ones.
+     */
+    @PostConstruct
+    public void initialize() {
+        new ResourceDatabasePopulator(new ClassPathResource(SCHEMA)).execute(dataSource);
+        String highest = jdbc.queryForObject(
+                "SELECT MAX(id) FROM transactions WHERE REGEXP_LIKE(id, '^[0-9A-HJKMNP-TV-Z]{13}$')", String.class);
+        if (highest != null) {
+            idGenerator.observe(highest);
+        }
+    }
+
+    @Override
+    public Transaction create(Transaction transaction) {
+        if (StringUtils.isEmpty(transaction.getId())) {
+            createGenerated(transaction);
+            return transaction;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbc.update(MERGE, ps -> bind(ps, transaction));
+            jdbc.update(DELETE_TOKENS, transaction.getId());
+            insertTokens(List.of(transaction));
+        });
+        return transaction;
+    }
+
+    @Override
+    public boolean createIfAbsent(Transaction transaction) {
+        if (StringUtils.isEmpty(transaction.getId())) {
+            createGenerated(transaction);
+            return true;
+        }
+        return insertIfAbsent(transaction);
+    }
+
+    /**
+     * Inserts the transaction under a new id; a generated id a client already stored is skipped, not a conflict.
+     */
+    private void createGenerated(Transaction transaction) {
+        do {
+            transaction.setId(idGenerator.nextId());
+        } while (!insertIfAbsent(transaction));
+    }
+
+    private boolean insertIfAbsent(Transaction transaction) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertAll(List.of(transaction)));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Inserts a batch with one existence query, one JDBC batch for the rows and one for their tokens, all in a
+     * single database transaction. Should a concurrent writer take one of the ids in between, the batch is rolled
+     * back and retried row by row. Rows whose generated id turns out to be taken get another one.
+     */
+    @Override
+    public List<Transaction> createAll(List<Transaction> batch) {
+        Set<String> ids = new HashSet<>();
+        Set<Transaction> conflicting = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Transaction> generated = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Transaction transaction : batch) {
+            if (StringUtils.isEmpty(transaction.getId())) {
+                transaction.setId(idGenerator.nextId());
+                generated.add(transaction);
+            }
+            if (!ids.add(transaction.getId())) {
+                conflicting.add(transaction);
+            }
+        }
+        if (!ids.isEmpty()) {
+            Set<String> existing = new HashSet<>(namedJdbc.queryForList(
+                    "SELECT id FROM transactions WHERE id IN (:ids)", new MapSqlParameterSource("ids", ids),
+                    String.class));
+            batch.stream().filter(transaction -> existing.contains(transaction.getId())).forEach(conflicting::add);
+        }
+        List<Transaction> regenerate = batch.stream()
+                .filter(transaction -> generated.contains(transaction) && conflicting.remove(transaction)).toList();
+        List<Transaction> fresh = batch.stream()
+                .filter(transaction -> !conflicting.contains(transaction) && !regenerate.contains(transaction)).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertAll(fresh));
+        } catch (DuplicateKeyException e) {
+            for (Transaction transaction : fresh) {
+                if (generated.contains(transaction)) {
+                    if (!insertIfAbsent(transaction)) {
+                        createGenerated(transaction);
+                    }
+                } else if (!insertIfAbsent(transaction)) {
+                    conflicting.add(transaction);
+                }
+            }
+        }
+        regenerate.forEach(this::createGenerated);
+        return batch.stream().filter(conflicting::contains).toList();
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        return jdbc.query(SELECT + " WHERE id = ?", ROW_MAPPER, id).stream().findFirst();
+    }
+
+    /**
+     * One {@code IN} query per {@value #IN_LIST_CHUNK} ids instead of a round trip per id.
+     */
+    @Override
+    public Map<String, Transaction> findAllById(Collection<String> ids) {
+        Map<String, Transaction> found = new HashMap<>();
+        List<String> list = new ArrayList<>(ids);
+        for (int from = 0; from < list.size(); from += IN_LIST_CHUNK) {
+            List<String> chunk = list.subList(from, Math.min(from + IN_LIST_CHUNK, list.size()));
+            namedJdbc.query(SELECT + " WHERE id IN (:ids)", new MapSqlParameterSource("ids", chunk), ROW_MAPPER)
+                    .forEach(transaction -> found.put(transaction.getId(), transaction));
+        }
+        return found;
+    }
+
+    @Override
+    public List<Transaction> findAll(int page, int size) {
+        return page(null, null, null, null, (long) page * size, size);
+    }
+
+    @Override
+    public List<Transaction> findAllAfter(TransactionKey after, int size) {
+        return page(null, null, null, after, 0, size);
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId, int page, int size) {
+        return page(accountId, null, null, null, (long) page * size, size);
+    }
+
+    @Override
+    public List<Transaction> findByAccountIdAfter(String accountId, TransactionKey after, int size) {
+        return page(accountId, null, null, after, 0, size);
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to,
+                                             TransactionKey after, int size) {
+        return page(accountId, from, to, after, 0, size);
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to, int page, int size) {
+        return page(accountId, from, to, null, (long) page * size, size);
+    }
+
+    /**
+     * Like the in-memory index, walks the rarest query token and probes the others: its matches (when there are
+     * fewer than {@value #DRIVER_LIMIT}) drive the query through an {@code IN} subquery, and every other token is
+     * an {@code EXISTS} probe by id. When all tokens are common the rows are walked in key order instead and the
+     * walk stops as soon as the page is full.
+     */
+    @Override
+    public List<Transaction> search(String query, int page, int size) {
+        Set<String> tokens = TransactionSearchIndex.tokenize(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String driver = null;
+        long fewest = DRIVER_LIMIT;
+        for (String token : tokens) {
+            Long matches = jdbc.queryForObject(COUNT_TOKEN, Long.class, token, upperBound(token), DRIVER_LIMIT);
+            if (matches == null || matches == 0) {
+                return Collections.emptyList();
+            }
+            if (matches < fewest) {
+                fewest = matches;
+                driver = token;
+            }
+        }
+        StringJoiner where = new StringJoiner(" AND ", " t WHERE ", "");
+        List<Object> args = new ArrayList<>();
+        for (String token : tokens) {
+            where.add(token.equals(driver)
+                    ? "t.id IN (SELECT id FROM transaction_tokens WHERE token BETWEEN ? AND ?)"
+                    : "EXISTS (SELECT 1 FROM transaction_tokens k WHERE k.id = t.id AND k.token BETWEEN ? AND ?)");
+            args.add(token);
+            args.add(upperBound(token));
+        }
+        args.add(size);
+        args.add((long) page * size);
+        return jdbc.query(SELECT + where + ORDER, ROW_MAPPER, args.toArray());
+    }
+
+    @Override
+    public Transaction replace(Transaction transaction) {
+        return replaceIfVersion(transaction, ANY_VERSION);
+    }
+
+    @Override
+    public Transaction replaceIfVersion(Transaction transaction, long expectedVersion) {
+        return transactionTemplate.execute(status -> {
+            Transaction previous = lockRow(transaction.getId());
+            if (previous != null && matches(previous, expectedVersion)) {
+                jdbc.update(MERGE, ps -> bind(ps, transaction));
+                jdbc.update(DELETE_TOKENS, transaction.getId());
+                insertTokens(List.of(transaction));
+            }
+            return previous;
+        });
+    }
+
+    @Override
+    public Transaction remove(String id) {
+        return removeIfVersion(id, ANY_VERSION);
+    }
+
+    @Override
+    public Transaction removeIfVersion(String id, long expectedVersion) {
+        return transactionTemplate.execute(status -> {
+            Transaction previous = lockRow(id);
+            if (previous != null && matches(previous, expectedVersion)) {
+                jdbc.update(DELETE, id);
+            }
+            return previous;
+        });
+    }
+
+    /**
+     * Streams the table through a row callback instead of materializing it as a list.
+     */
+    @Override
+    public void forEach(Consumer<Transaction> action) {
+        jdbc.query(SELECT, rs -> {
+            action.accept(map(rs));
+        });
+    }
+
+    @Override
+    public long count() {
+        Long count = jdbc.queryForObject("SELECT COUNT(*) FROM transactions", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private List<Transaction> page(String accountId, LocalDateTime from, LocalDateTime to, TransactionKey after,
+                                   long skip, int size) {
+        StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        List<Object> args = new ArrayList<>();
+        if (accountId != null) {
+            where.add("account_id = ?");
+            args.add(accountId);
+        }
+        if (from != null) {
+            where.add("time_micros >= ?");
+            args.add(TransactionKey.toMicros(from));
+        }
+        if (to != null) {
+            where.add("time_micros < ?");
+            args.add(TransactionKey.toMicros(to));
+        }
+        if (after != null) {
+            where.add("(time_micros > ? OR (time_micros = ? AND id > ?))");
+            args.add(after.timeMicros());
+            args.add(after.timeMicros());
+            args.add(after.id());
+        }
+        args.add(size);
+        args.add(skip);
+        return jdbc.query(SELECT + where + ORDER, ROW_MAPPER, args.toArray());
+    }
+
+    // prefix matches as a key range, the same bounds as the in-memory index; a LIKE with a bound pattern could
+    // not use the token index because the pattern is unknown when the statement is prepared
+    private static String upperBound(String prefix) {
+        return prefix + Character.MAX_VALUE;
+    }
+
+    private static boolean matches(Transaction stored, long expectedVersion) {
+        return expectedVersion == ANY_VERSION || stored.getVersion() == expectedVersion;
+    }
+
+    private Transaction lockRow(String id) {
+        return jdbc.query(SELECT_FOR_UPDATE, ROW_MAPPER, id).stream().findFirst().orElse(null);
+    }
+
+    private void insertAll(List<Transaction> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbc.batchUpdate(INSERT, rows, rows.size(), JdbcTransactionRepository::bind);
+        insertTokens(rows);
+    }
+
+    private void insertTokens(List<Transaction> rows) {
+        List<Object[]> tokens = new ArrayList<>();
+        for (Transaction transaction : rows) {
+            for (String token : TransactionSearchIndex.tokenize(transaction)) {
+                tokens.add(new Object[]{token, transaction.getId()});
+            }
+        }
+        if (!tokens.isEmpty()) {
+            jdbc.batchUpdate(INSERT_TOKEN, tokens);
+        }
+    }
+
+    private static void bind(PreparedStatement ps, Transaction transaction) throws SQLException {
+        ps.setString(1, transaction.getId());
+        ps.setString(2, transaction.getAccountId());
+        BigDecimal amount = transaction.getAmount();
+        ps.setBigDecimal(3, amount);
+        if (amount == null) {
+            ps.setNull(4, Types.INTEGER);
+        } else {
+            ps.setInt(4, amount.scale());
+        }
+        ps.setString(5, transaction.getType());
+        ps.setString(6, transaction.getDescription());
+        ps.setLong(7, TransactionKey.toMicros(transaction.getTimestamp()));
+        ps.setLong(8, transaction.getVersion());
+    }
+
+    private static Transaction map(ResultSet rs) throws SQLException {
+        Transaction transaction = new Transaction();
+        transaction.setId(rs.getString("id"));
+        transaction.setAccountId(rs.getString("account_id"));
+        BigDecimal amount = rs.getBigDecimal("amount");
+        // DECFLOAT normalizes 10.50 to 10.5; restoring the scale is exact
+        transaction.setAmount(amount == null ? null : amount.setScale(rs.getInt("amount_scale")));
+        transaction.setType(rs.getString("type"));
+        transaction.setDescription(rs.getString("description"));
+        long micros = rs.getLong("time_micros");
+        transaction.setTimestamp(micros == Long.MIN_VALUE ? null : TransactionKey.fromMicros(micros));
+        transaction.setVersion(rs.getLong("version"));
+        return transaction;
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.IdGenerator;
+import com.example.banktransactions.repository.store.TransactionStore;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory engine split into independent partitions by accountId ({@code transactions.repository.engine=partitioned}).
+ * Each partition is a full {@link localMemoryTransactionRepository} with its own store, time, account and search
+ * indexes and counts, so writers to different accounts share no index structure: in the single repository every
+ * create appends to the tail of the same time index and the same posting lists of common tokens.
+ * <p>
+ * An id directory maps every id to its partition; all writes to one id run inside the directory's compute for that
+ * id, which also makes moving a row to another account's partition atomic. Reads of one account go to one
+ * partition. Cross-partition listings query all partitions in parallel on the fork-join pool and merge by
+ * {@link TransactionKey}; an offset page needs the first {@code (page + 1) * size} rows of every partition, so
+ * deep pages are better fetched with a cursor.
+ */
+public class PartitionedTransactionRepository implements TransactionRepository {
+
+    // versions are never negative, so this expected version matches any stored row
+    private static final long ANY_VERSION = -1;
+    private static final Comparator<Transaction> KEY_ORDER = Comparator.comparing(TransactionKey::of);
+
+    private final localMemoryTransactionRepository[] partitions;
+    // id -> index of the partition holding it
+    private final Map<String, Integer> owners = new ConcurrentHashMap<>();
+    private final IdGenerator idGenerator;
+
+    public PartitionedTransactionRepository(IdGenerator idGenerator, int partitions, Supplier<TransactionStore> stores) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        this.idGenerator = idGenerator;
+        this.partitions = new localMemoryTransactionRepository[partitions];
+        for (int i = 0; i < partitions; i++) {
+            this.partitions[i] = new localMemoryTransactionRepository(Optional.empty(), idGenerator, stores.get());
+        }
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    @Override
+    public Transaction create(Transaction transaction) {
+        if (StringUtils.isEmpty(transaction.getId())) {
+            createGenerated(transaction);
+            return transaction;
+        }
+        int target = partitionOf(transaction.getAccountId());
+        owners.compute(transaction.getId(), (id, owner) -> {
+            partitions[target].create(transaction);
+            if (owner != null && owner != target) {
+                partitions[owner].remove(id);
+            }
+            return target;
+        });
+        return transaction;
+    }
+
+    @Override
+    public boolean createIfAbsent(Transaction transaction) {
+        if (StringUtils.isEmpty(transaction.getId())) {
+            createGenerated(transaction);
+            return true;
+        }
+        return insertIfAbsent(transaction);
+    }
+
+    /**
+     * Inserts the transaction under a new id; a generated id a client already stored is skipped, not a conflict.
+     */
+    private void createGenerated(Transaction transaction) {
+        do {
+            transaction.setId(idGenerator.nextId());
+        } while (!insertIfAbsent(transaction));
+    }
+
+    private boolean insertIfAbsent(Transaction transaction) {
+        int target = partitionOf(transaction.getAccountId());
+        boolean[] created = new boolean[1];
+        owners.computeIfAbsent(transaction.getId(), id -> {
+            created[0] = partitions[target].createIfAbsent(transaction);
+            return target;
+        });
+        return created[0];
+    }
+
+    @Override
+    public List<Transaction> createAll(List<Transaction> batch) {
+        List<Transaction> conflicts = new ArrayList<>();
+        for (Transaction transaction : batch) {
+            if (!createIfAbsent(transaction)) {
+                conflicts.add(transaction);
+            }
+        }
+        return conflicts;
+    }
+
+    @Override
+    public Optional<Transaction> findById(String id) {
+        Integer owner = owners.get(id);
+        while (owner != null) {
+            Optional<Transaction> found = partitions[owner].findById(id);
+            if (found.isPresent()) {
+                return found;
+            }
+            // a delete or an account move of this id is in flight: wait for it on the id's entry and look again
+            Integer current = owners.computeIfPresent(id, (key, value) -> value);
+            if (Objects.equals(current, owner)) {
+                return partitions[owner].findById(id);
+            }
+            owner = current;
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Transaction> findAll(int page, int size) {
+        int window = window(page, size);
+        return merge(partition -> partition.findAll(0, window), (long) page * size, size);
+    }
+
+    @Override
+    public List<Transaction> findAllAfter(TransactionKey after, int size) {
+        return merge(partition -> partition.findAllAfter(after, size), 0, size);
+    }
+
+    @Override
+    public List<Transaction> findByAccountId(String accountId, int page, int size) {
+        return partitionFor(accountId).findByAccountId(accountId, page, size);
+    }
+
+    @Override
+    public List<Transaction> findByAccountIdAfter(String accountId, TransactionKey after, int size) {
+        return partitionFor(accountId).findByAccountIdAfter(accountId, after, size);
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to,
+                                             TransactionKey after, int size) {
+        if (accountId != null) {
+            return partitionFor(accountId).findByTimeRange(accountId, from, to, after, size);
+        }
+        return merge(partition -> partition.findByTimeRange(null, from, to, after, size), 0, size);
+    }
+
+    @Override
+    public List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to, int page, int size) {
+        if (accountId != null) {
+            return partitionFor(accountId).findByTimeRange(accountId, from, to, page, size);
+        }
+        int window = window(page, size);
+        return merge(partition -> partition.findByTimeRange(null, from, to, 0, window), (long) page * size, size);
+    }
+
+    @Override
+    public List<Transaction> search(String query, int page, int size) {
+        int window = window(page, size);
+        return merge(partition -> partition.search(query, 0, window), (long) page * size, size);
+    }
+
+    @Override
+    public Transaction replace(Transaction transaction) {
+        return replaceIfVersion(transaction, ANY_VERSION);
+    }
+
+    @Override
+    public Transaction replaceIfVersion(Transaction transaction, long expectedVersion) {
+        int target = partitionOf(transaction.getAccountId());
+        Transaction[] previous = new Transaction[1];
+        owners.computeIfPresent(transaction.getId(), (id, owner) -> {
+            if (owner == target) {
+                previous[0] = partitions[owner].replaceIfVersion(transaction, expectedVersion);
+                return owner;
+            }
+            // the directory entry serializes writers of this id, so the check and the move cannot interleave
+            Transaction current = partitions[owner].findById(id).orElse(null);
+            previous[0] = current;
+            if (current == null || !matches(current, expectedVersion)) {
+                return owner;
+            }
+            partitions[target].create(transaction);
+            partitions[owner].remove(id);
+            return target;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public Transaction remove(String id) {
+        return removeIfVersion(id, ANY_VERSION);
+    }
+
+    @Override
+    public Transaction removeIfVersion(String id, long expectedVersion) {
+        Transaction[] previous = new Transaction[1];
+        owners.computeIfPresent(id, (key, owner) -> {
+            previous[0] = partitions[owner].removeIfVersion(key, expectedVersion);
+            return previous[0] != null && matches(previous[0], expectedVersion) ? null : owner;
+        });
+        return previous[0];
+    }
+
+    @Override
+    public void forEach(Consumer<Transaction> action) {
+        for (localMemoryTransactionRepository partition : partitions) {
+            partition.forEach(action);
+        }
+    }
+
+    @Override
+    public long count() {
+        long count = 0;
+        for (localMemoryTransactionRepository partition : partitions) {
+            count += partition.count();
+        }
+        return count;
+    }
+
+    int partitionOf(String accountId) {
+        if (accountId == null) {
+            return 0;
+        }
+        int hash = accountId.hashCode();
+        // spread the high bits like HashMap so similar account ids do not cluster
+        return Math.floorMod(hash ^ (hash >>> 16), partitions.length);
+    }
+
+    private static boolean matches(Transaction stored, long expectedVersion) {
+        return expectedVersion == ANY_VERSION || stored.getVersion() == expectedVersion;
+    }
+
+    private localMemoryTransactionRepository partitionFor(String accountId) {
+        return partitions[partitionOf(accountId)];
+    }
+
+    private static int window(int page, int size) {
+        return Math.toIntExact((long) page * size + size);
+    }
+
+    /**
+     * Runs the query on every partition in parallel and merges the partial results in key order.
+     */
+    private List<Transaction> merge(Function<localMemoryTransactionRepository, List<Transaction>> query,
+                                    long skip, int size) {
+        List<List<Transaction>> results = Arrays.stream(partitions).parallel().map(query).toList();
+        return results.stream()
+                .flatMap(List::stream)
+                .sorted(KEY_ORDER)
+                .skip(skip)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.exception.InvalidCursorException;
+import com.example.banktransactions.model.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Sort key of a stored transaction: creation time in epoch micros, ties broken by id.
+ */
+public record TransactionKey(long timeMicros, String id) implements Comparable<TransactionKey> {
+
+    public static TransactionKey of(Transaction transaction) {
+        return new TransactionKey(toMicros(transaction.getTimestamp()), transaction.getId());
+    }
+
+    /**
+     * The smallest key at the given time, for inclusive lower or exclusive upper range bounds.
+     */
+    public static TransactionKey lowerBound(LocalDateTime timestamp) {
+        return new TransactionKey(toMicros(timestamp), "");
+    }
+
+    public static long toMicros(LocalDateTime timestamp) {
+        if (timestamp == null) {
+            return Long.MIN_VALUE;
+        }
+        return ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), timestamp);
+    }
+
+    public static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    /**
+     * Decodes an opaque cursor produced by {@link #toCursor()}; a blank cursor means "from the start".
+     */
+    public static TransactionKey fromCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            return new TransactionKey(Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Invalid cursor " + cursor);
+        }
+    }
+
+    public String toCursor() {
+        byte[] raw = (timeMicros + ":" + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    @Override
+    public int compareTo(TransactionKey other) {
+        int byTime = Long.compare(timeMicros, other.timeMicros);
+        return byTime != 0 ? byTime : id.compareTo(other.id);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Storage of transactions, selected with {@code transactions.repository.engine}. Every listing is ordered by
+ * {@link TransactionKey}: timestamp, then id. Implementations are thread-safe, and every engine must pass
+ * {@code TransactionRepositoryConformanceTest}.
+ */
+public interface TransactionRepository {
+
+    /**
+     * Stores the transaction, replacing any row with the same id; a missing id is generated.
+     */
+    Transaction create(Transaction transaction);
+
+    /**
+     * Inserts the transaction unless its id is already stored; a missing id is generated. Returns false on
+     * conflict.
+     */
+    boolean createIfAbsent(Transaction transaction);
+
+    /**
+     * Inserts a batch; rows whose id is already taken (or repeated within the batch) are skipped and returned.
+     */
+    List<Transaction> createAll(List<Transaction> batch);
+
+    Optional<Transaction> findById(String id);
+
+    /**
+     * Looks up many ids in one call; ids that are not stored are left out of the result. In-memory engines answer
+     * with a lookup per id, which is what this default does.
+     */
+    default Map<String, Transaction> findAllById(Collection<String> ids) {
+        Map<String, Transaction> found = new HashMap<>();
+        for (String id : ids) {
+            findById(id).ifPresent(transaction -> found.put(id, transaction));
+        }
+        return found;
+    }
+
+    List<Transaction> findAll(int page, int size);
+
+    /**
+     * Keyset page: the next {@code size} transactions strictly after {@code after}, or from the start when null.
+     */
+    List<Transaction> findAllAfter(TransactionKey after, int size);
+
+    List<Transaction> findByAccountId(String accountId, int page, int size);
+
+    List<Transaction> findByAccountIdAfter(String accountId, TransactionKey after, int size);
+
+    /**
+     * Keyset page over a time window: up to {@code size} transactions with {@code from <= timestamp < to}
+     * (either bound may be null), strictly after {@code after} when given, optionally limited to one account.
+     */
+    List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to,
+                                      TransactionKey after, int size);
+
+    List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to, int page, int size);
+
+    /**
+     * Prefix search over description, type and accountId; all query tokens must match.
+     */
+    List<Transaction> search(String query, int page, int size);
+
+    /**
+     * Replaces an existing transaction. Returns the replaced value, or null if the id was not stored.
+     */
+    Transaction replace(Transaction transaction);
+
+    default boolean update(Transaction transaction) {
+        return replace(transaction) != null;
+    }
+
+    /**
+     * Compare-and-set: replaces the stored transaction only if its version is still {@code expectedVersion}.
+     * Returns the stored value it was compared with, which was replaced exactly when its version matched, or null
+     * if the id was not stored.
+     */
+    Transaction replaceIfVersion(Transaction transaction, long expectedVersion);
+
+    /**
+     * Deletes a transaction. Returns the removed value, or null if the id was not stored.
+     */
+    Transaction remove(String id);
+
+    default boolean delete(String id) {
+        return remove(id) != null;
+    }
+
+    /**
+     * Compare-and-set delete, with the same return value as {@link #replaceIfVersion}.
+     */
+    Transaction removeIfVersion(String id, long expectedVersion);
+
+    /**
+     * Visits every stored transaction once, in no particular order.
+     */
+    void forEach(Consumer<Transaction> action);
+
+    long count();
+}
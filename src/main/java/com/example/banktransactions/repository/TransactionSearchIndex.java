@@ -0,0 +1,182 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.store.TransactionKeyIndex;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Inverted index over description, type and accountId. Every token is a scope of the key index holding the
+ * time-ordered keys of the transactions containing it; query tokens match as prefixes and are combined with AND.
+ */
+class TransactionSearchIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // tokens are indexed by their first characters only, so one long word cannot outgrow an index key; every match
+    // is re-checked against the full text
+    private static final int INDEXED_LENGTH = 64;
+
+    private final TransactionKeyIndex postings;
+
+    TransactionSearchIndex(TransactionKeyIndex postings) {
+        this.postings = postings;
+    }
+
+    // the tokens a query token is a prefix of; size counts a key once per token it is indexed under
+    private record Candidates(TransactionKeyIndex postings, List<String> tokens, long size) {
+
+        boolean contains(TransactionKey key) {
+            for (String token : tokens) {
+                if (postings.contains(token, key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * The union of the posting lists in key order, merged as it is consumed, so a page stops reading once it
+         * is full.
+         */
+        Stream<TransactionKey> stream() {
+            Iterator<TransactionKey> keys = tokens.size() == 1
+                    ? postings.iterator(tokens.get(0), null, false, null)
+                    : new Merge(tokens.stream().map(token -> postings.iterator(token, null, false, null)).toList());
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(keys,
+                    Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+        }
+    }
+
+    /**
+     * k-way merge of sorted iterators, each key returned once however many of them hold it.
+     */
+    private static final class Merge implements Iterator<TransactionKey> {
+
+        private record Head(TransactionKey key, Iterator<TransactionKey> rest) {
+        }
+
+        private final PriorityQueue<Head> heads = new PriorityQueue<>(Comparator.comparing(Head::key));
+
+        Merge(List<Iterator<TransactionKey>> lists) {
+            for (Iterator<TransactionKey> keys : lists) {
+                advance(keys);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public TransactionKey next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            advance(head.rest());
+            while (!heads.isEmpty() && heads.peek().key().equals(head.key())) {
+                advance(heads.poll().rest());
+            }
+            return head.key();
+        }
+
+        private void advance(Iterator<TransactionKey> keys) {
+            if (keys.hasNext()) {
+                heads.add(new Head(keys.next(), keys));
+            }
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return Collections.emptySet();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    static Set<String> tokenize(Transaction transaction) {
+        Set<String> tokens = new HashSet<>(tokenize(transaction.getDescription()));
+        tokens.addAll(tokenize(transaction.getType()));
+        tokens.addAll(tokenize(transaction.getAccountId()));
+        return tokens;
+    }
+
+    void add(Transaction transaction, TransactionKey key) {
+        for (String token : indexed(tokenize(transaction))) {
+            postings.add(token, key);
+        }
+    }
+
+    void remove(Transaction transaction, TransactionKey key) {
+        for (String token : indexed(tokenize(transaction))) {
+            postings.remove(token, key);
+        }
+    }
+
+    /**
+     * Matching transactions in key order, produced lazily: only the posting lists of the query tokens are visited,
+     * and only as far as the caller reads. Every candidate is re-checked against the resolved transaction so keys
+     * of replaced rows never leak through.
+     */
+    Stream<Transaction> search(String query, Function<TransactionKey, Transaction> resolver) {
+        List<String> queryTokens = new ArrayList<>(tokenize(query));
+        if (queryTokens.isEmpty()) {
+            return Stream.empty();
+        }
+        List<Candidates> candidates = new ArrayList<>(queryTokens.size());
+        for (String token : queryTokens) {
+            Candidates matches = prefixMatches(token);
+            if (matches.size() == 0) {
+                return Stream.empty();
+            }
+            candidates.add(matches);
+        }
+        // walk the rarest token's keys and probe the others
+        candidates.sort(Comparator.comparingLong(Candidates::size));
+        Candidates driver = candidates.get(0);
+        List<Candidates> filters = candidates.subList(1, candidates.size());
+        return driver.stream()
+                .filter(key -> filters.stream().allMatch(filter -> filter.contains(key)))
+                .map(resolver)
+                .filter(Objects::nonNull)
+                .filter(transaction -> matchesAll(transaction, queryTokens));
+    }
+
+    // the lists are only collected here; they are merged by Candidates.stream as the search is read
+    private Candidates prefixMatches(String prefix) {
+        List<String> tokens = postings.scopes(indexed(prefix));
+        long size = 0;
+        for (String token : tokens) {
+            size += postings.count(token);
+        }
+        return new Candidates(postings, tokens, size);
+    }
+
+    private static String indexed(String token) {
+        return token.length() > INDEXED_LENGTH ? token.substring(0, INDEXED_LENGTH) : token;
+    }
+
+    private static Set<String> indexed(Set<String> tokens) {
+        Set<String> indexed = new HashSet<>();
+        for (String token : tokens) {
+            indexed.add(indexed(token));
+        }
+        return indexed;
+    }
+
+    private static boolean matchesAll(Transaction transaction, List<String> queryTokens) {
+        Set<String> tokens = tokenize(transaction);
+        return queryTokens.stream().allMatch(prefix -> tokens.stream().anyMatch(token -> token.startsWith(prefix)));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.banktransactions.repository.id;
+
+/**
+ * Source of ids for transactions created without one. Implementations must be thread-safe and must not need
+ * to remember ids they have handed out.
+ */
+public interface IdGenerator {
+
+    String nextId();
+
+    /**
+     * Tells the generator that {@code id} is already stored; repositories call it for the ids they load at
+     * startup. A generator whose ids are ordered by time issues only ids above the ones it could have generated
+     * itself, so neither a restart nor a clock that went back can hand out a stored id again.
+     */
+    default void observe(String id) {
+    }
+}
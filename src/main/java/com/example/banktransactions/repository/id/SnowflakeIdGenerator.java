@@ -0,0 +1,117 @@
+package com.example.banktransactions.repository.id;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style 64-bit ids: 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node id and a 12-bit
+ * sequence, rendered as 13 Crockford base32 characters so the string order equals the numeric order, i.e.
+ * creation order.
+ * <p>
+ * The millisecond and sequence live in one {@link AtomicLong} advanced by CAS, so generation is lock-free.
+ * When a millisecond's 4096 sequence values run out, the clock part is simply borrowed from the next
+ * millisecond instead of spinning; it catches up with the wall clock as soon as traffic drops.
+ * <p>
+ * The state starts at zero, so on its own a generator restarted under a clock that went back would repeat ids.
+ * Repositories {@link #observe} the ids they load, which moves the state past every stored id of this node;
+ * until the clock passes the last of them, ids borrow from the following milliseconds as above.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    public static final Instant EPOCH = Instant.parse("2024-01-01T00:00:00Z");
+
+    static final int NODE_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    private final long node;
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last issued id
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        this.node = nodeId;
+    }
+
+    @Override
+    public String nextId() {
+        return encode(nextLong());
+    }
+
+    /**
+     * Moves the state past {@code id} when it is a snowflake id of this node; other ids cannot collide with ours.
+     */
+    @Override
+    public void observe(String id) {
+        long value;
+        try {
+            value = decode(id);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        // a 13th character beyond the 64 bits decodes too, but not back to the same string
+        if (!encode(value).equals(id) || ((value >>> SEQUENCE_BITS) & MAX_NODE_ID) != node) {
+            return;
+        }
+        long issued = ((value >>> (NODE_BITS + SEQUENCE_BITS)) << SEQUENCE_BITS) | (value & ((1L << SEQUENCE_BITS) - 1));
+        state.accumulateAndGet(issued, Math::max);
+    }
+
+    public long nextLong() {
+        long now = (System.currentTimeMillis() - EPOCH.toEpochMilli()) << SEQUENCE_BITS;
+        long next;
+        long current;
+        do {
+            current = state.get();
+            next = now > current ? now : current + 1;
+        } while (!state.compareAndSet(current, next));
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (NODE_BITS + SEQUENCE_BITS)) | (node << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Creation time embedded in an id produced by this generator.
+     */
+    public static Instant timestampOf(String id) {
+        return EPOCH.plusMillis(decode(id) >>> (NODE_BITS + SEQUENCE_BITS));
+    }
+
+    static String encode(long value) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    static long decode(String id) {
+        if (id.length() != ENCODED_LENGTH) {
+            throw new IllegalArgumentException("Not a snowflake id: " + id);
+        }
+        long value = 0;
+        for (int i = 0; i < ENCODED_LENGTH; i++) {
+            int digit = indexOf(id.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Not a snowflake id: " + id);
+            }
+            value = (value << 5) | digit;
+        }
+        return value;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.banktransactions.repository.id;
+
+import java.util.UUID;
+
+/**
+ * Random UUIDs; ids do not sort by creation time.
+ */
+public class UuidIdGenerator implements IdGenerator {
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.banktransactions.repository.journal;
+
+/**
+ * When a journaled write is acknowledged to the caller.
+ */
+public enum DurabilityMode {
+    /** Every write is forced to disk by its own caller before returning. */
+    FSYNC,
+    /** Group commit: writers wait for a shared fsync that covers every record appended meanwhile. */
+    BATCHED,
+    /** Writers return immediately; a background flush forces the log every flush interval. */
+    ASYNC
+}
@@ -0,0 +1,126 @@
+package com.example.banktransactions.repository.journal;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.TransactionKey;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary record layout: {@code [int payloadLength][int crc32c(payload)][payload]}, where the payload is an
+ * operation byte followed by the transaction fields and version (PUT) or the id alone (DELETE).
+ */
+final class JournalCodec {
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final int HEADER_BYTES = 8;
+
+    private JournalCodec() {
+    }
+
+    static byte[] encodePut(Transaction transaction) {
+        byte[] id = utf8(transaction.getId());
+        byte[] accountId = utf8(transaction.getAccountId());
+        byte[] type = utf8(transaction.getType());
+        byte[] description = utf8(transaction.getDescription());
+        byte[] unscaled = transaction.getAmount() == null ? null : transaction.getAmount().unscaledValue().toByteArray();
+        int length = 1 + sizeOf(id) + sizeOf(accountId) + sizeOf(type) + sizeOf(description)
+                + 4 + sizeOf(unscaled) + 16;
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        payload.put(PUT);
+        put(payload, id);
+        put(payload, accountId);
+        put(payload, type);
+        put(payload, description);
+        payload.putInt(transaction.getAmount() == null ? 0 : transaction.getAmount().scale());
+        put(payload, unscaled);
+        payload.putLong(TransactionKey.toMicros(transaction.getTimestamp()));
+        payload.putLong(transaction.getVersion());
+        return frame(payload.array());
+    }
+
+    static byte[] encodeDelete(String id) {
+        byte[] raw = utf8(id);
+        ByteBuffer payload = ByteBuffer.allocate(1 + sizeOf(raw));
+        payload.put(DELETE);
+        put(payload, raw);
+        return frame(payload.array());
+    }
+
+    static boolean isValid(byte[] payload, int checksum) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue() == checksum;
+    }
+
+    static byte operation(ByteBuffer payload) {
+        return payload.get();
+    }
+
+    /**
+     * Decodes the fields after a PUT operation byte.
+     */
+    static Transaction decodePut(ByteBuffer payload) {
+        Transaction transaction = new Transaction();
+        transaction.setId(string(payload));
+        transaction.setAccountId(string(payload));
+        transaction.setType(string(payload));
+        transaction.setDescription(string(payload));
+        int scale = payload.getInt();
+        byte[] unscaled = bytes(payload);
+        transaction.setAmount(unscaled == null ? null : new BigDecimal(new BigInteger(unscaled), scale));
+        long micros = payload.getLong();
+        transaction.setTimestamp(micros == Long.MIN_VALUE ? null : TransactionKey.fromMicros(micros));
+        transaction.setVersion(payload.getLong());
+        return transaction;
+    }
+
+    static String decodeDelete(ByteBuffer payload) {
+        return string(payload);
+    }
+
+    private static byte[] frame(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return ByteBuffer.allocate(HEADER_BYTES + payload.length)
+                .putInt(payload.length)
+                .putInt((int) crc.getValue())
+                .put(payload)
+                .array();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void put(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] value = bytes(buffer);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,467 @@
+package com.example.banktransactions.repository.journal;
+
+import com.example.banktransactions.model.Transaction;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Append-only binary journal of repository writes, split into numbered segments, plus compact snapshots.
+ * <p>
+ * {@code journal-N.log} holds the writes made while segment N was current; {@code snapshot-N.bin} holds the
+ * full state captured after rolling to segment N, so recovery loads the newest snapshot and replays only
+ * segments {@code >= N}. Replay is idempotent (PUT replaces, DELETE of a missing id is a no-op), which is what
+ * lets a snapshot overlap the first segment it does not cover.
+ * <p>
+ * {@link #appendPut} and {@link #appendDelete} only copy the record into an in-memory buffer; {@link #awaitDurable} then blocks according
+ * to the {@link DurabilityMode}.
+ * <p>
+ * A failed write or force is fatal: the current segment is cut back to the end of the last forced write, every
+ * writer still waiting and every later append gets the failure, and {@link #readDurable} tells the owner what the
+ * log actually holds, so it can drop the writes that never became durable.
+ */
+@Slf4j
+public class TransactionJournal implements Closeable {
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final DurabilityMode mode;
+    private final long flushIntervalNanos;
+    private final long maxSegmentBytes;
+
+    // appenders only touch the pending buffer under appendLock
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition pendingAvailable = appendLock.newCondition();
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer writing = ByteBuffer.allocate(64 * 1024);
+    private long appendedSeq;
+
+    // the file channel is only written and forced under flushLock
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition durableAdvanced = flushLock.newCondition();
+    private FileChannel channel;
+    private long segment;
+    // end of the last forced write in the current segment
+    private long durableBytes;
+    private volatile long durableSeq;
+    private volatile IOException failure;
+
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    public TransactionJournal(Path directory, DurabilityMode mode, long flushIntervalMillis, long maxSegmentBytes)
+            throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.mode = mode;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.flusher = mode == DurabilityMode.FSYNC ? null : Thread.ofPlatform()
+                .name("transaction-journal-flusher")
+                .daemon()
+                .unstarted(this::flushLoop);
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Loads the newest snapshot and the segments after it, truncates a torn tail left by a crash, and opens the
+     * journal for appending. Must be called once before the first append.
+     */
+    public void replay(Consumer<Transaction> onPut, Consumer<String> onDelete) throws IOException {
+        long[] loaded = load(onPut, onDelete, true);
+        flushLock.lock();
+        try {
+            openSegment(loaded[0]);
+        } finally {
+            flushLock.unlock();
+        }
+        if (flusher != null) {
+            flusher.start();
+        }
+        log.info("Journal {} replayed {} records (mode {})", directory, loaded[1], mode);
+    }
+
+    /**
+     * Reads back what is on disk, as {@link #replay} would after a restart, without touching the files. After a
+     * failure that is exactly the writes that were acknowledged as durable (plus, in ASYNC mode, fewer).
+     */
+    public void readDurable(Consumer<Transaction> onPut, Consumer<String> onDelete) throws IOException {
+        flushLock.lock();
+        try {
+            load(onPut, onDelete, false);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    // returns {last segment, records read}
+    private long[] load(Consumer<Transaction> onPut, Consumer<String> onDelete, boolean repairTornTail)
+            throws IOException {
+        long snapshot = latest(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long records = 0;
+        if (snapshot >= 0) {
+            records += read(file(SNAPSHOT_PREFIX, snapshot, SNAPSHOT_SUFFIX), onPut, onDelete, false, false);
+        }
+        List<Long> segments = numbered(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        long last = Math.max(snapshot, 0);
+        for (long number : segments) {
+            if (number >= snapshot) {
+                boolean tail = number == segments.get(segments.size() - 1);
+                records += read(file(SEGMENT_PREFIX, number, SEGMENT_SUFFIX), onPut, onDelete, tail,
+                        tail && repairTornTail);
+                last = Math.max(last, number);
+            }
+        }
+        return new long[]{last, records};
+    }
+
+    public long appendPut(Transaction transaction) {
+        return append(JournalCodec.encodePut(transaction));
+    }
+
+    public long appendDelete(String id) {
+        return append(JournalCodec.encodeDelete(id));
+    }
+
+    private long append(byte[] record) {
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Journal is closed");
+            }
+            if (failure != null) {
+                throw failed();
+            }
+            if (pending.remaining() < record.length) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + record.length));
+                pending.flip();
+                pending = grown.put(pending);
+            }
+            pending.put(record);
+            long seq = ++appendedSeq;
+            if (mode == DurabilityMode.BATCHED) {
+                pendingAvailable.signal();
+            }
+            return seq;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is as durable as the mode promises. Throws
+     * {@link UncheckedIOException} if the journal failed before the record was forced; the write must then not be
+     * acknowledged.
+     */
+    public void awaitDurable(long seq) {
+        switch (mode) {
+            case FSYNC -> {
+                flushLock.lock();
+                try {
+                    flush();
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+            case BATCHED -> {
+                if (durableSeq >= seq) {
+                    return;
+                }
+                flushLock.lock();
+                try {
+                    while (durableSeq < seq && !closed && failure == null) {
+                        durableAdvanced.awaitUninterruptibly();
+                    }
+                    if (durableSeq < seq && failure != null) {
+                        throw failed();
+                    }
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+            case ASYNC -> {
+            }
+        }
+    }
+
+    /**
+     * Forces everything appended so far and starts a new segment. Returns the new segment number, which is
+     * the number to pass to {@link #writeSnapshot} once the caller has captured the state.
+     */
+    public long roll() throws IOException {
+        flushLock.lock();
+        try {
+            flush();
+            openSegment(segment + 1);
+            return segment;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the given state as snapshot {@code segment} and drops the segments and snapshots it supersedes.
+     */
+    public void writeSnapshot(long segment, Iterable<Transaction> state) throws IOException {
+        Path target = file(SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream stream = new BufferedOutputStream(Channels.newOutputStream(out), 1 << 16);
+            for (Transaction transaction : state) {
+                stream.write(JournalCodec.encodePut(transaction));
+                count++;
+            }
+            stream.flush();
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (long number : numbered(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (number < segment) {
+                Files.deleteIfExists(file(SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+            }
+        }
+        for (long number : numbered(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (number < segment) {
+                Files.deleteIfExists(file(SNAPSHOT_PREFIX, number, SNAPSHOT_SUFFIX));
+            }
+        }
+        log.info("Journal snapshot {} written with {} records", segment, count);
+    }
+
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            closed = true;
+            pendingAvailable.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flushLock.lock();
+        try {
+            if (channel != null) {
+                if (failure == null) {
+                    flush();
+                }
+                channel.close();
+                channel = null;
+            }
+            durableAdvanced.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            appendLock.lock();
+            try {
+                if (mode == DurabilityMode.BATCHED) {
+                    // group commit: every record appended while the previous fsync ran goes out in this one
+                    while (pending.position() == 0 && !closed) {
+                        pendingAvailable.awaitUninterruptibly();
+                    }
+                } else {
+                    pendingAvailable.awaitNanos(flushIntervalNanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                appendLock.unlock();
+            }
+            flushLock.lock();
+            try {
+                flush();
+            } catch (UncheckedIOException e) {
+                // fail() has already woken the writers; nothing will be written again
+                log.error("Journal flush failed, rejecting further writes", e);
+                return;
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Writes and forces everything appended so far. Caller holds flushLock.
+     */
+    private void flush() {
+        if (failure != null) {
+            throw failed();
+        }
+        long seq;
+        appendLock.lock();
+        try {
+            ByteBuffer drained = pending;
+            pending = writing;
+            writing = drained;
+            seq = appendedSeq;
+        } finally {
+            appendLock.unlock();
+        }
+        if (writing.position() == 0) {
+            durableSeq = seq;
+            return;
+        }
+        try {
+            writing.flip();
+            while (writing.hasRemaining()) {
+                channel.write(writing);
+            }
+            writing.clear();
+            channel.force(false);
+            durableBytes = channel.size();
+            durableSeq = seq;
+            durableAdvanced.signalAll();
+            if (durableBytes >= maxSegmentBytes) {
+                openSegment(segment + 1);
+            }
+        } catch (IOException e) {
+            fail(e);
+            throw failed();
+        }
+    }
+
+    /**
+     * Caller holds flushLock. Drops what was not forced, from the file as far as it still can and from the
+     * buffers, and wakes every waiter.
+     */
+    private void fail(IOException e) {
+        failure = e;
+        try {
+            channel.truncate(durableBytes);
+            channel.force(false);
+        } catch (IOException truncateFailed) {
+            // replay stops at the torn record anyway
+            e.addSuppressed(truncateFailed);
+        }
+        writing.clear();
+        appendLock.lock();
+        try {
+            pending.clear();
+            pendingAvailable.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+        durableAdvanced.signalAll();
+    }
+
+    private UncheckedIOException failed() {
+        return new UncheckedIOException("Journal write failed, writes are rejected", failure);
+    }
+
+    private void openSegment(long number) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        segment = number;
+        channel = open(file(SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        durableBytes = channel.size();
+    }
+
+    /**
+     * Opens a segment for appending; a seam for tests that make the channel fail.
+     */
+    FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private long read(Path file, Consumer<Transaction> onPut, Consumer<String> onDelete, boolean tail,
+                      boolean truncateTornTail) throws IOException {
+        long records = 0;
+        long validBytes = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length <= 0 || length > maxSegmentBytes) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    if (!JournalCodec.isValid(payload, checksum)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(payload);
+                byte operation = JournalCodec.operation(buffer);
+                if (operation == JournalCodec.PUT) {
+                    onPut.accept(JournalCodec.decodePut(buffer));
+                } else if (operation == JournalCodec.DELETE) {
+                    onDelete.accept(JournalCodec.decodeDelete(buffer));
+                }
+                validBytes += JournalCodec.HEADER_BYTES + payload.length;
+                records++;
+            }
+        }
+        if (validBytes < Files.size(file)) {
+            if (!tail) {
+                throw new IOException("Corrupt journal file " + file + " at offset " + validBytes);
+            }
+            if (!truncateTornTail) {
+                return records;
+            }
+            log.warn("Truncating torn journal tail of {} at offset {}", file, validBytes);
+            try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                out.truncate(validBytes);
+                out.force(true);
+            }
+        }
+        return records;
+    }
+
+    private Path file(String prefix, long number, String suffix) {
+        return directory.resolve(String.format("%s%020d%s", prefix, number, suffix));
+    }
+
+    private long latest(String prefix, String suffix) throws IOException {
+        List<Long> numbers = numbered(prefix, suffix);
+        return numbers.isEmpty() ? -1 : numbers.get(numbers.size() - 1);
+    }
+
+    private List<Long> numbered(String prefix, String suffix) throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.endsWith(suffix))
+                    .forEach(name -> numbers.add(Long.parseLong(name, prefix.length(), name.length() - suffix.length(), 10)));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+}
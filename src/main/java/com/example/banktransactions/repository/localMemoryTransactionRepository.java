@@ -1,79 +1,459 @@
 package com.example.banktransactions.repository;
 
 import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.IdGenerator;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.journal.TransactionJournal;
+import com.example.banktransactions.repository.store.ObjectTransactionStore;
+import com.example.banktransactions.repository.store.TransactionKeyIndex;
+import com.example.banktransactions.repository.store.TransactionStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Repository
-public class localMemoryTransactionRepository {
+@ConditionalOnProperty(prefix = "transactions.repository", name = "engine", havingValue = "memory", matchIfMissing = true)
+public class localMemoryTransactionRepository implements TransactionRepository {
 
-    private final Map<String, Transaction> transactions = new ConcurrentHashMap<>();
-    private final Set<String> usedIds = Collections.synchronizedSet(new HashSet<>());
+    // versions are never negative, so this expected version matches any stored row
+    private static final long ANY_VERSION = -1;
 
+    // the single scope of the time index
+    private static final String ALL = "";
+
+    private final TransactionStore transactions;
+    // all keys, oldest first; the store decides whether index keys live on the heap
+    private final TransactionKeyIndex timeIndex;
+    // accountId -> keys of that account's transactions, oldest first
+    private final TransactionKeyIndex accountIndex;
+    private final TransactionSearchIndex searchIndex;
+
+    // null when journaling is disabled
+    private final TransactionJournal journal;
+    // writers share it; snapshot() takes it exclusively so no write straddles a segment roll
+    private final ReadWriteLock journalBarrier = new ReentrantReadWriteLock();
+    // set once memory has been reset to the log after a journal failure; guarded by journalBarrier
+    private boolean discarded;
+    private final IdGenerator idGenerator;
+
+    public localMemoryTransactionRepository() {
+        this(Optional.empty(), new SnowflakeIdGenerator(0));
+    }
+
+    public localMemoryTransactionRepository(Optional<TransactionJournal> journal, IdGenerator idGenerator) {
+        this(journal, idGenerator, new ObjectTransactionStore());
+    }
+
+    @Autowired
+    public localMemoryTransactionRepository(Optional<TransactionJournal> journal, IdGenerator idGenerator,
+                                            TransactionStore transactions) {
+        this.journal = journal.orElse(null);
+        this.idGenerator = idGenerator;
+        this.transactions = transactions;
+        this.timeIndex = transactions.newKeyIndex();
+        this.accountIndex = transactions.newKeyIndex();
+        this.searchIndex = new TransactionSearchIndex(transactions.newKeyIndex());
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        if (journal != null) {
+            journal.replay(transaction -> {
+                idGenerator.observe(transaction.getId());
+                store(transaction, false);
+            }, id -> erase(id, ANY_VERSION, false));
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Captures the current state as a journal snapshot so recovery only replays writes made after it.
+     */
+    public void snapshot() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        long segment;
+        journalBarrier.writeLock().lock();
+        try {
+            segment = journal.roll();
+        } finally {
+            journalBarrier.writeLock().unlock();
+        }
+        journal.writeSnapshot(segment, transactions);
+    }
+
+    @Override
     public Transaction create(Transaction transaction) {
         if(StringUtils.isEmpty(transaction.getId())){
-            transaction.setId(generateUniqueId());
+            awaitDurable(journaled(() -> storeGenerated(transaction)).ticket);
+            return transaction;
         }
-        String id = transaction.getId();
-        transactions.put(id, transaction);
+        awaitDurable(journaled(() -> store(transaction, true)).ticket);
         return transaction;
     }
 
+    /**
+     * Inserts the transaction unless its id is already stored; a missing id is generated. Returns false on
+     * conflict, in a single map operation instead of a findById followed by create.
+     */
+    @Override
+    public boolean createIfAbsent(Transaction transaction) {
+        Write write = journaled(() -> StringUtils.isEmpty(transaction.getId())
+                ? storeGenerated(transaction) : storeIfAbsent(transaction));
+        awaitDurable(write.ticket);
+        return write.ticket >= 0;
+    }
+
+    /**
+     * Inserts a batch under one journal barrier and one durability wait. Rows whose id is already taken are
+     * skipped and returned.
+     */
+    @Override
+    public List<Transaction> createAll(List<Transaction> batch) {
+        List<Transaction> conflicts = new ArrayList<>();
+        long ticket = journaled(() -> {
+            long last = 0;
+            for (Transaction transaction : batch) {
+                long seq = (StringUtils.isEmpty(transaction.getId())
+                        ? storeGenerated(transaction) : storeIfAbsent(transaction)).ticket;
+                if (seq < 0) {
+                    conflicts.add(transaction);
+                } else {
+                    last = Math.max(last, seq);
+                }
+            }
+            return last;
+        });
+        awaitDurable(ticket);
+        return conflicts;
+    }
+
+    @Override
     public Optional<Transaction> findById(String id) {
         return Optional.ofNullable(transactions.get(id));
     }
 
+    @Override
     public List<Transaction> findAll(int page, int size) {
-        List<Transaction> allTransactions = new ArrayList<>(transactions.values());
-        int total = allTransactions.size();
-        int start = page * size;
-        if (start > total) {
-            return Collections.emptyList();
-        }
-        int end = Math.min(start + size, total);
-        return allTransactions.subList(start, end);
+        return page(timeIndex.iterator(ALL, null, false, null, (long) page * size), size);
+    }
+
+    /**
+     * Keyset page: the next {@code size} transactions strictly after {@code after}, or from the start when null.
+     */
+    @Override
+    public List<Transaction> findAllAfter(TransactionKey after, int size) {
+        return page(timeIndex.iterator(ALL, after, false, null), size);
     }
 
+    @Override
     public List<Transaction> findByAccountId(String accountId, int page, int size) {
-        List<Transaction> accountTransactions = transactions.values().stream()
-                .filter(t -> t.getAccountId().equals(accountId))
-                .collect(Collectors.toList());
+        return page(accountIndex.iterator(accountId, null, false, null, (long) page * size), size);
+    }
 
-        int total = accountTransactions.size();
-        int start = page * size;
-        if (start > total) {
-            return Collections.emptyList();
-        }
-        int end = Math.min(start + size, total);
-        return accountTransactions.subList(start, end);
+    @Override
+    public List<Transaction> findByAccountIdAfter(String accountId, TransactionKey after, int size) {
+        return page(accountIndex.iterator(accountId, after, false, null), size);
+    }
+
+    /**
+     * Keyset page over a time window: up to {@code size} transactions with {@code from <= timestamp < to}
+     * (either bound may be null), strictly after {@code after} when given, optionally limited to one account.
+     */
+    @Override
+    public List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to,
+                                             TransactionKey after, int size) {
+        return findByTimeRange(accountId, from, to, after, 0, size);
     }
 
-    public boolean update(Transaction transaction) {
-        if (transactions.containsKey(transaction.getId())) {
-            transactions.put(transaction.getId(), transaction);
-            return true;
+    /**
+     * Offset page over a time window; costs O(log n + page * size + size).
+     */
+    @Override
+    public List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to, int page, int size) {
+        return findByTimeRange(accountId, from, to, null, (long) page * size, size);
+    }
+
+    private List<Transaction> findByTimeRange(String accountId, LocalDateTime from, LocalDateTime to,
+                                              TransactionKey after, long skip, int size) {
+        TransactionKey start = after;
+        boolean inclusive = false;
+        if (from != null) {
+            TransactionKey lower = TransactionKey.lowerBound(from);
+            if (after == null || after.compareTo(lower) < 0) {
+                start = lower;
+                inclusive = true;
+            }
         }
-        return false;
+        TransactionKey end = to == null ? null : TransactionKey.lowerBound(to);
+        Iterator<TransactionKey> keys = accountId == null
+                ? timeIndex.iterator(ALL, start, inclusive, end, skip)
+                : accountIndex.iterator(accountId, start, inclusive, end, skip);
+        return page(keys, size);
+    }
+
+    /**
+     * Prefix search over description, type and accountId; all query tokens must match.
+     */
+    @Override
+    public List<Transaction> search(String query, int page, int size) {
+        return searchIndex.search(query, this::resolve)
+                .skip((long) page * size)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Replaces an existing transaction. Returns the replaced value, or null if the id was not stored.
+     */
+    @Override
+    public Transaction replace(Transaction transaction) {
+        Write write = journaled(() -> storeIfPresent(transaction, ANY_VERSION));
+        awaitDurable(write.ticket);
+        return write.previous;
+    }
+
+    @Override
+    public Transaction replaceIfVersion(Transaction transaction, long expectedVersion) {
+        Write write = journaled(() -> storeIfPresent(transaction, expectedVersion));
+        awaitDurable(write.ticket);
+        return write.previous;
+    }
+
+    /**
+     * Deletes a transaction. Returns the removed value, or null if the id was not stored.
+     */
+    @Override
+    public Transaction remove(String id) {
+        Write write = journaled(() -> erase(id, ANY_VERSION, true));
+        awaitDurable(write.ticket);
+        return write.previous;
+    }
+
+    @Override
+    public Transaction removeIfVersion(String id, long expectedVersion) {
+        Write write = journaled(() -> erase(id, expectedVersion, true));
+        awaitDurable(write.ticket);
+        return write.previous;
     }
 
-    public boolean delete(String id) {
-        return transactions.remove(id) != null;
+    @Override
+    public void forEach(Consumer<Transaction> action) {
+        transactions.forEach(action);
     }
 
+    @Override
     public long count() {
         return transactions.size();
     }
 
-    private String generateUniqueId() {
-        String id;
+    // outcome of one map mutation: the journal ticket (-1 if nothing changed) and the value it replaced
+    private static final class Write {
+        long ticket = -1;
+        Transaction previous;
+    }
+
+    // index maintenance and journaling run inside compute so they are serialized per id; the store may hand out
+    // copies, so the indexes are always fed the caller's instance or the value the store returned. The journal
+    // append comes first: once the journal has failed it throws, and the row and indexes stay untouched. Stored
+    // instances are frozen, so nothing handed one by a lookup can change it under the indexes
+
+    private Write store(Transaction transaction, boolean log) {
+        Write write = new Write();
+        transactions.compute(transaction.getId(), (key, previous) -> {
+            write.ticket = log && journal != null ? journal.appendPut(transaction) : 0;
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(transaction);
+            write.previous = previous;
+            return transaction.freeze();
+        });
+        return write;
+    }
+
+    private Write storeIfAbsent(Transaction transaction) {
+        Write write = new Write();
+        transactions.compute(transaction.getId(), (key, previous) -> {
+            if (previous != null) {
+                return previous;
+            }
+            write.ticket = journal == null ? 0 : journal.appendPut(transaction);
+            index(transaction);
+            return transaction.freeze();
+        });
+        return write;
+    }
+
+    /**
+     * Inserts the transaction under a new id. Clients may supply ids, and generated ones can be guessed, so the id
+     * may already be taken: that is not the caller's conflict, and a further id is generated instead.
+     */
+    private Write storeGenerated(Transaction transaction) {
+        Write write;
         do {
-            id = UUID.randomUUID().toString();
-        } while (usedIds.contains(id));
-        usedIds.add(id);
-        return id;
+            transaction.setId(generateUniqueId());
+            write = storeIfAbsent(transaction);
+        } while (write.ticket < 0);
+        return write;
+    }
+
+    private Write storeIfPresent(Transaction transaction, long expectedVersion) {
+        Write write = new Write();
+        transactions.compute(transaction.getId(), (key, previous) -> {
+            if (previous == null) {
+                return null;
+            }
+            if (expectedVersion != ANY_VERSION && previous.getVersion() != expectedVersion) {
+                write.previous = previous;
+                return previous;
+            }
+            write.ticket = journal == null ? 0 : journal.appendPut(transaction);
+            unindex(previous);
+            index(transaction);
+            write.previous = previous;
+            return transaction.freeze();
+        });
+        return write;
+    }
+
+    private Write erase(String id, long expectedVersion, boolean log) {
+        Write write = new Write();
+        transactions.compute(id, (key, previous) -> {
+            if (previous == null) {
+                return null;
+            }
+            if (expectedVersion != ANY_VERSION && previous.getVersion() != expectedVersion) {
+                write.previous = previous;
+                return previous;
+            }
+            write.ticket = log && journal != null ? journal.appendDelete(id) : 0;
+            unindex(previous);
+            write.previous = previous;
+            return null;
+        });
+        return write;
+    }
+
+    private <T> T journaled(Supplier<T> write) {
+        if (journal == null) {
+            return write.get();
+        }
+        try {
+            Lock barrier = journalBarrier.readLock();
+            barrier.lock();
+            try {
+                return write.get();
+            } finally {
+                barrier.unlock();
+            }
+        } catch (UncheckedIOException e) {
+            // a batch may have stored rows before the journal refused one
+            discardNonDurable();
+            throw e;
+        }
+    }
+
+    private void awaitDurable(long ticket) {
+        if (journal != null && ticket > 0) {
+            try {
+                journal.awaitDurable(ticket);
+            } catch (UncheckedIOException e) {
+                discardNonDurable();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * After the journal failed, makes memory match the log again: every write that was not forced, and so was
+     * never acknowledged, is undone by reloading the rows the journal holds. Runs once, excluding all writers;
+     * later writes are refused by the journal before they change anything.
+     */
+    private void discardNonDurable() {
+        journalBarrier.writeLock().lock();
+        try {
+            if (discarded || !journal.isFailed()) {
+                return;
+            }
+            discarded = true;
+            Map<String, Transaction> durable = new HashMap<>();
+            journal.readDurable(transaction -> durable.put(transaction.getId(), transaction), durable::remove);
+            List<String> stored = new ArrayList<>();
+            transactions.forEach(transaction -> stored.add(transaction.getId()));
+            for (String id : stored) {
+                if (!durable.containsKey(id)) {
+                    erase(id, ANY_VERSION, false);
+                }
+            }
+            durable.values().forEach(transaction -> store(transaction, false));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reload the journal after a failed write", e);
+        } finally {
+            journalBarrier.writeLock().unlock();
+        }
+    }
+
+    private List<Transaction> page(Iterator<TransactionKey> keys, int size) {
+        List<Transaction> page = new ArrayList<>();
+        while (page.size() < size && keys.hasNext()) {
+            Transaction transaction = resolve(keys.next());
+            if (transaction != null) {
+                page.add(transaction);
+            }
+        }
+        return page;
+    }
+
+    private Transaction resolve(TransactionKey key) {
+        Transaction transaction = transactions.get(key.id());
+        // the key may be stale if the id was concurrently replaced or removed
+        if (transaction == null || !TransactionKey.of(transaction).equals(key)) {
+            return null;
+        }
+        return transaction;
+    }
+
+    private void index(Transaction transaction) {
+        TransactionKey key = TransactionKey.of(transaction);
+        timeIndex.add(ALL, key);
+        searchIndex.add(transaction, key);
+        if (transaction.getAccountId() != null) {
+            accountIndex.add(transaction.getAccountId(), key);
+        }
+    }
+
+    private void unindex(Transaction transaction) {
+        TransactionKey key = TransactionKey.of(transaction);
+        timeIndex.remove(ALL, key);
+        searchIndex.remove(transaction, key);
+        if (transaction.getAccountId() != null) {
+            accountIndex.remove(transaction.getAccountId(), key);
+        }
+    }
+
+    private String generateUniqueId() {
+        return idGenerator.nextId();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,273 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.model.TransactionType;
+import com.example.banktransactions.repository.TransactionKey;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Struct-of-arrays storage: every field lives in a primitive column and a {@link Transaction} is only built when a
+ * row is read. Amounts are stored as unscaled longs plus a scale byte, timestamps as epoch micros, types as a byte
+ * and account ids as codes into a dictionary. Values that do not fit (amounts beyond 63 bits, unknown type
+ * spellings) are kept in side maps, so every row reads back exactly as written, apart from timestamps being
+ * truncated to microseconds like everywhere else in the repository.
+ * <p>
+ * Columns are allocated in chunks of {@value #CHUNK_SIZE} rows and slots of deleted rows are reused. Each row is
+ * guarded by a seqlock: a writer (only ever the one holding the row's id in {@link #compute}) makes the sequence
+ * odd, writes the columns and makes it even again; readers retry until they see the same even sequence before and
+ * after copying the row out.
+ */
+public class ColumnarTransactionStore implements TransactionStore {
+
+    static final int CHUNK_SIZE = 1 << 14;
+    private static final int CHUNK_BITS = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // scale markers; any other value is the amount's scale
+    private static final byte NULL_AMOUNT = Byte.MIN_VALUE;
+    private static final byte WIDE_AMOUNT = Byte.MIN_VALUE + 1;
+    // type codes; 1..n are TransactionType ordinals + 1
+    private static final byte NULL_TYPE = 0;
+    private static final byte OTHER_TYPE = -1;
+    private static final TransactionType[] TYPES = TransactionType.values();
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final Dictionary accounts = new Dictionary();
+    private final Map<Integer, BigDecimal> wideAmounts = new ConcurrentHashMap<>();
+    private final Map<Integer, String> otherTypes = new ConcurrentHashMap<>();
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    // slot allocation state, guarded by this
+    private int nextSlot;
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+
+    private static final class Chunk {
+        final String[] ids = new String[CHUNK_SIZE];
+        final int[] accounts = new int[CHUNK_SIZE];
+        final long[] amounts = new long[CHUNK_SIZE];
+        final byte[] scales = new byte[CHUNK_SIZE];
+        final byte[] types = new byte[CHUNK_SIZE];
+        final String[] descriptions = new String[CHUNK_SIZE];
+        final long[] timestamps = new long[CHUNK_SIZE];
+        final long[] versions = new long[CHUNK_SIZE];
+        final int[] sequences = new int[CHUNK_SIZE];
+    }
+
+    @Override
+    public Transaction get(String id) {
+        while (true) {
+            Integer slot = slots.get(id);
+            if (slot == null) {
+                return null;
+            }
+            Transaction transaction = read(slot);
+            if (transaction != null && id.equals(transaction.getId())) {
+                return transaction;
+            }
+            // the slot was released or reused after the lookup; the id has moved or gone
+        }
+    }
+
+    @Override
+    public void compute(String id, BiFunction<String, Transaction, Transaction> remapping) {
+        slots.compute(id, (key, slot) -> {
+            Transaction current = slot == null ? null : read(slot);
+            Transaction next = remapping.apply(key, current);
+            if (next == current) {
+                return slot;
+            }
+            if (next == null) {
+                release(slot);
+                return null;
+            }
+            int target = slot == null ? allocate() : slot;
+            write(target, key, next);
+            return target;
+        });
+    }
+
+    @Override
+    public long size() {
+        return slots.size();
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        return slots.keySet().stream()
+                .map(this::get)
+                .filter(Objects::nonNull)
+                .iterator();
+    }
+
+    private Transaction read(int slot) {
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        int row = slot & CHUNK_MASK;
+        while (true) {
+            int sequence = (int) SEQUENCES.getAcquire(chunk.sequences, row);
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            String id = chunk.ids[row];
+            int account = chunk.accounts[row];
+            long unscaled = chunk.amounts[row];
+            byte scale = chunk.scales[row];
+            byte type = chunk.types[row];
+            String description = chunk.descriptions[row];
+            long micros = chunk.timestamps[row];
+            long version = chunk.versions[row];
+            BigDecimal wideAmount = scale == WIDE_AMOUNT ? wideAmounts.get(slot) : null;
+            String otherType = type == OTHER_TYPE ? otherTypes.get(slot) : null;
+            VarHandle.loadLoadFence();
+            if ((int) SEQUENCES.getOpaque(chunk.sequences, row) != sequence) {
+                continue;
+            }
+            if (id == null) {
+                return null;
+            }
+            Transaction transaction = new Transaction();
+            transaction.setId(id);
+            transaction.setAccountId(accounts.decode(account));
+            transaction.setAmount(scale == NULL_AMOUNT ? null
+                    : scale == WIDE_AMOUNT ? wideAmount
+                    : BigDecimal.valueOf(unscaled, scale));
+            transaction.setType(type == NULL_TYPE ? null : type == OTHER_TYPE ? otherType : TYPES[type - 1].name());
+            transaction.setDescription(description);
+            transaction.setTimestamp(micros == Long.MIN_VALUE ? null : TransactionKey.fromMicros(micros));
+            transaction.setVersion(version);
+            return transaction;
+        }
+    }
+
+    private void write(int slot, String id, Transaction transaction) {
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        int row = slot & CHUNK_MASK;
+        int sequence = chunk.sequences[row];
+        SEQUENCES.setOpaque(chunk.sequences, row, sequence + 1);
+        VarHandle.storeStoreFence();
+        chunk.ids[row] = id;
+        chunk.accounts[row] = accounts.encode(transaction.getAccountId());
+        encodeAmount(chunk, row, slot, transaction.getAmount());
+        encodeType(chunk, row, slot, transaction.getType());
+        chunk.descriptions[row] = transaction.getDescription();
+        chunk.timestamps[row] = TransactionKey.toMicros(transaction.getTimestamp());
+        chunk.versions[row] = transaction.getVersion();
+        SEQUENCES.setRelease(chunk.sequences, row, sequence + 2);
+    }
+
+    private void encodeAmount(Chunk chunk, int row, int slot, BigDecimal amount) {
+        if (amount == null) {
+            chunk.scales[row] = NULL_AMOUNT;
+        } else if (amount.scale() > WIDE_AMOUNT && amount.scale() <= Byte.MAX_VALUE
+                && amount.unscaledValue().bitLength() < Long.SIZE) {
+            chunk.amounts[row] = amount.unscaledValue().longValueExact();
+            chunk.scales[row] = (byte) amount.scale();
+        } else {
+            chunk.scales[row] = WIDE_AMOUNT;
+            wideAmounts.put(slot, amount);
+            return;
+        }
+        wideAmounts.remove(slot);
+    }
+
+    private void encodeType(Chunk chunk, int row, int slot, String type) {
+        byte code = OTHER_TYPE;
+        if (type == null) {
+            code = NULL_TYPE;
+        } else {
+            for (TransactionType known : TYPES) {
+                if (known.name().equals(type)) {
+                    code = (byte) (known.ordinal() + 1);
+                }
+            }
+        }
+        chunk.types[row] = code;
+        if (code == OTHER_TYPE) {
+            otherTypes.put(slot, type);
+        } else {
+            otherTypes.remove(slot);
+        }
+    }
+
+    private synchronized int allocate() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        int slot = nextSlot++;
+        if (slot >>> CHUNK_BITS == chunks.length) {
+            Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = new Chunk();
+            chunks = grown;
+        }
+        return slot;
+    }
+
+    private void release(int slot) {
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        int row = slot & CHUNK_MASK;
+        int sequence = chunk.sequences[row];
+        SEQUENCES.setOpaque(chunk.sequences, row, sequence + 1);
+        VarHandle.storeStoreFence();
+        // drop references so released rows do not keep strings alive
+        chunk.ids[row] = null;
+        chunk.descriptions[row] = null;
+        wideAmounts.remove(slot);
+        otherTypes.remove(slot);
+        SEQUENCES.setRelease(chunk.sequences, row, sequence + 2);
+        synchronized (this) {
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    /**
+     * Append-only string dictionary: each distinct account id is stored once and rows keep its int code.
+     */
+    private static final class Dictionary {
+
+        private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[64];
+        // guarded by this
+        private int size;
+
+        int encode(String value) {
+            if (value == null) {
+                return -1;
+            }
+            Integer code = codes.get(value);
+            return code != null ? code : add(value);
+        }
+
+        String decode(int code) {
+            return code < 0 ? null : values[code];
+        }
+
+        private synchronized int add(String value) {
+            Integer code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = value;
+            values = current;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.repository.TransactionKey;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps every scope's keys in a {@link ConcurrentSkipListSet} on the heap: lock-free reads and writes, for a
+ * skip-list node and a key object per entry.
+ */
+public class HeapKeyIndex implements TransactionKeyIndex {
+
+    // compute is atomic here, unlike on a skip-list map, so a scope emptied by one writer is never dropped while
+    // another adds to it; names keeps the scopes sorted for prefix lookups and only changes inside that compute
+    private final Map<String, Keys> scopes = new ConcurrentHashMap<>();
+    private final NavigableSet<String> names = new ConcurrentSkipListSet<>();
+
+    // ConcurrentSkipListSet.size() walks the set, so each scope keeps its own count
+    private record Keys(NavigableSet<TransactionKey> set, AtomicInteger size) {
+        Keys() {
+            this(new ConcurrentSkipListSet<>(), new AtomicInteger());
+        }
+    }
+
+    @Override
+    public void add(String scope, TransactionKey key) {
+        scopes.compute(scope, (name, keys) -> {
+            if (keys == null) {
+                keys = new Keys();
+                names.add(name);
+            }
+            if (keys.set().add(key)) {
+                keys.size().incrementAndGet();
+            }
+            return keys;
+        });
+    }
+
+    @Override
+    public void remove(String scope, TransactionKey key) {
+        scopes.computeIfPresent(scope, (name, keys) -> {
+            if (keys.set().remove(key)) {
+                keys.size().decrementAndGet();
+            }
+            if (keys.size().get() > 0) {
+                return keys;
+            }
+            names.remove(name);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean contains(String scope, TransactionKey key) {
+        Keys keys = scopes.get(scope);
+        return keys != null && keys.set().contains(key);
+    }
+
+    @Override
+    public long count(String scope) {
+        Keys keys = scopes.get(scope);
+        return keys == null ? 0 : keys.size().get();
+    }
+
+    @Override
+    public List<String> scopes(String prefix) {
+        return new ArrayList<>(names.subSet(prefix, true, prefix + Character.MAX_VALUE, true));
+    }
+
+    @Override
+    public Iterator<TransactionKey> iterator(String scope, TransactionKey from, boolean inclusive, TransactionKey to) {
+        Keys keys = scopes.get(scope);
+        if (keys == null || from != null && to != null && from.compareTo(to) >= 0) {
+            return Collections.emptyIterator();
+        }
+        NavigableSet<TransactionKey> range = keys.set();
+        if (to != null) {
+            range = range.headSet(to, false);
+        }
+        if (from != null) {
+            range = range.tailSet(from, inclusive);
+        }
+        return range.iterator();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.model.Transaction;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps the {@link Transaction} instances themselves: reads return the stored object without copying.
+ */
+public class ObjectTransactionStore implements TransactionStore {
+
+    private final Map<String, Transaction> transactions = new ConcurrentHashMap<>();
+
+    @Override
+    public Transaction get(String id) {
+        return transactions.get(id);
+    }
+
+    @Override
+    public void compute(String id, BiFunction<String, Transaction, Transaction> remapping) {
+        transactions.compute(id, remapping);
+    }
+
+    @Override
+    public long size() {
+        return transactions.size();
+    }
+
+    @Override
+    public Iterator<Transaction> iterator() {
+        return transactions.values().iterator();
+    }
+}
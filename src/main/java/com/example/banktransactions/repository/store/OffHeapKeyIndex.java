@@ -0,0 +1,729 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.repository.TransactionKey;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps keys outside the Java heap, in a B+tree whose nodes are fixed-size blocks of direct {@link ByteBuffer} chunks:
+ * the heap holds one buffer per {@value #CHUNK_NODES} nodes and nothing per key.
+ * <p>
+ * Every entry is a single byte string compared unsigned: the scope in modified UTF-8, which has no zero bytes, a zero
+ * terminator, the time with its sign bit flipped and the id with one to three bytes per UTF-16 unit. Byte order is
+ * therefore {@link TransactionKey} order within a scope, and every scope, and every scope prefix, is one contiguous
+ * range of the tree.
+ * <p>
+ * Nodes are slotted pages: a header, fixed-size slots growing up and key bytes growing down from the end. Leaves are
+ * linked both ways for range scans. A full node is split in the middle, unless the new key is appended: to the node,
+ * when it starts the new node, or to a scope whose keys continue past it, when the split goes right after it. Keys
+ * mostly arrive in time order within each scope, and those splits leave full nodes behind. Nodes are never merged; a
+ * node that empties is unlinked and its block reused. One read/write lock guards the tree, and iterators take it once
+ * per batch.
+ */
+public class OffHeapKeyIndex implements TransactionKeyIndex {
+
+    public static final int DEFAULT_NODE_BYTES = 8192;
+    private static final int CHUNK_NODES = 32;
+    // iterators read a first page's worth of keys, then ever larger batches
+    private static final int FIRST_BATCH = 16;
+    private static final int MAX_BATCH = 1024;
+    private static final int MAX_DEPTH = 32;
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    // node header: [char kind][char count][char dataStart][char used][int link][int next], where link is the
+    // previous leaf of a leaf, the first child of an inner node and the next free node of a free one
+    private static final int HEADER_BYTES = 16;
+    // slot: [char offset][char length][int child]; the child of slot i holds the keys from key i up to key i + 1
+    private static final int SLOT_BYTES = 8;
+    private static final char LEAF = 1;
+    private static final char INNER = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int nodeBytes;
+    private final int maxKeyBytes;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    // nodes handed out from the chunks; node 0 is never used, so 0 means none
+    private int allocated = 1;
+    // head of the freed nodes, 0 when there are none
+    private int free;
+    private int root;
+
+    public OffHeapKeyIndex() {
+        this(DEFAULT_NODE_BYTES);
+    }
+
+    /**
+     * @param nodeBytes bytes per tree node, a multiple of 8 from 256 to 32 KiB; a key may use up to a quarter
+     */
+    public OffHeapKeyIndex(int nodeBytes) {
+        if (nodeBytes < 256 || nodeBytes > 32768 || nodeBytes % 8 != 0) {
+            throw new IllegalArgumentException("nodeBytes must be a multiple of 8 from 256 to 32768: " + nodeBytes);
+        }
+        this.nodeBytes = nodeBytes;
+        this.maxKeyBytes = (nodeBytes - HEADER_BYTES) / 4 - SLOT_BYTES;
+        this.root = allocate(LEAF);
+    }
+
+    @Override
+    public void add(String scope, TransactionKey key) {
+        byte[] entry = encode(scope, key);
+        if (entry.length > maxKeyBytes) {
+            throw new IllegalArgumentException("Index key of " + entry.length + " bytes exceeds " + maxKeyBytes);
+        }
+        lock.writeLock().lock();
+        try {
+            insert(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String scope, TransactionKey key) {
+        byte[] entry = encode(scope, key);
+        lock.writeLock().lock();
+        try {
+            delete(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(String scope, TransactionKey key) {
+        byte[] entry = encode(scope, key);
+        lock.readLock().lock();
+        try {
+            int leaf = leafFor(entry);
+            int i = lowerBound(leaf, entry);
+            return i < count(leaf) && compare(leaf, i, entry) == 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Costs a descent plus one step per leaf of the scope.
+     */
+    @Override
+    public long count(String scope) {
+        byte[] low = bound(scope, 0);
+        byte[] high = bound(scope, 1);
+        lock.readLock().lock();
+        try {
+            int leaf = leafFor(low);
+            int i = lowerBound(leaf, low);
+            long count = 0;
+            while (leaf != 0) {
+                int n = count(leaf);
+                if (n == 0 || compare(leaf, n - 1, high) >= 0) {
+                    return count + lowerBound(leaf, high) - i;
+                }
+                count += n - i;
+                leaf = nextLeaf(leaf);
+                i = 0;
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> scopes(String prefix) {
+        byte[] start = new byte[encodedLength(prefix, true)];
+        encode(prefix, true, start, 0);
+        List<String> scopes = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            byte[] position = start;
+            while (true) {
+                int leaf = leafFor(position);
+                int i = lowerBound(leaf, position);
+                if (i == count(leaf)) {
+                    leaf = nextLeaf(leaf);
+                    i = 0;
+                    if (leaf == 0) {
+                        return scopes;
+                    }
+                }
+                byte[] key = key(leaf, i);
+                if (key.length < start.length
+                        || Arrays.mismatch(key, 0, start.length, start, 0, start.length) >= 0) {
+                    return scopes;
+                }
+                int end = start.length;
+                while (key[end] != 0) {
+                    end++;
+                }
+                scopes.add(decode(key, 0, end));
+                // the smallest entry past every key of this scope
+                position = Arrays.copyOf(key, end + 1);
+                position[end] = 1;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<TransactionKey> iterator(String scope, TransactionKey from, boolean inclusive, TransactionKey to) {
+        return new Cursor(scope, from, inclusive, to, 0);
+    }
+
+    /**
+     * Skips whole leaves by their key count, without reading the keys.
+     */
+    @Override
+    public Iterator<TransactionKey> iterator(String scope, TransactionKey from, boolean inclusive, TransactionKey to,
+                                             long skip) {
+        return new Cursor(scope, from, inclusive, to, skip);
+    }
+
+    /**
+     * Direct memory taken by the tree's chunks, including freed nodes.
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) chunks.size() * CHUNK_NODES * nodeBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the keys from where the last batch ended, so writes between batches are seen or skipped like in a
+     * concurrent skip list, never at the cost of a key that was there all along.
+     */
+    private final class Cursor implements Iterator<TransactionKey> {
+
+        private final int scopeLength;
+        private final byte[] end;
+        private byte[] position;
+        private boolean inclusive;
+        private long skip;
+        private int batchSize = FIRST_BATCH;
+        private boolean exhausted;
+        private Iterator<TransactionKey> batch = Collections.emptyIterator();
+
+        Cursor(String scope, TransactionKey from, boolean inclusive, TransactionKey to, long skip) {
+            this.scopeLength = bound(scope, 0).length;
+            this.end = to == null ? bound(scope, 1) : encode(scope, to);
+            this.position = from == null ? bound(scope, 0) : encode(scope, from);
+            this.inclusive = from == null || inclusive;
+            this.skip = skip;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!batch.hasNext() && !exhausted) {
+                batch = fetch();
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public TransactionKey next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+        private Iterator<TransactionKey> fetch() {
+            List<TransactionKey> keys = new ArrayList<>(batchSize);
+            lock.readLock().lock();
+            try {
+                int leaf = leafFor(position);
+                int i = lowerBound(leaf, position);
+                if (!inclusive && i < count(leaf) && compare(leaf, i, position) == 0) {
+                    i++;
+                }
+                while (skip > 0 && leaf != 0) {
+                    int n = count(leaf);
+                    int available = (i < n && compare(leaf, n - 1, end) >= 0 ? lowerBound(leaf, end) : n) - i;
+                    if (skip < available) {
+                        i += (int) skip;
+                        skip = 0;
+                    } else if (available < n - i) {
+                        // the range ends in this leaf
+                        skip = 0;
+                        exhausted = true;
+                        return Collections.emptyIterator();
+                    } else {
+                        skip -= available;
+                        leaf = nextLeaf(leaf);
+                        i = 0;
+                    }
+                }
+                while (keys.size() < batchSize) {
+                    if (leaf != 0 && i == count(leaf)) {
+                        leaf = nextLeaf(leaf);
+                        i = 0;
+                    }
+                    if (leaf == 0 || compare(leaf, i, end) >= 0) {
+                        exhausted = true;
+                        break;
+                    }
+                    keys.add(decodeKey(leaf, i++, scopeLength));
+                }
+                if (!exhausted) {
+                    position = key(leaf, i - 1);
+                    inclusive = false;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            batchSize = Math.min(batchSize * 2, MAX_BATCH);
+            return keys.iterator();
+        }
+    }
+
+    // tree operations; callers hold the lock
+
+    private int leafFor(byte[] key) {
+        int node = root;
+        while (kind(node) == INNER) {
+            node = child(node, route(node, key));
+        }
+        return node;
+    }
+
+    private void insert(byte[] key) {
+        int[] path = new int[MAX_DEPTH];
+        int depth = 0;
+        int node = root;
+        while (kind(node) == INNER) {
+            path[depth++] = node;
+            node = child(node, route(node, key));
+        }
+        int i = lowerBound(node, key);
+        if (i < count(node) && compare(node, i, key) == 0) {
+            return;
+        }
+        int child = 0;
+        while (!fits(node, key.length)) {
+            Split split = split(node, i, key, child);
+            key = split.separator();
+            child = split.right();
+            if (depth == 0) {
+                root = allocate(INNER);
+                setLink(root, node);
+                node = root;
+                i = 0;
+            } else {
+                node = path[--depth];
+                i = lowerBound(node, key);
+            }
+        }
+        put(node, i, key, child);
+    }
+
+    private void delete(byte[] key) {
+        int[] path = new int[MAX_DEPTH];
+        int[] routes = new int[MAX_DEPTH];
+        int depth = 0;
+        int node = root;
+        while (kind(node) == INNER) {
+            path[depth] = node;
+            routes[depth] = route(node, key);
+            node = child(node, routes[depth++]);
+        }
+        int i = lowerBound(node, key);
+        if (i == count(node) || compare(node, i, key) != 0) {
+            return;
+        }
+        removeSlot(node, i);
+        if (count(node) > 0 || node == root) {
+            return;
+        }
+        int previous = link(node);
+        int next = nextLeaf(node);
+        if (previous != 0) {
+            setNextLeaf(previous, next);
+        }
+        if (next != 0) {
+            setLink(next, previous);
+        }
+        release(node);
+        // drop the emptied node from its parent, and any parent left without children from its own
+        while (true) {
+            int parent = path[--depth];
+            int route = routes[depth];
+            if (route >= 0) {
+                removeSlot(parent, route);
+            } else if (count(parent) > 0) {
+                setLink(parent, child(parent, 0));
+                removeSlot(parent, 0);
+            } else {
+                release(parent);
+                if (parent == root) {
+                    root = allocate(LEAF);
+                    return;
+                }
+                continue;
+            }
+            break;
+        }
+        while (kind(root) == INNER && count(root) == 0) {
+            int old = root;
+            root = link(old);
+            release(old);
+        }
+    }
+
+    // a new right sibling and the key that separates it from the split node in their parent
+    private record Split(byte[] separator, int right) {
+    }
+
+    /**
+     * Moves the upper part of a full node, with the new entry at {@code i}, into a new right sibling.
+     */
+    private Split split(int node, int i, byte[] key, int child) {
+        int n = count(node);
+        byte[][] keys = new byte[n + 1][];
+        int[] children = new int[n + 1];
+        for (int j = 0, k = 0; j <= n; j++) {
+            if (j == i) {
+                keys[j] = key;
+                children[j] = child;
+            } else {
+                keys[j] = key(node, k);
+                children[j] = childAt(node, k++);
+            }
+        }
+        int s = n;
+        if (i < n && i > 0 && sameScope(keys[i - 1], key) && !sameScope(key, keys[i + 1])
+                && bytes(keys, 0, i + 1) <= nodeBytes - HEADER_BYTES) {
+            // appended to a scope whose run continues in other nodes: the run keeps growing here, the scopes
+            // after it move out
+            s = i + 1;
+        } else if (i < n) {
+            int total = bytes(keys, 0, n + 1);
+            int left = 0;
+            s = 0;
+            while (left < total / 2) {
+                left += SLOT_BYTES + keys[s++].length;
+            }
+        }
+        int right = allocate(kind(node));
+        rewrite(node, keys, children, 0, s);
+        if (kind(node) == LEAF) {
+            rewrite(right, keys, children, s, n + 1);
+            int next = nextLeaf(node);
+            setLink(right, node);
+            setNextLeaf(right, next);
+            if (next != 0) {
+                setLink(next, right);
+            }
+            setNextLeaf(node, right);
+        } else {
+            // an inner node's separator moves up: its child becomes the new node's first child
+            rewrite(right, keys, children, s + 1, n + 1);
+            setLink(right, children[s]);
+        }
+        return new Split(keys[s], right);
+    }
+
+    private static int bytes(byte[][] keys, int from, int to) {
+        int bytes = 0;
+        for (int j = from; j < to; j++) {
+            bytes += SLOT_BYTES + keys[j].length;
+        }
+        return bytes;
+    }
+
+    private static boolean sameScope(byte[] a, byte[] b) {
+        int terminator = 0;
+        while (a[terminator] != 0) {
+            terminator++;
+        }
+        return b.length > terminator && Arrays.mismatch(a, 0, terminator + 1, b, 0, terminator + 1) < 0;
+    }
+
+    private boolean fits(int node, int keyLength) {
+        return nodeBytes - HEADER_BYTES - (count(node) + 1) * SLOT_BYTES - used(node) - keyLength >= 0;
+    }
+
+    private void put(int node, int i, byte[] key, int child) {
+        int n = count(node);
+        if (dataStart(node) - HEADER_BYTES - (n + 1) * SLOT_BYTES < key.length) {
+            compact(node);
+        }
+        ByteBuffer chunk = chunk(node);
+        for (int j = n; j > i; j--) {
+            chunk.putLong(slot(node, j), chunk.getLong(slot(node, j - 1)));
+        }
+        int data = dataStart(node) - key.length;
+        chunk.put(base(node) + data, key);
+        writeSlot(node, i, data, key.length, child);
+        chunk.putChar(base(node) + 2, (char) (n + 1));
+        chunk.putChar(base(node) + 4, (char) data);
+        chunk.putChar(base(node) + 6, (char) (used(node) + key.length));
+    }
+
+    // leaves the key bytes in place; put compacts the node once the gap runs out
+    private void removeSlot(int node, int i) {
+        ByteBuffer chunk = chunk(node);
+        int n = count(node);
+        int length = chunk.getChar(slot(node, i) + 2);
+        for (int j = i; j < n - 1; j++) {
+            chunk.putLong(slot(node, j), chunk.getLong(slot(node, j + 1)));
+        }
+        chunk.putChar(base(node) + 2, (char) (n - 1));
+        chunk.putChar(base(node) + 6, (char) (used(node) - length));
+        if (n == 1) {
+            chunk.putChar(base(node) + 4, (char) nodeBytes);
+        }
+    }
+
+    private void compact(int node) {
+        int n = count(node);
+        byte[][] keys = new byte[n][];
+        int[] children = new int[n];
+        for (int j = 0; j < n; j++) {
+            keys[j] = key(node, j);
+            children[j] = childAt(node, j);
+        }
+        rewrite(node, keys, children, 0, n);
+    }
+
+    private void rewrite(int node, byte[][] keys, int[] children, int from, int to) {
+        ByteBuffer chunk = chunk(node);
+        int data = nodeBytes;
+        int used = 0;
+        for (int j = from; j < to; j++) {
+            data -= keys[j].length;
+            used += keys[j].length;
+            chunk.put(base(node) + data, keys[j]);
+            writeSlot(node, j - from, data, keys[j].length, children[j]);
+        }
+        chunk.putChar(base(node) + 2, (char) (to - from));
+        chunk.putChar(base(node) + 4, (char) data);
+        chunk.putChar(base(node) + 6, (char) used);
+    }
+
+    private int allocate(char kind) {
+        int node = free;
+        if (node != 0) {
+            free = link(node);
+        } else {
+            node = allocated++;
+            if (node / CHUNK_NODES == chunks.size()) {
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_NODES * nodeBytes));
+            }
+        }
+        ByteBuffer chunk = chunk(node);
+        int base = base(node);
+        chunk.putChar(base, kind);
+        chunk.putChar(base + 2, (char) 0);
+        chunk.putChar(base + 4, (char) nodeBytes);
+        chunk.putChar(base + 6, (char) 0);
+        chunk.putInt(base + 8, 0);
+        chunk.putInt(base + 12, 0);
+        return node;
+    }
+
+    private void release(int node) {
+        chunk(node).putChar(base(node), (char) 0);
+        setLink(node, free);
+        free = node;
+    }
+
+    // first slot whose key is not less than key
+    private int lowerBound(int node, byte[] key) {
+        int low = 0;
+        int high = count(node);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(node, mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // the slot of an inner node whose child covers key, -1 for the first child
+    private int route(int node, byte[] key) {
+        int i = lowerBound(node, key);
+        return i < count(node) && compare(node, i, key) == 0 ? i : i - 1;
+    }
+
+    private int child(int node, int route) {
+        return route < 0 ? link(node) : childAt(node, route);
+    }
+
+    private int compare(int node, int i, byte[] key) {
+        ByteBuffer chunk = chunk(node);
+        int slot = slot(node, i);
+        int offset = base(node) + chunk.getChar(slot);
+        int length = chunk.getChar(slot + 2);
+        int common = Math.min(length, key.length);
+        int j = 0;
+        for (; j + 8 <= common; j += 8) {
+            long stored = chunk.getLong(offset + j);
+            long probe = (long) LONGS.get(key, j);
+            if (stored != probe) {
+                return Long.compareUnsigned(stored, probe);
+            }
+        }
+        for (; j < common; j++) {
+            int difference = (chunk.get(offset + j) & 0xFF) - (key[j] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private byte[] key(int node, int i) {
+        ByteBuffer chunk = chunk(node);
+        int slot = slot(node, i);
+        byte[] key = new byte[chunk.getChar(slot + 2)];
+        chunk.get(base(node) + chunk.getChar(slot), key);
+        return key;
+    }
+
+    private void writeSlot(int node, int i, int offset, int length, int child) {
+        ByteBuffer chunk = chunk(node);
+        int slot = slot(node, i);
+        chunk.putChar(slot, (char) offset);
+        chunk.putChar(slot + 2, (char) length);
+        chunk.putInt(slot + 4, child);
+    }
+
+    private ByteBuffer chunk(int node) {
+        return chunks.get(node / CHUNK_NODES);
+    }
+
+    private int base(int node) {
+        return node % CHUNK_NODES * nodeBytes;
+    }
+
+    private int slot(int node, int i) {
+        return base(node) + HEADER_BYTES + i * SLOT_BYTES;
+    }
+
+    private char kind(int node) {
+        return chunk(node).getChar(base(node));
+    }
+
+    private int count(int node) {
+        return chunk(node).getChar(base(node) + 2);
+    }
+
+    private int dataStart(int node) {
+        return chunk(node).getChar(base(node) + 4);
+    }
+
+    private int used(int node) {
+        return chunk(node).getChar(base(node) + 6);
+    }
+
+    private int link(int node) {
+        return chunk(node).getInt(base(node) + 8);
+    }
+
+    private void setLink(int node, int link) {
+        chunk(node).putInt(base(node) + 8, link);
+    }
+
+    private int nextLeaf(int node) {
+        return chunk(node).getInt(base(node) + 12);
+    }
+
+    private void setNextLeaf(int node, int next) {
+        chunk(node).putInt(base(node) + 12, next);
+    }
+
+    private int childAt(int node, int i) {
+        return chunk(node).getInt(slot(node, i) + 4);
+    }
+
+    // entry encoding
+
+    private static byte[] encode(String scope, TransactionKey key) {
+        int scopeLength = encodedLength(scope, true);
+        byte[] entry = new byte[scopeLength + 9 + encodedLength(key.id(), false)];
+        encode(scope, true, entry, 0);
+        ByteBuffer.wrap(entry).putLong(scopeLength + 1, key.timeMicros() ^ Long.MIN_VALUE);
+        encode(key.id(), false, entry, scopeLength + 9);
+        return entry;
+    }
+
+    // the scope and its terminator: 0 sorts before every key of the scope, 1 after all of them
+    private static byte[] bound(String scope, int terminator) {
+        byte[] bound = new byte[encodedLength(scope, true) + 1];
+        bound[encode(scope, true, bound, 0)] = (byte) terminator;
+        return bound;
+    }
+
+    private TransactionKey decodeKey(int node, int i, int scopeLength) {
+        ByteBuffer chunk = chunk(node);
+        int slot = slot(node, i);
+        int offset = base(node) + chunk.getChar(slot);
+        byte[] id = new byte[chunk.getChar(slot + 2) - scopeLength - 8];
+        chunk.get(offset + scopeLength + 8, id);
+        return new TransactionKey(chunk.getLong(offset + scopeLength) ^ Long.MIN_VALUE, decode(id, 0, id.length));
+    }
+
+    // zeroFree encodes U+0000 in two bytes, as modified UTF-8 does, so scopes never contain the terminator
+    private static int encodedLength(String value, boolean zeroFree) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c < 0x80 && (c != 0 || !zeroFree) ? 1 : c < 0x800 ? 2 : 3;
+        }
+        return length;
+    }
+
+    private static int encode(String value, boolean zeroFree, byte[] target, int at) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80 && (c != 0 || !zeroFree)) {
+                target[at++] = (byte) c;
+            } else if (c < 0x800) {
+                target[at++] = (byte) (0xC0 | c >> 6);
+                target[at++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                target[at++] = (byte) (0xE0 | c >> 12);
+                target[at++] = (byte) (0x80 | c >> 6 & 0x3F);
+                target[at++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return at;
+    }
+
+    private static String decode(byte[] bytes, int from, int to) {
+        char[] chars = new char[to - from];
+        int length = 0;
+        for (int i = from; i < to; length++) {
+            int b = bytes[i] & 0xFF;
+            if (b < 0x80) {
+                chars[length] = (char) b;
+                i++;
+            } else if (b < 0xE0) {
+                chars[length] = (char) ((b & 0x1F) << 6 | bytes[i + 1] & 0x3F);
+                i += 2;
+            } else {
+                chars[length] = (char) ((b & 0x0F) << 12 | (bytes[i + 1] & 0x3F) << 6 | bytes[i + 2] & 0x3F);
+                i += 3;
+            }
+        }
+        return new String(chars, 0, length);
+    }
+}
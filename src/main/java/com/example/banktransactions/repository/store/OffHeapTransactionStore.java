@@ -0,0 +1,491 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.TransactionKey;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+/**
+ * Keeps every row outside the Java heap, in direct {@link ByteBuffer} pages, so the heap cost of the store does
+ * not grow with the number of rows. The store is split into segments by id hash; each segment has its own
+ * lock, arena and off-heap open-addressing hash table from id to record address. The repository's index keys
+ * go off-heap as well, into {@link OffHeapKeyIndex}es.
+ * <p>
+ * Records are written into blocks rounded up to a size class. A deleted or outgrown block goes onto its class's
+ * free list, threaded through the free blocks themselves, and is handed out again before the arena grows. Rows
+ * are decoded into a new {@link Transaction} on every read.
+ * <p>
+ * Direct memory is limited by {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ */
+public class OffHeapTransactionStore implements TransactionStore {
+
+    public static final int DEFAULT_SEGMENTS = 16;
+    public static final int DEFAULT_PAGE_SIZE = 4 << 20;
+
+    // block header: [int blockSize][int payloadLength], payloadLength is FREE for unused blocks
+    private static final int HEADER_BYTES = 8;
+    private static final int FREE = -1;
+    private static final int NULL_LENGTH = -1;
+    // blocks are multiples of 16 bytes up to 1 KiB, powers of two above
+    private static final int SMALL_CLASSES = 64;
+
+    private final Segment[] segments;
+    private final int pageSize;
+
+    public OffHeapTransactionStore() {
+        this(DEFAULT_SEGMENTS, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param segments number of independently locked segments, a power of two
+     * @param pageSize bytes per arena page; also the largest record that can be stored
+     */
+    public OffHeapTransactionStore(int segments, int pageSize) {
+        if (Integer.bitCount(segments) != 1) {
+            throw new IllegalArgumentException("segments must be a power of two: " + segments);
+        }
+        if (pageSize < 1024 || pageSize % 16 != 0) {
+            throw new IllegalArgumentException("pageSize must be a multiple of 16 and at least 1 KiB: " + pageSize);
+        }
+        this.pageSize = pageSize;
+        this.segments = new Segment[segments];
+        for (int i = 0; i < segments; i++) {
+            this.segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public Transaction get(String id) {
+        int hash = hash(id);
+        Segment segment = segmentFor(hash);
+        segment.lock.readLock().lock();
+        try {
+            long address = segment.index.find(hash, id);
+            return address == 0 ? null : segment.decode(address);
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void compute(String id, BiFunction<String, Transaction, Transaction> remapping) {
+        int hash = hash(id);
+        Segment segment = segmentFor(hash);
+        segment.lock.writeLock().lock();
+        try {
+            segment.compute(hash, id, remapping);
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                size += segment.index.size;
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public TransactionKeyIndex newKeyIndex() {
+        return new OffHeapKeyIndex();
+    }
+
+    /**
+     * Direct memory in use by blocks (live or on a free list) and hash tables; the unused tail of each segment's
+     * current page is not counted.
+     */
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                int pages = segment.pages.size();
+                bytes += pages == 0 ? 0 : (long) (pages - 1) * pageSize + segment.top;
+                bytes += segment.index.table.capacity();
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Walks the arenas one page at a time, decoding only that page's live rows under the segment's read lock.
+     * A row that is not written during the walk is returned exactly once; rows written concurrently may be
+     * missed or returned twice.
+     */
+    @Override
+    public Iterator<Transaction> iterator() {
+        return new Iterator<>() {
+            private int segment;
+            private int page;
+            private Iterator<Transaction> batch = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!batch.hasNext()) {
+                    if (segment == segments.length) {
+                        return false;
+                    }
+                    List<Transaction> rows = segments[segment].decodePage(page);
+                    if (rows == null) {
+                        segment++;
+                        page = 0;
+                    } else {
+                        page++;
+                        batch = rows.iterator();
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Transaction next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.next();
+            }
+        };
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> 24) & (segments.length - 1)];
+    }
+
+    private static int sizeClass(int bytes) {
+        if (bytes <= SMALL_CLASSES * 16) {
+            return (bytes - 1) >>> 4;
+        }
+        return SMALL_CLASSES + (32 - Integer.numberOfLeadingZeros(bytes - 1)) - 10;
+    }
+
+    private static int classSize(int sizeClass) {
+        return sizeClass < SMALL_CLASSES ? (sizeClass + 1) << 4 : 1 << (sizeClass - SMALL_CLASSES + 10);
+    }
+
+    private final class Segment {
+
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        final HashIndex index = new HashIndex();
+        final List<ByteBuffer> pages = new ArrayList<>();
+        // bytes used in the last page
+        int top = pageSize;
+        // head address of each size class's free list, 0 when empty
+        final long[] freeLists = new long[sizeClass(pageSize) + 1];
+
+        void compute(int hash, String id, BiFunction<String, Transaction, Transaction> remapping) {
+            long address = index.find(hash, id);
+            Transaction current = address == 0 ? null : decode(address);
+            Transaction next = remapping.apply(id, current);
+            if (next == current) {
+                return;
+            }
+            if (next == null) {
+                index.remove(hash, id);
+                free(address);
+                return;
+            }
+            byte[] payload = encode(id, next);
+            if (address != 0 && blockSize(address) >= HEADER_BYTES + payload.length) {
+                write(address, payload);
+                return;
+            }
+            long target = allocate(HEADER_BYTES + payload.length);
+            write(target, payload);
+            if (address == 0) {
+                index.insert(hash, target);
+            } else {
+                index.replace(hash, address, target);
+                free(address);
+            }
+        }
+
+        long allocate(int bytes) {
+            if (bytes > pageSize) {
+                throw new IllegalArgumentException("Transaction record of " + bytes + " bytes exceeds the page size");
+            }
+            int sizeClass = sizeClass(bytes);
+            long head = freeLists[sizeClass];
+            if (head != 0) {
+                freeLists[sizeClass] = page(head).getLong(offset(head) + HEADER_BYTES);
+                return head;
+            }
+            int size = Math.min(classSize(sizeClass), pageSize);
+            if (top + size > pageSize) {
+                if (top < pageSize) {
+                    // close the page with a free filler block so page walks can step over the unused tail
+                    ByteBuffer last = pages.get(pages.size() - 1);
+                    last.putInt(top, pageSize - top);
+                    last.putInt(top + 4, FREE);
+                }
+                pages.add(ByteBuffer.allocateDirect(pageSize));
+                top = 0;
+            }
+            long address = address(pages.size() - 1, top);
+            page(address).putInt(top, size);
+            top += size;
+            return address;
+        }
+
+        void free(long address) {
+            ByteBuffer page = page(address);
+            int offset = offset(address);
+            int sizeClass = sizeClass(page.getInt(offset));
+            page.putInt(offset + 4, FREE);
+            page.putLong(offset + HEADER_BYTES, freeLists[sizeClass]);
+            freeLists[sizeClass] = address;
+        }
+
+        int blockSize(long address) {
+            return page(address).getInt(offset(address));
+        }
+
+        void write(long address, byte[] payload) {
+            ByteBuffer page = page(address);
+            int offset = offset(address);
+            page.putInt(offset + 4, payload.length);
+            page.put(offset + HEADER_BYTES, payload);
+        }
+
+        Transaction decode(long address) {
+            ByteBuffer page = page(address);
+            int offset = offset(address);
+            int length = page.getInt(offset + 4);
+            return OffHeapTransactionStore.decode(page.slice(offset + HEADER_BYTES, length));
+        }
+
+        /**
+         * Live rows of one page, or null past the last page.
+         */
+        List<Transaction> decodePage(int pageIndex) {
+            lock.readLock().lock();
+            try {
+                if (pageIndex >= pages.size()) {
+                    return null;
+                }
+                ByteBuffer page = pages.get(pageIndex);
+                int end = pageIndex == pages.size() - 1 ? top : pageSize;
+                List<Transaction> rows = new ArrayList<>();
+                for (int offset = 0; offset < end; offset += page.getInt(offset)) {
+                    if (page.getInt(offset + 4) != FREE) {
+                        rows.add(decode(address(pageIndex, offset)));
+                    }
+                }
+                return rows;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        boolean idEquals(long address, byte[] id) {
+            ByteBuffer page = page(address);
+            int offset = offset(address) + HEADER_BYTES;
+            if (page.getInt(offset) != id.length) {
+                return false;
+            }
+            return page.slice(offset + 4, id.length).equals(ByteBuffer.wrap(id));
+        }
+
+        ByteBuffer page(long address) {
+            return pages.get((int) (address >>> 32) - 1);
+        }
+
+        /**
+         * Open-addressing table of {@code [long address][int hash][int unused]} entries with linear probing and
+         * backward-shift deletion; address 0 marks an empty entry.
+         */
+        final class HashIndex {
+
+            private static final int ENTRY_BYTES = 16;
+
+            ByteBuffer table = ByteBuffer.allocateDirect(1024 * ENTRY_BYTES);
+            int mask = 1023;
+            int size;
+
+            long find(int hash, String id) {
+                byte[] key = null;
+                for (int i = hash & mask; ; i = (i + 1) & mask) {
+                    long address = table.getLong(i * ENTRY_BYTES);
+                    if (address == 0) {
+                        return 0;
+                    }
+                    if (table.getInt(i * ENTRY_BYTES + 8) == hash) {
+                        if (key == null) {
+                            key = id.getBytes(StandardCharsets.UTF_8);
+                        }
+                        if (idEquals(address, key)) {
+                            return address;
+                        }
+                    }
+                }
+            }
+
+            void insert(int hash, long address) {
+                if (size + 1 > (mask + 1) * 0.7) {
+                    resize();
+                }
+                int i = hash & mask;
+                while (table.getLong(i * ENTRY_BYTES) != 0) {
+                    i = (i + 1) & mask;
+                }
+                table.putLong(i * ENTRY_BYTES, address);
+                table.putInt(i * ENTRY_BYTES + 8, hash);
+                size++;
+            }
+
+            void replace(int hash, long address, long target) {
+                table.putLong(slotOf(hash, address) * ENTRY_BYTES, target);
+            }
+
+            void remove(int hash, String id) {
+                long address = find(hash, id);
+                int hole = slotOf(hash, address);
+                // shift later entries of the probe run back so lookups never stop at the hole
+                for (int i = (hole + 1) & mask; ; i = (i + 1) & mask) {
+                    long moving = table.getLong(i * ENTRY_BYTES);
+                    if (moving == 0) {
+                        break;
+                    }
+                    int home = table.getInt(i * ENTRY_BYTES + 8) & mask;
+                    if (((i - home) & mask) >= ((i - hole) & mask)) {
+                        table.putLong(hole * ENTRY_BYTES, moving);
+                        table.putInt(hole * ENTRY_BYTES + 8, table.getInt(i * ENTRY_BYTES + 8));
+                        hole = i;
+                    }
+                }
+                table.putLong(hole * ENTRY_BYTES, 0);
+                size--;
+            }
+
+            private int slotOf(int hash, long address) {
+                int i = hash & mask;
+                while (table.getLong(i * ENTRY_BYTES) != address) {
+                    i = (i + 1) & mask;
+                }
+                return i;
+            }
+
+            private void resize() {
+                ByteBuffer old = table;
+                int oldCapacity = mask + 1;
+                table = ByteBuffer.allocateDirect(oldCapacity * 2 * ENTRY_BYTES);
+                mask = oldCapacity * 2 - 1;
+                for (int j = 0; j < oldCapacity; j++) {
+                    long address = old.getLong(j * ENTRY_BYTES);
+                    if (address == 0) {
+                        continue;
+                    }
+                    int hash = old.getInt(j * ENTRY_BYTES + 8);
+                    int i = hash & mask;
+                    while (table.getLong(i * ENTRY_BYTES) != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    table.putLong(i * ENTRY_BYTES, address);
+                    table.putInt(i * ENTRY_BYTES + 8, hash);
+                }
+            }
+        }
+    }
+
+    private static long address(int pageIndex, int offset) {
+        return ((long) (pageIndex + 1) << 32) | offset;
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    // payload: id, accountId, type, description as [int length][utf-8], then [int scale][int length][unscaled],
+    // then [long timestamp micros][long version]; length -1 encodes null
+
+    private static byte[] encode(String id, Transaction transaction) {
+        byte[] rawId = utf8(id);
+        byte[] accountId = utf8(transaction.getAccountId());
+        byte[] type = utf8(transaction.getType());
+        byte[] description = utf8(transaction.getDescription());
+        BigDecimal amount = transaction.getAmount();
+        byte[] unscaled = amount == null ? null : amount.unscaledValue().toByteArray();
+        ByteBuffer payload = ByteBuffer.allocate(sizeOf(rawId) + sizeOf(accountId) + sizeOf(type)
+                + sizeOf(description) + 4 + sizeOf(unscaled) + 16);
+        put(payload, rawId);
+        put(payload, accountId);
+        put(payload, type);
+        put(payload, description);
+        payload.putInt(amount == null ? 0 : amount.scale());
+        put(payload, unscaled);
+        payload.putLong(TransactionKey.toMicros(transaction.getTimestamp()));
+        payload.putLong(transaction.getVersion());
+        return payload.array();
+    }
+
+    private static Transaction decode(ByteBuffer payload) {
+        Transaction transaction = new Transaction();
+        transaction.setId(string(payload));
+        transaction.setAccountId(string(payload));
+        transaction.setType(string(payload));
+        transaction.setDescription(string(payload));
+        int scale = payload.getInt();
+        byte[] unscaled = bytes(payload);
+        transaction.setAmount(unscaled == null ? null : new BigDecimal(new BigInteger(unscaled), scale));
+        long micros = payload.getLong();
+        transaction.setTimestamp(micros == Long.MIN_VALUE ? null : TransactionKey.fromMicros(micros));
+        transaction.setVersion(payload.getLong());
+        return transaction;
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] value) {
+        return 4 + (value == null ? 0 : value.length);
+    }
+
+    private static void put(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] value = bytes(buffer);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+}
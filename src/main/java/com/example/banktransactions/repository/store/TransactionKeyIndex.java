@@ -0,0 +1,45 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.repository.TransactionKey;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Sorted sets of {@link TransactionKey}s, one per scope. The in-memory repository keeps its time index under one
+ * scope, its account index under every accountId and its search postings under every token. Writes to one scope
+ * may run concurrently with writes to others; reads are weakly consistent, like the concurrent collections.
+ */
+public interface TransactionKeyIndex {
+
+    void add(String scope, TransactionKey key);
+
+    void remove(String scope, TransactionKey key);
+
+    boolean contains(String scope, TransactionKey key);
+
+    long count(String scope);
+
+    /**
+     * Every scope that starts with {@code prefix} and holds at least one key.
+     */
+    List<String> scopes(String prefix);
+
+    /**
+     * The keys of {@code scope} in order: from {@code from} (included only if {@code inclusive}; the first key when
+     * null) up to {@code to} exclusive (the last key when null).
+     */
+    Iterator<TransactionKey> iterator(String scope, TransactionKey from, boolean inclusive, TransactionKey to);
+
+    /**
+     * The same keys without the first {@code skip}, for offset pages.
+     */
+    default Iterator<TransactionKey> iterator(String scope, TransactionKey from, boolean inclusive, TransactionKey to,
+                                              long skip) {
+        Iterator<TransactionKey> keys = iterator(scope, from, inclusive, to);
+        for (long skipped = 0; skipped < skip && keys.hasNext(); skipped++) {
+            keys.next();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.model.Transaction;
+
+import java.util.function.BiFunction;
+
+/**
+ * Primary storage of the in-memory repository: transactions by id. Indexes, journaling and id generation stay
+ * in the repository; a store only has to keep rows and make {@link #compute} atomic per id. Implementations may
+ * keep rows in any layout and hand out a fresh {@link Transaction} on every read. The store also decides where
+ * the repository's index keys are kept, through {@link #newKeyIndex}.
+ */
+public interface TransactionStore extends Iterable<Transaction> {
+
+    Transaction get(String id);
+
+    /**
+     * Atomically replaces the row of {@code id}, like {@link java.util.concurrent.ConcurrentHashMap#compute}.
+     * The function receives the current row (null if absent) and returns the row to store, null to remove it,
+     * or the current row itself to leave it untouched. It runs at most once and may have side effects; calls
+     * for the same id are serialized.
+     */
+    void compute(String id, BiFunction<String, Transaction, Transaction> remapping);
+
+    long size();
+
+    /**
+     * A new, empty index for the repository's keys; by default on the heap.
+     */
+    default TransactionKeyIndex newKeyIndex() {
+        return new HeapKeyIndex();
+    }
+}
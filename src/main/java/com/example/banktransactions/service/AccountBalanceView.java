@@ -0,0 +1,127 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.model.AccountBalance;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-account running aggregate, updated with exact deltas as transactions are created, replaced or deleted.
+ * Each account's aggregate is an immutable value swapped with {@link ConcurrentHashMap#compute}, so writers to
+ * the same account serialize only on that account's entry. The repository write and its delta are not one atomic
+ * step, so a delete's delta can land before the create it undoes; deltas commute as long as an entry is only
+ * dropped once every total is back to zero, so concurrent writers still produce the same totals in any order.
+ * An entry whose count is not positive is such a transient and reads as absent.
+ * <p>
+ * Every write gives its account a new revision, for cache keys of the account's pages. Revisions come from one
+ * counter and are dropped with the account's entry; an account without an entry reads the revision taken when the
+ * last entry was dropped, so no revision is ever handed out twice for different contents.
+ * <p>
+ * The number of stored transactions is kept the same way, in a {@link LongAdder} that creates and deletes update
+ * without contending, so page responses can carry totals without a scan or a {@code COUNT(*)}.
+ */
+@Component
+public class AccountBalanceView {
+
+    private final Map<String, AccountBalance> balances = new ConcurrentHashMap<>();
+    // only accounts that have an entry in balances; updated inside that entry's compute
+    private final Map<String, Long> revisions = new ConcurrentHashMap<>();
+    private final AtomicLong lastRevision = new AtomicLong();
+    private volatile long absentRevision;
+    private final LongAdder total = new LongAdder();
+    private final TransactionRepository repository;
+
+    public AccountBalanceView(TransactionRepository repository) {
+        this.repository = repository;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        absentRevision = lastRevision.incrementAndGet();
+        balances.clear();
+        revisions.clear();
+        total.reset();
+        repository.forEach(transaction -> {
+            adjust(transaction, 1, transaction.getTimestamp());
+            total.increment();
+        });
+    }
+
+    public Optional<AccountBalance> get(String accountId) {
+        return Optional.ofNullable(balances.get(accountId)).filter(balance -> balance.getCount() > 0);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long count(String accountId) {
+        AccountBalance balance = balances.get(accountId);
+        return balance == null ? 0 : Math.max(0, balance.getCount());
+    }
+
+    /**
+     * Changes whenever any of the account's transactions does, and never returns to an earlier value.
+     */
+    public long revision(String accountId) {
+        Long revision = revisions.get(accountId);
+        return revision != null ? revision : absentRevision;
+    }
+
+    int trackedAccounts() {
+        return revisions.size();
+    }
+
+    /**
+     * Records one write: {@code before} is the value that was replaced or deleted (null for a create) and
+     * {@code after} the value now stored (null for a delete).
+     */
+    public void onChange(Transaction before, Transaction after) {
+        LocalDateTime activity = LocalDateTime.now();
+        if (before == null && after != null) {
+            total.increment();
+        } else if (before != null && after == null) {
+            total.decrement();
+        }
+        if (before != null) {
+            adjust(before, -1, activity);
+        }
+        if (after != null) {
+            adjust(after, 1, activity);
+        }
+    }
+
+    private void adjust(Transaction transaction, int sign, LocalDateTime activity) {
+        if (transaction.getAccountId() == null) {
+            return;
+        }
+        balances.compute(transaction.getAccountId(), (accountId, current) -> {
+            AccountBalance updated = (current == null ? AccountBalance.empty(accountId) : current)
+                    .apply(transaction, sign, activity);
+            long revision = lastRevision.incrementAndGet();
+            if (isEmpty(updated)) {
+                // the new absent revision first, so no reader falls back to the one pages were cached under before
+                absentRevision = revision;
+                revisions.remove(accountId);
+                return null;
+            }
+            revisions.put(accountId, revision);
+            return updated;
+        });
+    }
+
+    // only a balance no transaction contributes to can be forgotten; anything else still has deltas in flight
+    private static boolean isEmpty(AccountBalance balance) {
+        return balance.getCount() == 0 && balance.getBalance().signum() == 0
+                && balance.getDepositTotal().signum() == 0 && balance.getWithdrawalTotal().signum() == 0
+                && balance.getTransferTotal().signum() == 0;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.exception.IdempotencyKeyReusedException;
+import com.example.banktransactions.model.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the outcome of creates sent with an {@code Idempotency-Key}, so a client retrying after a timeout gets
+ * the transaction its first attempt created instead of a second one. Keys live in a Caffeine cache bounded by
+ * {@code transactions.idempotency.spec} (size and expiry). A replay is a lock-free cache read; the first attempt
+ * claims the key with one putIfAbsent, and retries racing it wait for its outcome. Failed attempts release the key.
+ */
+@Component
+public class IdempotencyStore {
+
+    static final String DEFAULT_SPEC = "maximumSize=100000,expireAfterWrite=24h";
+
+    private final Cache<String, Attempt> attempts;
+
+    public IdempotencyStore(@Value("${transactions.idempotency.spec:" + DEFAULT_SPEC + "}") String spec) {
+        this.attempts = Caffeine.from(spec).build();
+    }
+
+    /**
+     * Runs {@code create} the first time {@code key} is seen and returns its result for every later request with
+     * the same key and the same fields. The timestamp is left out of the comparison: it defaults to the time the
+     * request was read, which differs on every retry.
+     */
+    public Transaction execute(String key, Transaction request, Supplier<Transaction> create) {
+        Fingerprint fingerprint = Fingerprint.of(request);
+        Attempt attempt = attempts.getIfPresent(key);
+        if (attempt == null) {
+            Attempt mine = new Attempt(fingerprint, new CompletableFuture<>());
+            attempt = attempts.asMap().putIfAbsent(key, mine);
+            if (attempt == null) {
+                return run(key, mine, create);
+            }
+        }
+        if (!attempt.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyReusedException("Idempotency-Key " + key + " was already used for a different transaction");
+        }
+        try {
+            return attempt.result().join();
+        } catch (CompletionException e) {
+            // the first attempt failed and released the key; report its failure, a later retry runs again
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw (RuntimeException) e.getCause();
+        }
+    }
+
+    private Transaction run(String key, Attempt attempt, Supplier<Transaction> create) {
+        try {
+            Transaction created = create.get();
+            attempt.result().complete(created);
+            return created;
+        } catch (RuntimeException | Error e) {
+            // an Error too, or the retries waiting on this attempt would wait forever
+            attempts.asMap().remove(key, attempt);
+            attempt.result().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private record Attempt(Fingerprint fingerprint, CompletableFuture<Transaction> result) {
+    }
+
+    private record Fingerprint(String id, String accountId, BigDecimal amount, String type, String description) {
+
+        static Fingerprint of(Transaction transaction) {
+            BigDecimal amount = transaction.getAmount() == null ? null : transaction.getAmount().stripTrailingZeros();
+            return new Fingerprint(transaction.getId(), transaction.getAccountId(), amount,
+                    transaction.getType(), transaction.getDescription());
+        }
+    }
+}
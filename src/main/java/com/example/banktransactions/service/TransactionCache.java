@@ -0,0 +1,104 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.model.Transaction;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * The {@code transactions} cache, kept in step with the repository without a lock around both. Writes offer the
+ * row they stored and a cached row is only replaced by one with a higher version; a delete leaves a tombstone
+ * with the deleted version, so neither a writer that lost the race nor a lookup that read the row before the
+ * delete can put an older row back. A miss loads inside the entry's {@code compute}, so any write whose cache
+ * update comes later is ordered after the load. Only a Caffeine cache can be updated that way; with any other
+ * cache, e.g. when caching is disabled, lookups go straight to the loader. Cached rows are frozen.
+ */
+final class TransactionCache {
+
+    /**
+     * Stands in for a deleted row until a row with a higher version is written.
+     */
+    private record Deleted(long version) {
+    }
+
+    private final Cache<Object, Object> cache;
+    private final Predicate<Transaction> cacheable;
+
+    TransactionCache(org.springframework.cache.Cache cache, Predicate<Transaction> cacheable) {
+        this.cache = cache instanceof CaffeineCache caffeine ? caffeine.getNativeCache() : null;
+        this.cacheable = cacheable;
+    }
+
+    Optional<Transaction> get(String id, Function<String, Optional<Transaction>> loader) {
+        if (cache == null) {
+            return loader.apply(id);
+        }
+        if (cache.getIfPresent(id) instanceof Transaction cached) {
+            return Optional.of(cached);
+        }
+        Transaction[] found = new Transaction[1];
+        cache.asMap().compute(id, (key, current) -> {
+            if (current instanceof Transaction cached) {
+                found[0] = cached;
+                return cached;
+            }
+            Transaction stored = loader.apply(id).orElse(null);
+            found[0] = stored;
+            return stored != null && cacheable.test(stored) && version(current) < stored.getVersion()
+                    ? stored.freeze() : current;
+        });
+        return Optional.ofNullable(found[0]);
+    }
+
+    /**
+     * Looks the ids up with one {@code getAllPresent} and loads the rest with one loader call; rows loaded that way
+     * are cached like writes, since they were read outside of their entries.
+     */
+    Map<String, Transaction> getAll(Collection<String> ids, Function<List<String>, Map<String, Transaction>> loader) {
+        if (cache == null) {
+            return loader.apply(List.copyOf(ids));
+        }
+        Map<Object, Object> present = cache.getAllPresent(ids);
+        Map<String, Transaction> found = new HashMap<>(ids.size() * 2);
+        List<String> misses = new ArrayList<>();
+        for (String id : ids) {
+            if (present.get(id) instanceof Transaction cached) {
+                found.put(id, cached);
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            Map<String, Transaction> loaded = loader.apply(misses);
+            loaded.values().forEach(this::stored);
+            found.putAll(loaded);
+        }
+        return found;
+    }
+
+    void stored(Transaction transaction) {
+        if (cache == null || !cacheable.test(transaction)) {
+            return;
+        }
+        cache.asMap().compute(transaction.getId(),
+                (id, current) -> version(current) < transaction.getVersion() ? transaction.freeze() : current);
+    }
+
+    void deleted(Transaction removed) {
+        if (cache == null) {
+            return;
+        }
+        cache.asMap().compute(removed.getId(),
+                (id, current) -> version(current) <= removed.getVersion() ? new Deleted(removed.getVersion()) : current);
+    }
+
+    private static long version(Object entry) {
+        if (entry instanceof Transaction transaction) {
+            return transaction.getVersion();
+        }
+        return entry instanceof Deleted deleted ? deleted.version() : Long.MIN_VALUE;
+    }
+}
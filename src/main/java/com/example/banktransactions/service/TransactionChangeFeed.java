@@ -0,0 +1,244 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.log.RateLimitedLog;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.model.TransactionChange;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes every create, update and delete to the subscribers following its account, or following everything, so
+ * clients stop polling account pages. The service publishes right after the repository write, whichever engine is
+ * configured, outside of it: the sequence orders publishes, not writes, so concurrent writes to one transaction may
+ * reach subscribers out of order and clients keep the change with the highest {@code version} per id.
+ * <p>
+ * Publishing never waits for a subscriber: each one has a bounded buffer of {@code transactions.feed.buffer-size}
+ * changes, drained by a virtual thread that exists only while there is something to send. A subscriber whose buffer
+ * is full is too slow to keep up and is shed: its stream is closed and the client has to reconnect and re-read what
+ * it missed. With no subscribers, publishing costs two map size checks.
+ */
+@Slf4j
+@Component
+public class TransactionChangeFeed implements MeterBinder {
+
+    /**
+     * The receiving end of a subscription, usually an HTTP stream. Calls for one subscription never overlap.
+     */
+    public interface Sink {
+
+        void send(TransactionChange change) throws IOException;
+
+        /**
+         * Keeps an idle stream alive through proxies and finds clients that went away.
+         */
+        void heartbeat() throws IOException;
+
+        /**
+         * The feed ended the subscription: it was shed, a write failed or the application is stopping.
+         */
+        void close();
+    }
+
+    private static final RateLimitedLog SHED_LOG = new RateLimitedLog(log, 10);
+    // queued like a change so it is written by the drain, in order, never concurrently with a send
+    private static final TransactionChange HEARTBEAT = new TransactionChange(0, null, null);
+
+    private final Map<String, Set<Subscription>> byAccount = new ConcurrentHashMap<>();
+    private final Set<Subscription> everything = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong subscribers = new AtomicLong();
+    private final LongAdder shed = new LongAdder();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final int bufferSize;
+
+    public TransactionChangeFeed(@Value("${transactions.feed.buffer-size:256}") int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Follows one account, or every account when {@code accountId} is null.
+     */
+    public Subscription subscribe(String accountId, Sink sink) {
+        Subscription subscription = new Subscription(accountId, sink);
+        if (accountId == null) {
+            everything.add(subscription);
+        } else {
+            // added under the entry's lock: remove() drops an emptied set, which must not be the one added to
+            byAccount.compute(accountId, (key, following) -> {
+                Set<Subscription> updated = following == null ? ConcurrentHashMap.newKeySet() : following;
+                updated.add(subscription);
+                return updated;
+            });
+        }
+        subscribers.incrementAndGet();
+        // the first write commits the response, so the client sees the stream open at once
+        subscription.offer(HEARTBEAT, false);
+        return subscription;
+    }
+
+    /**
+     * Called after every successful write with the stored row before and after it; null for a create or delete.
+     */
+    public void publish(Transaction previous, Transaction current) {
+        if (everything.isEmpty() && byAccount.isEmpty()) {
+            return;
+        }
+        TransactionChange.Type type = previous == null ? TransactionChange.Type.CREATED
+                : current == null ? TransactionChange.Type.DELETED : TransactionChange.Type.UPDATED;
+        Transaction transaction = current != null ? current : deleted(previous);
+        TransactionChange change = new TransactionChange(sequence.incrementAndGet(), type, transaction);
+        for (Subscription subscription : everything) {
+            subscription.offer(change, true);
+        }
+        Set<Subscription> following = transaction.getAccountId() == null ? null : byAccount.get(transaction.getAccountId());
+        if (following != null) {
+            for (Subscription subscription : following) {
+                subscription.offer(change, true);
+            }
+        }
+    }
+
+    /**
+     * The deleted row, one version past the stored one: an update's change carries the same version as the row it
+     * stored, and the delete of that row has to win over it.
+     */
+    private static Transaction deleted(Transaction previous) {
+        Transaction deleted = new Transaction(previous);
+        deleted.setVersion(previous.getVersion() + 1);
+        return deleted.freeze();
+    }
+
+    @Scheduled(initialDelayString = "${transactions.feed.heartbeat-ms:15000}",
+            fixedDelayString = "${transactions.feed.heartbeat-ms:15000}")
+    public void heartbeat() {
+        everything.forEach(subscription -> subscription.offer(HEARTBEAT, false));
+        byAccount.values().forEach(following -> following.forEach(subscription -> subscription.offer(HEARTBEAT, false)));
+    }
+
+    public long subscriberCount() {
+        return subscribers.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("transactions.feed.subscribers", subscribers, AtomicLong::get)
+                .description("Open change feed subscriptions")
+                .register(registry);
+        FunctionCounter.builder("transactions.feed.shed", shed, LongAdder::sum)
+                .description("Subscriptions closed because their buffer was full")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        everything.forEach(Subscription::end);
+        byAccount.values().forEach(following -> following.forEach(Subscription::end));
+        senders.shutdown();
+    }
+
+    private void remove(Subscription subscription) {
+        if (subscription.accountId == null) {
+            everything.remove(subscription);
+        } else {
+            byAccount.computeIfPresent(subscription.accountId, (key, following) -> {
+                following.remove(subscription);
+                return following.isEmpty() ? null : following;
+            });
+        }
+        subscribers.decrementAndGet();
+    }
+
+    public final class Subscription {
+
+        private final String accountId;
+        private final Sink sink;
+        private final BlockingQueue<TransactionChange> buffer;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private Subscription(String accountId, Sink sink) {
+            this.accountId = accountId;
+            this.sink = sink;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        /**
+         * Unsubscribes without closing the sink; for when the client side has already gone away.
+         */
+        public void cancel() {
+            if (cancelled.compareAndSet(false, true)) {
+                remove(this);
+            }
+        }
+
+        private void end() {
+            if (cancelled.compareAndSet(false, true)) {
+                remove(this);
+                sink.close();
+            }
+        }
+
+        private void offer(TransactionChange change, boolean shedWhenFull) {
+            if (cancelled.get()) {
+                return;
+            }
+            if (!buffer.offer(change)) {
+                if (shedWhenFull) {
+                    shed.increment();
+                    SHED_LOG.info("Shedding change feed subscriber of {}: buffer full", accountId == null ? "all accounts" : accountId);
+                    end();
+                }
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // stopping
+                    draining.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                TransactionChange change;
+                while (!cancelled.get() && (change = buffer.poll()) != null) {
+                    if (change == HEARTBEAT) {
+                        sink.heartbeat();
+                    } else {
+                        sink.send(change);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                end();
+                return;
+            } finally {
+                draining.set(false);
+            }
+            // a change offered after the last poll but before draining was cleared would otherwise wait for the next
+            if (!buffer.isEmpty() && !cancelled.get() && draining.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.model.Transaction;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes transactions one at a time as NDJSON or CSV (same columns {@link TransactionImportReader} reads),
+ * buffering at most one small block before it reaches the response stream.
+ */
+public final class TransactionExportWriter implements Closeable {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private static final String CSV_HEADER = "id,accountId,amount,type,description,timestamp\n";
+
+    private final Format format;
+    private final OutputStream out;
+    private final ObjectWriter jsonWriter;
+    private final StringBuilder line = new StringBuilder(256);
+
+    public TransactionExportWriter(Format format, OutputStream out, ObjectMapper objectMapper) throws IOException {
+        this.format = format;
+        this.out = new BufferedOutputStream(out, 1 << 16);
+        this.jsonWriter = objectMapper.writerFor(Transaction.class);
+        if (format == Format.CSV) {
+            this.out.write(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public void write(Transaction transaction) {
+        try {
+            if (format == Format.NDJSON) {
+                out.write(jsonWriter.writeValueAsBytes(transaction));
+                out.write('\n');
+                return;
+            }
+            line.setLength(0);
+            appendCsv(transaction.getId()).append(',');
+            appendCsv(transaction.getAccountId()).append(',');
+            appendCsv(transaction.getAmount() == null ? null : transaction.getAmount().toPlainString()).append(',');
+            appendCsv(transaction.getType()).append(',');
+            appendCsv(transaction.getDescription()).append(',');
+            appendCsv(transaction.getTimestamp() == null ? null : transaction.getTimestamp().toString()).append('\n');
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private StringBuilder appendCsv(String value) {
+        if (value == null) {
+            return line;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.model.Transaction;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * Reads transactions one record at a time from an NDJSON or CSV body, so an import never holds more than the
+ * current record. A record that cannot be parsed becomes a row carrying an error instead of ending the stream.
+ * <p>
+ * CSV input needs a header row naming the columns ({@code id, accountId, amount, type, description,
+ * timestamp}, any order, case-insensitive). Quoted fields may span lines, as {@link TransactionExportWriter}
+ * writes them; their line breaks are kept as they are. A row's line number is the line it starts on.
+ */
+public final class TransactionImportReader implements Iterator<TransactionImportReader.Row> {
+
+    public record Row(long line, Transaction transaction, String error) {
+    }
+
+    // an unterminated quote would otherwise read the rest of the body into one record
+    static final int MAX_RECORD_CHARS = 1 << 20;
+
+    private final BufferedReader reader;
+    private final BiFunction<TransactionImportReader, String, Transaction> parser;
+    private final boolean csv;
+    // lines read so far, and the line the current record started on
+    private long lineNumber;
+    private long recordLine;
+    private Row next;
+    private Map<String, Integer> csvColumns;
+    private String recordError;
+    // CSV records are scanned a character at a time, from this buffer rather than through the reader's lock
+    private final char[] buffer;
+    private int position;
+    private int limit;
+    private final StringBuilder record = new StringBuilder();
+
+    private TransactionImportReader(InputStream body, boolean csv,
+                                    BiFunction<TransactionImportReader, String, Transaction> parser) {
+        this.reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 1 << 16);
+        this.csv = csv;
+        this.parser = parser;
+        this.buffer = csv ? new char[1 << 16] : null;
+    }
+
+    public static TransactionImportReader ndjson(InputStream body, ObjectMapper objectMapper) {
+        ObjectReader transactionReader = objectMapper.readerFor(Transaction.class);
+        return new TransactionImportReader(body, false, (self, line) -> {
+            try {
+                return transactionReader.readValue(line);
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+            }
+        });
+    }
+
+    public static TransactionImportReader csv(InputStream body) {
+        return new TransactionImportReader(body, true, TransactionImportReader::parseCsv);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            String line;
+            while ((line = csv ? readCsvRecord() : readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (recordError != null) {
+                    next = new Row(recordLine, null, recordError);
+                    recordError = null;
+                    return true;
+                }
+                try {
+                    Transaction transaction = parser.apply(this, line);
+                    if (transaction == null) {
+                        continue;
+                    }
+                    next = new Row(recordLine, transaction, null);
+                } catch (RuntimeException e) {
+                    next = new Row(recordLine, null, e.getMessage());
+                }
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    private String readLine() throws IOException {
+        String line = reader.readLine();
+        recordLine = ++lineNumber;
+        return line;
+    }
+
+    /**
+     * The next CSV record without its line break, or null at the end of the body. Line breaks inside quotes belong
+     * to the field; an escaped quote ({@code ""}) toggles the quote state twice, so counting quotes is enough. A
+     * record that reaches {@link #MAX_RECORD_CHARS} is dropped up to the end of its current line and reported
+     * through {@code recordError}.
+     */
+    private String readCsvRecord() throws IOException {
+        record.setLength(0);
+        recordLine = lineNumber + 1;
+        boolean quoted = false;
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    c = read();
+                    if (quoted) {
+                        record.append('\r');
+                    }
+                }
+                lineNumber++;
+                if (!quoted) {
+                    return record.toString();
+                }
+            }
+            if (record.length() == MAX_RECORD_CHARS) {
+                if (c != '\n' && c != '\r') {
+                    skipLine();
+                }
+                recordError = quoted ? "Unterminated quoted field"
+                        : "Record is longer than " + MAX_RECORD_CHARS + " characters";
+                return record.toString();
+            }
+            record.append((char) c);
+        }
+        return record.isEmpty() && !quoted ? null : record.toString();
+    }
+
+    private void skipLine() throws IOException {
+        int c;
+        while ((c = read()) >= 0 && c != '\n') {
+            if (c == '\r' && peek() != '\n') {
+                break;
+            }
+        }
+        lineNumber++;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit < 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position];
+    }
+
+    private Transaction parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (csvColumns == null) {
+            csvColumns = new HashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                csvColumns.put(fields.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            return null;
+        }
+        Transaction transaction = new Transaction();
+        transaction.setId(column(fields, "id"));
+        transaction.setAccountId(column(fields, "accountid"));
+        transaction.setType(column(fields, "type"));
+        transaction.setDescription(column(fields, "description"));
+        String amount = column(fields, "amount");
+        try {
+            transaction.setAmount(amount == null ? null : new BigDecimal(amount.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount '" + amount + "'");
+        }
+        String timestamp = column(fields, "timestamp");
+        if (timestamp != null) {
+            transaction.setTimestamp(LocalDateTime.parse(timestamp.trim()));
+        }
+        return transaction;
+    }
+
+    private String column(List<String> fields, String name) {
+        Integer index = csvColumns.get(name);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
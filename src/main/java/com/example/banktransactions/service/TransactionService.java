@@ -1,76 +1,385 @@
 package com.example.banktransactions.service;
 
+import com.example.banktransactions.cluster.PageQuery;
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.model.AccountBalance;
+import com.example.banktransactions.model.BulkImportResult;
 import com.example.banktransactions.model.Transaction;
-import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import com.example.banktransactions.model.TransactionLookupResult;
+import com.example.banktransactions.repository.TransactionKey;
+import com.example.banktransactions.repository.TransactionRepository;
+import com.example.banktransactions.exception.NodeUnavailableException;
 import com.example.banktransactions.exception.TransactionAlreadyExistsException;
 import com.example.banktransactions.exception.TransactionNotFoundException;
+import com.example.banktransactions.exception.TransactionVersionConflictException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class TransactionService {
 
-    private final localMemoryTransactionRepository repository;
+    static final long INITIAL_VERSION = 1;
 
-    public TransactionService(localMemoryTransactionRepository repository) {
+    private final TransactionRepository repository;
+    private final AccountBalanceView balances;
+    private final IdempotencyStore idempotency;
+    private final TransactionChangeFeed feed;
+    private final TransactionCluster cluster;
+    private final TransactionCache transactions;
+    private final Validator validator;
+    private final int importBatchSize;
+    private final int exportChunkSize;
+
+    public TransactionService(TransactionRepository repository, AccountBalanceView balances,
+                              IdempotencyStore idempotency, TransactionChangeFeed feed, TransactionCluster cluster,
+                              CacheManager cacheManager, Validator validator,
+                              @Value("${transactions.import.batch-size:1000}") int importBatchSize,
+                              @Value("${transactions.export.chunk-size:1000}") int exportChunkSize) {
         this.repository = repository;
+        this.balances = balances;
+        this.idempotency = idempotency;
+        this.feed = feed;
+        this.cluster = cluster;
+        // a node caches only the transactions of the accounts it owns: it sees every write to them
+        this.transactions = new TransactionCache(cacheManager.getCache("transactions"),
+                transaction -> cluster.owns(transaction.getAccountId()));
+        this.validator = validator;
+        this.importBatchSize = importBatchSize;
+        this.exportChunkSize = exportChunkSize;
     }
 
     public Transaction createTransaction(Transaction transaction) {
-        if (transaction.getId() != null && repository.findById(transaction.getId()).isPresent()) {
+        if (!cluster.owns(transaction.getAccountId())) {
+            return cluster.create(transaction, null);
+        }
+        return insert(transaction);
+    }
+
+    /**
+     * Creates the transaction once per {@code idempotencyKey}: a retry with the same key returns the transaction
+     * the first request created. A null key behaves like {@link #createTransaction(Transaction)}. In cluster mode
+     * the key is remembered by the account's owner, which every retry reaches too.
+     */
+    public Transaction createTransaction(Transaction transaction, String idempotencyKey) {
+        if (!cluster.owns(transaction.getAccountId())) {
+            return cluster.create(transaction, idempotencyKey);
+        }
+        if (idempotencyKey == null) {
+            return insert(transaction);
+        }
+        return idempotency.execute(idempotencyKey, transaction, () -> insert(transaction));
+    }
+
+    private Transaction insert(Transaction transaction) {
+        transaction.setVersion(INITIAL_VERSION);
+        if (!repository.createIfAbsent(transaction)) {
             throw new TransactionAlreadyExistsException("Transaction with ID " + transaction.getId() + " already exists");
         }
-        return repository.create(transaction);
+        changed(null, transaction);
+        transactions.stored(transaction);
+        return transaction;
     }
 
-    @Cacheable(value = "transactions", key = "#id")
-    public Transaction getTransactionById(String id) {
-        return repository.findById(id)
-                .orElseThrow(() -> new TransactionNotFoundException("Transaction with ID " + id + " not found"));
+    /**
+     * Validates and inserts streamed rows in batches of {@code transactions.import.batch-size}. Invalid rows,
+     * rows whose id already exists and, in cluster mode, rows whose node is down are reported, not fatal.
+     */
+    public BulkImportResult importTransactions(Iterator<TransactionImportReader.Row> rows) {
+        BulkImportResult result = new BulkImportResult();
+        List<Transaction> batch = new ArrayList<>(importBatchSize);
+        Map<Transaction, Long> lines = new IdentityHashMap<>(importBatchSize * 2);
+        while (rows.hasNext()) {
+            TransactionImportReader.Row row = rows.next();
+            if (row.error() != null) {
+                result.reject(row.line(), null, row.error());
+                continue;
+            }
+            Set<ConstraintViolation<Transaction>> violations = validator.validate(row.transaction());
+            if (!violations.isEmpty()) {
+                result.reject(row.line(), row.transaction().getId(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+            row.transaction().setVersion(INITIAL_VERSION);
+            batch.add(row.transaction());
+            lines.put(row.transaction(), row.line());
+            if (batch.size() == importBatchSize) {
+                flushImportBatch(batch, lines, result);
+            }
+        }
+        flushImportBatch(batch, lines, result);
+        return result;
     }
 
-    public List<Transaction> getAllTransactions(int page, int size) {
-        return repository.findAll(page, size);
+    private void flushImportBatch(List<Transaction> batch, Map<Transaction, Long> lines, BulkImportResult result) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<Transaction, String> rejected = createTransactions(batch);
+        result.accept(batch.size() - rejected.size());
+        for (Transaction row : batch) {
+            String reason = rejected.get(row);
+            if (reason != null) {
+                result.reject(lines.get(row), row.getId(), reason);
+            }
+        }
+        batch.clear();
+        lines.clear();
     }
 
-    public List<Transaction> getTransactionsByAccountId(String accountId, int page, int size) {
-        return repository.findByAccountId(accountId, page, size);
+    /**
+     * Inserts a batch of validated rows, in cluster mode each on its account's owner. Returns the rows that were
+     * not inserted, by identity, with the reason: their id was taken, or their node could not be reached.
+     */
+    public Map<Transaction, String> createTransactions(List<Transaction> batch) {
+        if (!cluster.scatters()) {
+            return insertAll(batch);
+        }
+        Map<String, List<Transaction>> byOwner = new LinkedHashMap<>();
+        for (Transaction transaction : batch) {
+            byOwner.computeIfAbsent(cluster.owner(transaction.getAccountId()), owner -> new ArrayList<>()).add(transaction);
+        }
+        Map<Transaction, String> rejected = new IdentityHashMap<>();
+        for (Map.Entry<String, List<Transaction>> part : byOwner.entrySet()) {
+            List<Transaction> rows = part.getValue();
+            if (part.getKey().equals(cluster.self())) {
+                rejected.putAll(insertAll(rows));
+                continue;
+            }
+            try {
+                cluster.createAll(part.getKey(), rows).forEach((position, reason) -> rejected.put(rows.get(position), reason));
+            } catch (NodeUnavailableException e) {
+                rows.forEach(row -> rejected.put(row, e.getMessage()));
+            }
+        }
+        return rejected;
+    }
+
+    private Map<Transaction, String> insertAll(List<Transaction> batch) {
+        Map<Transaction, String> rejected = new IdentityHashMap<>();
+        for (Transaction conflict : repository.createAll(batch)) {
+            rejected.put(conflict, "Transaction with ID " + conflict.getId() + " already exists");
+        }
+        for (Transaction row : batch) {
+            if (!rejected.containsKey(row)) {
+                changed(null, row);
+            }
+        }
+        return rejected;
+    }
+
+    /**
+     * Empty for an unknown id, which is not cached, so probing for ids cannot push real transactions out. In
+     * cluster mode a node caches only the transactions of the accounts it owns, here and on every write: the owner
+     * sees each write to them, any other node would keep stale copies.
+     */
+    public Optional<Transaction> getTransactionById(String id) {
+        Optional<Transaction> stored = transactions.get(id, repository::findById);
+        if (stored.isPresent() || !cluster.scatters()) {
+            return stored;
+        }
+        return cluster.findById(id);
     }
 
-    public Transaction updateTransaction(Transaction transaction) {
-        Optional<Transaction> existingTransaction = repository.findById(transaction.getId());
-        if (!existingTransaction.isPresent()) {
-            throw new TransactionNotFoundException("Transaction with ID " + transaction.getId() + " not found");
+    /**
+     * Looks up a batch of ids in one pass: cached transactions come from the {@code transactions} cache with one
+     * {@code getAllPresent}, the rest from a single repository call, which also caches them. Unknown ids are reported in
+     * the result instead of thrown one by one; repeated ids are looked up once. In cluster mode the ids not
+     * stored here are looked up on the other nodes in one request each.
+     */
+    public TransactionLookupResult getTransactionsByIds(Collection<String> ids) {
+        Set<String> unique = new LinkedHashSet<>(ids);
+        Map<String, Transaction> stored = transactions.getAll(unique, repository::findAllById);
+        if (cluster.scatters() && stored.size() < unique.size()) {
+            Map<String, Transaction> local = stored;
+            stored = new HashMap<>(local);
+            stored.putAll(cluster.findAllById(unique.stream().filter(id -> !local.containsKey(id)).toList()));
         }
-        Transaction orinTransaction =  existingTransaction.get();
-        if (transaction.getAccountId() != null && !transaction.getAccountId().equals(orinTransaction.getAccountId())) {
-            throw new TransactionNotFoundException("accountId cannot be changed");
+        List<Transaction> found = new ArrayList<>(stored.size());
+        List<String> missing = new ArrayList<>();
+        for (String id : unique) {
+            Transaction transaction = stored.get(id);
+            if (transaction != null) {
+                found.add(transaction);
+            } else {
+                missing.add(id);
+            }
         }
-        if (transaction.getType() != null && !transaction.getType().equals(orinTransaction.getType())) {
-            orinTransaction.setType(transaction.getType());
+        return new TransactionLookupResult(found, missing);
+    }
+
+    public List<Transaction> getAllTransactions(int page, int size) {
+        return list(PageQuery.all(page, size));
+    }
+
+    public List<Transaction> getAllTransactionsAfter(TransactionKey after, int size) {
+        return list(PageQuery.allAfter(after, size));
+    }
+
+    /**
+     * Offset pages cost O(skip), so they are cached. The key carries the account's write revision: any write to
+     * the account moves readers to a new key and the superseded pages simply age out.
+     */
+    @Cacheable(value = "accountTransactions", condition = "@transactionCluster.owns(#accountId)",
+            key = "{#accountId, @accountBalanceView.revision(#accountId), #page, #size}")
+    public List<Transaction> getTransactionsByAccountId(String accountId, int page, int size) {
+        return list(PageQuery.account(accountId, page, size));
+    }
+
+    public List<Transaction> getTransactionsByAccountIdAfter(String accountId, TransactionKey after, int size) {
+        return list(PageQuery.accountAfter(accountId, after, size));
+    }
+
+    /**
+     * Feeds every matching transaction to the sink in time order, fetching {@code transactions.export.chunk-size}
+     * rows at a time by keyset so memory stays constant however many rows are exported. Returns the row count.
+     */
+    public long exportTransactions(String accountId, LocalDateTime from, LocalDateTime to, Consumer<Transaction> sink) {
+        long exported = 0;
+        TransactionKey after = null;
+        while (true) {
+            List<Transaction> chunk = getTransactionsInRangeAfter(accountId, from, to, after, exportChunkSize);
+            chunk.forEach(sink);
+            exported += chunk.size();
+            if (chunk.size() < exportChunkSize) {
+                log.debug("Exported {} transactions", exported);
+                return exported;
+            }
+            after = TransactionKey.of(chunk.get(chunk.size() - 1));
         }
-        if (transaction.getAmount() != null && !transaction.getAmount().equals(orinTransaction.getAmount())) {
-            orinTransaction.setAmount(transaction.getAmount());
+    }
+
+    public List<Transaction> getTransactionsInRange(String accountId, LocalDateTime from, LocalDateTime to,
+                                                    int page, int size) {
+        return list(PageQuery.range(accountId, from, to, page, size));
+    }
+
+    public List<Transaction> getTransactionsInRangeAfter(String accountId, LocalDateTime from, LocalDateTime to,
+                                                         TransactionKey after, int size) {
+        return list(PageQuery.rangeAfter(accountId, from, to, after, size));
+    }
+
+    public List<Transaction> searchTransactions(String query, int page, int size) {
+        return list(PageQuery.search(query, page, size));
+    }
+
+    /**
+     * Runs a listing here, or, in cluster mode, on the owner of its account, or on every node when it is not about
+     * one account.
+     */
+    private List<Transaction> list(PageQuery query) {
+        boolean remote = query.routed() ? !cluster.owns(query.accountId()) : cluster.scatters();
+        return remote ? cluster.query(query, repository) : query.run(repository);
+    }
+
+    /**
+     * Applies the non-null fields of {@code changes} to a copy of the stored transaction and writes it back with a
+     * compare-and-set on the stored version; stored instances are never mutated. With {@code expectedVersion}
+     * (the client's If-Match) a stale version is a {@link TransactionVersionConflictException}; without it a
+     * concurrent writer only makes the update retry on the newer row, so no write is lost either way. Empty when
+     * the id is not stored.
+     */
+    public Optional<Transaction> updateTransaction(Transaction changes, Long expectedVersion) {
+        if (changes.getAccountId() != null && !cluster.owns(changes.getAccountId())) {
+            return cluster.update(changes, expectedVersion);
         }
-        if (transaction.getDescription() != null && !transaction.getDescription().equals(orinTransaction.getDescription())) {
-            orinTransaction.setDescription(transaction.getDescription());
+        while (true) {
+            Transaction current = repository.findById(changes.getId()).orElse(null);
+            if (current == null) {
+                return changes.getAccountId() == null && cluster.scatters()
+                        ? cluster.update(changes, expectedVersion)
+                        : Optional.empty();
+            }
+            checkVersion(current, expectedVersion);
+            if (changes.getAccountId() != null && !changes.getAccountId().equals(current.getAccountId())) {
+                throw new TransactionNotFoundException("accountId cannot be changed");
+            }
+            Transaction next = new Transaction(current);
+            if (changes.getType() != null) {
+                next.setType(changes.getType());
+            }
+            if (changes.getAmount() != null) {
+                next.setAmount(changes.getAmount());
+            }
+            if (changes.getDescription() != null) {
+                next.setDescription(changes.getDescription());
+            }
+            next.setVersion(current.getVersion() + 1);
+            Transaction compared = repository.replaceIfVersion(next, current.getVersion());
+            if (compared == null) {
+                return Optional.empty();
+            }
+            if (compared.getVersion() == current.getVersion()) {
+                changed(compared, next);
+                transactions.stored(next);
+                return Optional.of(next);
+            }
         }
-        return repository.update(transaction) ? transaction : null;
     }
 
-    public boolean deleteTransaction(String id) {
-        if (!repository.findById(id).isPresent()) {
-            throw new TransactionNotFoundException("Transaction with ID " + id + " not found");
+    /**
+     * Deletes the transaction, only if its version is still {@code expectedVersion} when one is given. False when
+     * the id is not stored.
+     */
+    public boolean deleteTransaction(String id, Long expectedVersion) {
+        Transaction removed = expectedVersion == null
+                ? repository.remove(id)
+                : repository.removeIfVersion(id, expectedVersion);
+        if (removed == null) {
+            return cluster.scatters() && cluster.delete(id, expectedVersion);
         }
-        return repository.delete(id);
+        checkVersion(removed, expectedVersion);
+        changed(removed, null);
+        transactions.deleted(removed);
+        return true;
+    }
+
+    /**
+     * Streams changes to one account's transactions, or to all of them when {@code accountId} is null. In
+     * cluster mode only the changes written on this node are streamed: subscribe to the account's owner.
+     */
+    public TransactionChangeFeed.Subscription subscribe(String accountId, TransactionChangeFeed.Sink sink) {
+        return feed.subscribe(accountId, sink);
+    }
+
+    public Optional<AccountBalance> getAccountBalance(String accountId) {
+        return cluster.owns(accountId) ? balances.get(accountId) : cluster.balance(accountId);
     }
 
     public long getTransactionCount() {
-        return repository.count();
+        return cluster.scatters() ? balances.count() + cluster.count() : balances.count();
+    }
+
+    public long getAccountTransactionCount(String accountId) {
+        return cluster.owns(accountId) ? balances.count(accountId) : cluster.count(accountId);
+    }
+
+    /**
+     * Called after every successful write with the stored row before and after it; null for a create or delete.
+     */
+    private void changed(Transaction previous, Transaction current) {
+        balances.onChange(previous, current);
+        feed.publish(previous, current);
+        cluster.replicate(previous, current);
+    }
+
+    private static void checkVersion(Transaction stored, Long expectedVersion) {
+        if (expectedVersion != null && stored.getVersion() != expectedVersion) {
+            throw new TransactionVersionConflictException("Transaction with ID " + stored.getId() + " is at version "
+                    + stored.getVersion() + ", not " + expectedVersion);
+        }
     }
 }
\ No newline at end of file
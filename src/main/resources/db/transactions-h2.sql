@@ -0,0 +1,27 @@
+-- Schema of the jdbc repository engine (H2 dialect). Safe to run on every start.
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id           CHARACTER VARYING(255) PRIMARY KEY,
+    account_id   CHARACTER VARYING(255),
+    -- DECFLOAT drops trailing zeros, so the original scale is kept alongside
+    amount       DECFLOAT,
+    amount_scale INT,
+    type         CHARACTER VARYING(255),
+    description  CHARACTER VARYING,
+    -- TransactionKey.toMicros(timestamp); listings are ordered by (time_micros, id)
+    time_micros  BIGINT NOT NULL,
+    -- optimistic concurrency version, served as the ETag
+    version      BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS transactions_time ON transactions (time_micros, id);
+CREATE INDEX IF NOT EXISTS transactions_account_time ON transactions (account_id, time_micros, id);
+
+-- search tokens of description, type and account_id; queries match them by prefix
+CREATE TABLE IF NOT EXISTS transaction_tokens (
+    token CHARACTER VARYING NOT NULL,
+    id    CHARACTER VARYING(255) NOT NULL REFERENCES transactions (id) ON DELETE CASCADE,
+    PRIMARY KEY (token, id)
+);
+
+CREATE INDEX IF NOT EXISTS transaction_tokens_id ON transaction_tokens (id);
@@ -68,7 +68,9 @@ async function loadTransactions() {
         }
 
         const transactions = await response.json();
-        totalItems = await getTotalTransactions();
+        // 列表接口在 X-Total-Count 中直接返回总数；搜索接口没有，才单独请求
+        const totalHeader = response.headers.get('X-Total-Count');
+        totalItems = totalHeader !== null ? parseInt(totalHeader) : await getTotalTransactions();
 
         renderTransactions(transactions);
         updatePagination();
@@ -1,6 +1,9 @@
 package com.example.banktransactions;
 import com.example.banktransactions.controller.TransactionController;
+import com.example.banktransactions.exception.TransactionVersionConflictException;
 import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.model.TransactionLookupResult;
+import com.example.banktransactions.service.TransactionChangeFeed;
 import com.example.banktransactions.service.TransactionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,15 +11,22 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -45,7 +55,7 @@ public class TestCase {
 
     @Test
     void testCreateTransaction() throws Exception {
-        Mockito.when(transactionService.createTransaction(any(Transaction.class))).thenReturn(testTransaction);
+        Mockito.when(transactionService.createTransaction(any(Transaction.class), any())).thenReturn(testTransaction);
 
         mockMvc.perform(post("/api/transactions")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -58,9 +68,23 @@ public class TestCase {
 
     }
 
+    @Test
+    void testCreateTransactionPassesIdempotencyKey() throws Exception {
+        Mockito.when(transactionService.createTransaction(any(Transaction.class), eq("retry-1"))).thenReturn(testTransaction);
+        String body = "{\"accountId\":\"ACC123\",\"amount\":100.5,\"type\":\"DEPOSIT\"}";
+
+        mockMvc.perform(post("/api/transactions").header("Idempotency-Key", "retry-1")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(1));
+        mockMvc.perform(post("/api/transactions").header("Idempotency-Key", "k".repeat(256))
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testGetTransactionById() throws Exception {
-        Mockito.when(transactionService.getTransactionById("1")).thenReturn(testTransaction);
+        Mockito.when(transactionService.getTransactionById("1")).thenReturn(Optional.of(testTransaction));
 
         mockMvc.perform(get("/api/transactions/1"))
                 .andExpect(status().isOk())
@@ -68,10 +92,34 @@ public class TestCase {
                 .andExpect(jsonPath("$.accountId").value("ACC123"));
 
     }
+
+    @Test
+    void testConditionalGetAndUpdate() throws Exception {
+        testTransaction.setVersion(3);
+        Mockito.when(transactionService.getTransactionById("1")).thenReturn(Optional.of(testTransaction));
+
+        mockMvc.perform(get("/api/transactions/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(jsonPath("$.version").value(3));
+        mockMvc.perform(get("/api/transactions/1").header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified());
+
+        Mockito.when(transactionService.updateTransaction(any(Transaction.class), eq(2L)))
+                .thenThrow(new TransactionVersionConflictException("stale"));
+        mockMvc.perform(put("/api/transactions/1")
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"accountId\":\"ACC123\",\"amount\":100,\"type\":\"DEPOSIT\"}"))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(delete("/api/transactions/1").header(HttpHeaders.IF_MATCH, "W/\"3\""))
+                .andExpect(status().isPreconditionFailed());
+        verify(transactionService, never()).deleteTransaction(any(), any());
+    }
     @Test
     void testUpdateTransaction() throws Exception {
 //        Transaction transaction = new Transaction("ACC123",BigDecimal.valueOf(200), "DEPOSIT", "Test transaction");
-        Mockito.when(transactionService.updateTransaction(any(Transaction.class))).thenReturn(testTransaction);
+        Mockito.when(transactionService.updateTransaction(any(Transaction.class), any())).thenReturn(Optional.of(testTransaction));
         mockMvc.perform(put("/api/transactions/1")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"accountId\":\"ACC123\",\"amount\":100,\"type\":\"DEPOSIT\",\"description\":\"Test transaction\"}"  ))
@@ -82,9 +130,106 @@ public class TestCase {
                 .andExpect(jsonPath("$.description").value("Test transaction"));
     }
 
+    @Test
+    void testGetAllTransactionsWithCursor() throws Exception {
+        Mockito.when(transactionService.getAllTransactionsAfter(null, 1)).thenReturn(List.of(testTransaction));
+        Mockito.when(transactionService.getTransactionCount()).thenReturn(42L);
+
+        mockMvc.perform(get("/api/transactions").param("after", "").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Total-Count", "42"))
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].id").value(1));
+
+        mockMvc.perform(get("/api/transactions").param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetAccountTransactionsInRange() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 0, 0);
+        Mockito.when(transactionService.getTransactionsInRange("ACC123", from, null, 0, 10)).thenReturn(List.of(testTransaction));
+
+        mockMvc.perform(get("/api/transactions/account/ACC123/range").param("from", "2025-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$[0].accountId").value("ACC123"));
+    }
+
+    @Test
+    void testExportTransactionsAsCsv() throws Exception {
+        Mockito.when(transactionService.exportTransactions(eq("ACC123"), any(), any(), any())).thenAnswer(invocation -> {
+            Consumer<Transaction> sink = invocation.getArgument(3);
+            sink.accept(testTransaction);
+            return 1L;
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/transactions/export").param("format", "csv").param("accountId", "ACC123"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string(startsWith("id,accountId,amount,type,description,timestamp\n1,ACC123,100.5,DEPOSIT,Test transaction,")));
+    }
+
+    @Test
+    void testStreamChangesAsServerSentEvents() throws Exception {
+        TransactionChangeFeed feed = new TransactionChangeFeed(16);
+        Mockito.when(transactionService.subscribe(eq("ACC123"), any())).thenAnswer(invocation ->
+                feed.subscribe(invocation.getArgument(0), invocation.getArgument(1)));
+
+        MvcResult result = mockMvc.perform(get("/api/transactions/feed").param("accountId", "ACC123"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        feed.publish(null, testTransaction);
+        String body = "";
+        for (int i = 0; i < 100 && !(body.contains("data:") && body.endsWith("\n\n")); i++) {
+            Thread.sleep(50);
+            body = result.getResponse().getContentAsString();
+        }
+        feed.close();
+
+        // set with the first event, which the drain thread writes after the request went async
+        assertEquals("text/event-stream", result.getResponse().getContentType());
+        assertTrue(body.startsWith(":heartbeat"), body);
+        assertTrue(body.contains("id:1\ndata:{\"sequence\":1,\"type\":\"CREATED\",\"transaction\":{\"id\":\"1\""), body);
+        assertEquals(0, feed.subscriberCount());
+    }
+
+    @Test
+    void testLookupTransactionsByIds() throws Exception {
+        Mockito.when(transactionService.getTransactionsByIds(List.of("1", "2")))
+                .thenReturn(new TransactionLookupResult(List.of(testTransaction), List.of("2")));
+
+        mockMvc.perform(post("/api/transactions/lookup").contentType(MediaType.APPLICATION_JSON).content("[\"1\",\"2\"]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found[0].id").value("1"))
+                .andExpect(jsonPath("$.missing[0]").value("2"));
+        mockMvc.perform(post("/api/transactions/lookup").contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + "\"1\",".repeat(1000) + "\"1\"]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testUnknownIdIsNotFound() throws Exception {
+        Mockito.when(transactionService.getTransactionById("9")).thenReturn(Optional.empty());
+        Mockito.when(transactionService.updateTransaction(any(Transaction.class), any())).thenReturn(Optional.empty());
+        Mockito.when(transactionService.deleteTransaction("9", null)).thenReturn(false);
+
+        mockMvc.perform(get("/api/transactions/9"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(put("/api/transactions/9")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"accountId\":\"ACC123\",\"amount\":100,\"type\":\"DEPOSIT\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/transactions/9"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testDeleteTransaction() throws Exception {
-        Mockito.when(transactionService.deleteTransaction("1")).thenReturn(true);
+        Mockito.when(transactionService.deleteTransaction("1", null)).thenReturn(true);
 
         mockMvc.perform(delete("/api/transactions/1"))
                 .andExpect(status().isNoContent());
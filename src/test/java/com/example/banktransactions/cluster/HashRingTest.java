@@ -0,0 +1,43 @@
+package com.example.banktransactions.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashRingTest {
+
+    @Test
+    void testOwnersAreBalancedAndFollowersDiffer() {
+        HashRing ring = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing sameMembers = new HashRing(List.of("c", "a", "b"), 128);
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < 30_000; i++) {
+            String account = "ACC" + i;
+            String owner = ring.owner(account);
+            owned.merge(owner, 1, Integer::sum);
+            assertEquals(owner, sameMembers.owner(account), "member order must not matter");
+            assertNotEquals(owner, ring.follower(account));
+        }
+        owned.values().forEach(count -> assertTrue(count > 7_000 && count < 13_000, "owned " + owned));
+        assertNull(new HashRing(List.of("a"), 128).follower("ACC1"));
+    }
+
+    @Test
+    void testAddingANodeOnlyMovesKeysToIt() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = new HashRing(List.of("a", "b", "c", "d"), 128);
+        int moved = 0;
+        for (int i = 0; i < 30_000; i++) {
+            String account = "ACC" + i;
+            if (!before.owner(account).equals(after.owner(account))) {
+                assertEquals("d", after.owner(account));
+                moved++;
+            }
+        }
+        assertTrue(moved > 4_500 && moved < 10_500, "moved " + moved);
+    }
+}
@@ -0,0 +1,336 @@
+package com.example.banktransactions.cluster;
+
+import com.example.banktransactions.exception.NodeUnavailableException;
+import com.example.banktransactions.exception.TransactionVersionConflictException;
+import com.example.banktransactions.model.BulkImportResult;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.model.TransactionLookupResult;
+import com.example.banktransactions.repository.TransactionKey;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import com.example.banktransactions.service.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Three nodes in this JVM, talking over localhost sockets.
+ */
+public class TransactionClusterTest {
+
+    private static final List<String> NAMES = List.of("a", "b", "c");
+    private static final String SECRET = "cluster-test-secret";
+
+    private record Node(localMemoryTransactionRepository repository, TransactionCluster cluster,
+                        TransactionService service, ClusterServer server) {
+    }
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+    private final Map<String, InetSocketAddress> members = new LinkedHashMap<>();
+    private final HashRing ring = new HashRing(NAMES, 128);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (String name : NAMES) {
+            members.put(name, InetSocketAddress.createUnresolved("localhost", freePort()));
+        }
+        for (String name : NAMES) {
+            start(name);
+        }
+    }
+
+    private void start(String name) throws IOException {
+        TransactionCluster cluster = new TransactionCluster(name, members, 128, 2000, 10_000, SECRET, 0);
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository(
+                Optional.empty(), new SnowflakeIdGenerator(cluster.nodeIndex()));
+        TransactionService service = new TransactionService(repository, new AccountBalanceView(repository),
+                new IdempotencyStore("maximumSize=1000"), new TransactionChangeFeed(256), cluster,
+                new NoOpCacheManager(), Validation.buildDefaultValidatorFactory().getValidator(), 7, 7);
+        nodes.put(name, new Node(repository, cluster, service, new ClusterServer(cluster, service)));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Node node : nodes.values()) {
+            stop(node);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void stop(Node node) throws IOException {
+        node.server().close();
+        node.cluster().close();
+    }
+
+    private TransactionService service(String name) {
+        return nodes.get(name).service();
+    }
+
+    /**
+     * The first of ACC0, ACC1... owned by {@code owner}.
+     */
+    private String accountOwnedBy(String owner) {
+        return IntStream.range(0, 1000).mapToObj(i -> "ACC" + i)
+                .filter(account -> ring.owner(account).equals(owner))
+                .findFirst().orElseThrow();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testWritesAreStoredOnTheAccountOwnerAndReadableEverywhere() {
+        List<Transaction> created = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            created.add(service(NAMES.get(i % 3)).createTransaction(
+                    new Transaction("ACC" + i, BigDecimal.TEN, "DEPOSIT", "Payment " + i)));
+        }
+
+        assertEquals(30, created.stream().map(Transaction::getId).distinct().count());
+        for (Transaction transaction : created) {
+            String owner = ring.owner(transaction.getAccountId());
+            nodes.forEach((name, node) -> assertEquals(name.equals(owner),
+                    node.repository().findById(transaction.getId()).isPresent()));
+            for (String name : NAMES) {
+                assertEquals(transaction.getAccountId(),
+                        service(name).getTransactionById(transaction.getId()).orElseThrow().getAccountId());
+                assertEquals(1, service(name).getAccountTransactionCount(transaction.getAccountId()));
+                assertEquals(new BigDecimal("10"), service(name).getAccountBalance(transaction.getAccountId())
+                        .orElseThrow().getBalance());
+            }
+        }
+        assertTrue(service("a").getTransactionById("unknown").isEmpty());
+
+        TransactionLookupResult lookup = service("b").getTransactionsByIds(
+                List.of(created.get(3).getId(), "unknown", created.get(17).getId()));
+        assertEquals(List.of(created.get(3).getId(), created.get(17).getId()), ids(lookup.getFound()));
+        assertEquals(List.of("unknown"), lookup.getMissing());
+    }
+
+    @Test
+    void testListingsAndCountsAreGatheredFromEveryNode() {
+        for (int i = 0; i < 60; i++) {
+            service(NAMES.get(i % 3)).createTransaction(
+                    new Transaction("ACC" + (i % 20), BigDecimal.ONE, "DEPOSIT", "Payment " + i));
+        }
+        List<Transaction> everything = nodes.values().stream()
+                .flatMap(node -> node.repository().findAll(0, 100).stream())
+                .sorted(Comparator.comparing(TransactionKey::of))
+                .toList();
+        assertEquals(60, everything.size());
+
+        for (String name : NAMES) {
+            assertEquals(60, service(name).getTransactionCount());
+            assertEquals(ids(everything.subList(20, 30)), ids(service(name).getAllTransactions(2, 10)));
+            assertEquals(60, service(name).searchTransactions("payment", 0, 100).size());
+            assertEquals(3, service(name).getTransactionsByAccountId("ACC4", 0, 10).size());
+        }
+
+        List<Transaction> walked = new ArrayList<>();
+        TransactionKey after = null;
+        List<Transaction> page;
+        do {
+            page = service("c").getAllTransactionsAfter(after, 7);
+            walked.addAll(page);
+            after = page.isEmpty() ? null : TransactionKey.of(page.get(page.size() - 1));
+        } while (page.size() == 7);
+        assertEquals(ids(everything), ids(walked));
+
+        List<Transaction> exported = new ArrayList<>();
+        assertEquals(60, service("b").exportTransactions(null, null, null, exported::add));
+        assertEquals(ids(everything), ids(exported));
+    }
+
+    @Test
+    void testUpdatesAndDeletesReachTheStoringNode() {
+        String account = accountOwnedBy("a");
+        Transaction created = service("b").createTransaction(new Transaction(account, BigDecimal.TEN, "DEPOSIT", null));
+
+        Transaction changes = new Transaction();
+        changes.setId(created.getId());
+        changes.setAmount(new BigDecimal("25"));
+        assertEquals(2, service("c").updateTransaction(changes, 1L).orElseThrow().getVersion());
+        assertThrows(TransactionVersionConflictException.class, () -> service("b").updateTransaction(changes, 1L));
+        changes.setAccountId(account);
+        assertEquals(3, service("b").updateTransaction(changes, null).orElseThrow().getVersion());
+        assertEquals(new BigDecimal("25"), service("c").getAccountBalance(account).orElseThrow().getBalance());
+
+        assertThrows(TransactionVersionConflictException.class, () -> service("c").deleteTransaction(created.getId(), 1L));
+        assertTrue(service("c").deleteTransaction(created.getId(), 3L));
+        assertFalse(service("b").deleteTransaction(created.getId(), null));
+        assertTrue(service("b").updateTransaction(changes, null).isEmpty());
+        assertEquals(0, service("a").getTransactionCount());
+    }
+
+    @Test
+    void testImportSendsEachRowToItsOwner() {
+        String ndjson = IntStream.range(0, 40)
+                .mapToObj(i -> "{\"accountId\":\"ACC" + i + "\",\"amount\":5,\"type\":\"DEPOSIT\"}")
+                .collect(Collectors.joining("\n", "", "\n{\"id\":\"dup\",\"accountId\":\"ACC1\",\"amount\":1,\"type\":\"DEPOSIT\"}"
+                        + "\n{\"id\":\"dup\",\"accountId\":\"ACC1\",\"amount\":1,\"type\":\"DEPOSIT\"}\n"));
+        BulkImportResult result = service("a").importTransactions(TransactionImportReader.ndjson(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), new ObjectMapper()));
+
+        assertEquals(41, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        assertEquals(42, result.getErrors().get(0).line());
+        for (String name : NAMES) {
+            assertEquals(41, service(name).getTransactionCount());
+            long owned = IntStream.range(0, 40).filter(i -> ring.owner("ACC" + i).equals(name)).count()
+                    + (ring.owner("ACC1").equals(name) ? 1 : 0);
+            assertEquals(owned, nodes.get(name).repository().count());
+        }
+    }
+
+    @Test
+    void testFollowerServesReadsWhileOwnerIsDown() throws Exception {
+        String account = accountOwnedBy("b");
+        String follower = ring.follower(account);
+        String other = NAMES.stream().filter(name -> !name.equals("b") && !name.equals(follower)).findFirst().orElseThrow();
+        List<Transaction> created = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            created.add(service(other).createTransaction(new Transaction(account, BigDecimal.TEN, "DEPOSIT", "p" + i)));
+        }
+        Transaction changes = new Transaction();
+        changes.setId(created.get(0).getId());
+        changes.setDescription("changed");
+        service("b").updateTransaction(changes, null);
+        service("b").deleteTransaction(created.get(4).getId(), null);
+        TransactionCluster replicas = nodes.get(follower).cluster();
+        await(() -> replicas.replicaBalances().count(account) == 4
+                && "changed".equals(replicas.replicas().findById(created.get(0).getId()).orElseThrow().getDescription()));
+
+        stop(nodes.get("b"));
+
+        for (String name : List.of(follower, other)) {
+            assertEquals(4, service(name).getTransactionsByAccountId(account, 0, 10).size());
+            assertEquals(4, service(name).getAccountTransactionCount(account));
+            assertEquals(new BigDecimal("40"), service(name).getAccountBalance(account).orElseThrow().getBalance());
+            assertEquals("changed", service(name).getTransactionById(created.get(0).getId()).orElseThrow().getDescription());
+        }
+        assertThrows(NodeUnavailableException.class,
+                () -> service(other).createTransaction(new Transaction(account, BigDecimal.ONE, "DEPOSIT", null)));
+        assertThrows(NodeUnavailableException.class, () -> service(other).getAllTransactions(0, 10));
+        assertThrows(NodeUnavailableException.class, () -> service(other).getTransactionCount());
+    }
+
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).toList();
+    }
+
+    @Test
+    void testServerBindsItsConfiguredAddressAndRejectsWrongSecret() {
+        InetSocketAddress address = nodes.get("a").cluster().address();
+        assertTrue(((InetSocketAddress) nodes.get("a").server().localAddress()).getAddress().isLoopbackAddress());
+
+        try (ClusterClient stranger = new ClusterClient("a", address, 2000, "not-the-secret")) {
+            assertThrows(NodeUnavailableException.class, () -> stranger.call(ClusterCodec.COUNT, out -> {
+                out.writeBoolean(false);
+                ClusterCodec.writeString(out, null);
+            }, in -> in.readLong()));
+        }
+        try (ClusterClient member = new ClusterClient("a", address, 2000, SECRET)) {
+            assertEquals(0L, member.<Long>call(ClusterCodec.COUNT, out -> {
+                out.writeBoolean(false);
+                ClusterCodec.writeString(out, null);
+            }, in -> in.readLong()));
+        }
+    }
+
+    @Test
+    void testReplicaKeepsDeletesOverOlderWrites() {
+        TransactionCluster cluster = nodes.get("a").cluster();
+        Transaction row = new Transaction("ACC1", BigDecimal.TEN, "DEPOSIT", null);
+        row.setId("replicated");
+        row.setVersion(1);
+        cluster.applyReplica(row);
+        Transaction updated = new Transaction(row);
+        updated.setVersion(2);
+
+        // the delete of version 2 overtook the put that stored it
+        cluster.removeReplica("replicated", 2);
+        cluster.applyReplica(updated);
+        assertTrue(cluster.replicas().findById("replicated").isEmpty());
+        assertEquals(0, cluster.replicaBalances().count("ACC1"));
+
+        Transaction newer = new Transaction(row);
+        newer.setVersion(3);
+        cluster.applyReplica(newer);
+        cluster.removeReplica("replicated", 2);
+        assertEquals(3, cluster.replicas().findById("replicated").orElseThrow().getVersion());
+        assertEquals(1, cluster.replicaBalances().count("ACC1"));
+    }
+
+    @Test
+    void testRowCreatedAgainUnderADeletedIdIsReplicated() throws Exception {
+        String account = accountOwnedBy("a");
+        TransactionCluster follower = nodes.get(ring.follower(account)).cluster();
+        Transaction first = new Transaction(account, BigDecimal.TEN, "DEPOSIT", "first");
+        first.setId("reused");
+        service("a").createTransaction(first);
+        service("a").deleteTransaction("reused", null);
+        Transaction second = new Transaction(account, BigDecimal.ONE, "DEPOSIT", "second");
+        second.setId("reused");
+        service("a").createTransaction(second);
+
+        await(() -> follower.replicas().findById("reused")
+                .map(replica -> "second".equals(replica.getDescription())).orElse(false));
+        assertEquals(1, follower.replicaBalances().count(account));
+    }
+
+    @Test
+    void testRestartedFollowerCatchesUpFromTheOwner() throws Exception {
+        String account = accountOwnedBy("b");
+        String follower = ring.follower(account);
+        List<Transaction> created = new ArrayList<>();
+        for (int i = 0; i < 2 * TransactionCluster.CATCH_UP_PAGE + 5; i++) {
+            created.add(service("b").createTransaction(new Transaction(account, BigDecimal.ONE, "DEPOSIT", "p" + i)));
+        }
+        await(() -> nodes.get(follower).cluster().replicaBalances().count(account) == created.size());
+
+        stop(nodes.get(follower));
+        service("b").deleteTransaction(created.get(0).getId(), null);
+        start(follower);
+
+        TransactionCluster restarted = nodes.get(follower).cluster();
+        await(() -> restarted.replicaBalances().count(account) == created.size() - 1);
+        assertTrue(restarted.replicas().findById(created.get(0).getId()).isEmpty());
+        assertEquals(0, new BigDecimal(created.size() - 1).compareTo(
+                restarted.replicaBalances().get(account).orElseThrow().getBalance()));
+
+        // a replica whose delete was lost goes at the next catch-up
+        Transaction lost = new Transaction(account, BigDecimal.TEN, "DEPOSIT", "lost delete");
+        lost.setId("lost");
+        lost.setVersion(1);
+        restarted.applyReplica(lost);
+        restarted.catchUp("b");
+        await(() -> restarted.replicas().findById("lost").isEmpty());
+        assertEquals(created.size() - 1, restarted.replicaBalances().count(account));
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.banktransactions.log;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MdcTaskDecoratorTest {
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void testContextFollowsTaskOntoVirtualThreadAndIsRestored() throws InterruptedException {
+        AtomicReference<String> inTask = new AtomicReference<>();
+        MDC.put("traceId", "abc123");
+        Runnable task = new MdcTaskDecorator().decorate(() -> inTask.set(MDC.get("traceId")));
+        MDC.clear();
+
+        AtomicReference<String> afterTask = new AtomicReference<>();
+        Thread.ofVirtual().start(() -> {
+            MDC.put("traceId", "worker");
+            task.run();
+            afterTask.set(MDC.get("traceId"));
+        }).join();
+
+        assertEquals("abc123", inTask.get());
+        assertEquals("worker", afterTask.get());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.banktransactions.log;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimitedLogTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(RateLimitedLogTest.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void testBurstIsCutToTheLimitAndDropsAreReported() throws InterruptedException {
+        RateLimitedLog limited = new RateLimitedLog(logger, 3);
+        for (int i = 0; i < 100; i++) {
+            limited.info("Missing {}", i);
+        }
+        // a burst can straddle a second boundary and get a second allowance
+        assertTrue(appender.list.size() == 3 || appender.list.size() == 6, "logged " + appender.list.size());
+        assertEquals("Missing 0", appender.list.get(0).getFormattedMessage());
+
+        appender.list.clear();
+        Thread.sleep(1100);
+        limited.info("Missing {}", "again");
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.get(0).getFormattedMessage().matches("Missing again \\(\\d+ similar messages suppressed\\)"));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.banktransactions.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TraceIdsTest {
+
+    @Test
+    void testIdsAreLowercaseHexOfW3cLengthAndDistinct() {
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String traceId = TraceIds.traceId();
+            String spanId = TraceIds.spanId();
+            assertTrue(traceId.matches("[0-9a-f]{32}"), traceId);
+            assertTrue(spanId.matches("[0-9a-f]{16}"), spanId);
+            assertTrue(seen.add(traceId));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.repository.store.ColumnarTransactionStore;
+
+import java.util.Optional;
+
+public class ColumnarStoreConformanceTest extends TransactionRepositoryConformanceTest {
+
+    @Override
+    protected TransactionRepository newRepository() {
+        return new localMemoryTransactionRepository(Optional.empty(), ids, new ColumnarTransactionStore());
+    }
+}
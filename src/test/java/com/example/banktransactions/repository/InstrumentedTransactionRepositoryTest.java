@@ -0,0 +1,64 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InstrumentedTransactionRepositoryTest extends TransactionRepositoryConformanceTest {
+
+    private SimpleMeterRegistry registry;
+
+    @Override
+    protected TransactionRepository newRepository() {
+        registry = new SimpleMeterRegistry();
+        return new InstrumentedTransactionRepository(
+                new localMemoryTransactionRepository(Optional.empty(), ids), registry);
+    }
+
+    private long timed(String operation) {
+        return registry.get(InstrumentedTransactionRepository.OPERATIONS).tag("operation", operation).timer().count();
+    }
+
+    private DistributionSummary scanned(String operation) {
+        return registry.get(InstrumentedTransactionRepository.SCANNED).tag("operation", operation).summary();
+    }
+
+    @Test
+    void testOperationsAreTimedAndScansMeasured() {
+        for (int i = 0; i < 30; i++) {
+            repository.create(new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", "Payment " + i));
+        }
+        repository.findById("missing");
+        repository.findByAccountId("ACC1", 2, 10);
+        repository.findByAccountId("ACC1", 5, 10);
+
+        assertEquals(30, timed("create"));
+        assertEquals(1, timed("findById"));
+        assertEquals(2, timed("findByAccountId"));
+        // page 2 walks 20 skipped rows and returns 10; page 5 is past the end and returns nothing
+        assertEquals(30 + 50, scanned("findByAccountId").totalAmount());
+        assertEquals(30, registry.get(InstrumentedTransactionRepository.SIZE).gauge().value());
+    }
+
+    @Test
+    void testSampledTimingStillCountsEveryCall() {
+        SimpleMeterRegistry sampledRegistry = new SimpleMeterRegistry();
+        TransactionRepository sampled = new InstrumentedTransactionRepository(repository, sampledRegistry, 16);
+        for (int i = 0; i < 1600; i++) {
+            sampled.findById("id" + i);
+        }
+
+        assertEquals(1600, sampledRegistry.get(InstrumentedTransactionRepository.CALLS).tag("operation", "findById")
+                .counter().count());
+        long timed = sampledRegistry.get(InstrumentedTransactionRepository.OPERATIONS).tag("operation", "findById")
+                .timer().count();
+        assertTrue(timed > 0 && timed < 400, "timed " + timed);
+        assertThrows(IllegalArgumentException.class, () -> new InstrumentedTransactionRepository(repository, sampledRegistry, 10));
+    }
+}
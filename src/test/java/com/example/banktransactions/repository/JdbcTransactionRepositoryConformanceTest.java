@@ -0,0 +1,27 @@
+package com.example.banktransactions.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+
+import java.util.UUID;
+
+public class JdbcTransactionRepositoryConformanceTest extends TransactionRepositoryConformanceTest {
+
+    private HikariDataSource dataSource;
+
+    @Override
+    protected TransactionRepository newRepository() {
+        // a private in-memory database per test, dropped when the pool closes its last connection
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + UUID.randomUUID());
+        dataSource.setMaximumPoolSize(8);
+        JdbcTransactionRepository repository = new JdbcTransactionRepository(dataSource, ids);
+        repository.initialize();
+        return repository;
+    }
+
+    @AfterEach
+    void closeDatabase() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalMemoryTransactionRepositoryTest {
+
+    private localMemoryTransactionRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new localMemoryTransactionRepository();
+    }
+
+    private Transaction transaction(String accountId, int minute) {
+        return transaction(accountId, minute, "Test transaction");
+    }
+
+    private Transaction transaction(String accountId, int minute, String description) {
+        Transaction transaction = new Transaction(accountId, BigDecimal.TEN, "DEPOSIT", description);
+        transaction.setTimestamp(LocalDateTime.of(2025, 1, 1, 12, minute));
+        return repository.create(transaction);
+    }
+
+    @Test
+    void testFindByAccountIdIsTimeOrderedAndPaged() {
+        Transaction third = transaction("ACC1", 30);
+        Transaction first = transaction("ACC1", 10);
+        transaction("ACC2", 15);
+        Transaction second = transaction("ACC1", 20);
+
+        List<Transaction> page0 = repository.findByAccountId("ACC1", 0, 2);
+        List<Transaction> page1 = repository.findByAccountId("ACC1", 1, 2);
+
+        assertEquals(List.of(first, second), page0);
+        assertEquals(List.of(third), page1);
+        assertTrue(repository.findByAccountId("ACC1", 2, 2).isEmpty());
+        assertTrue(repository.findByAccountId("missing", 0, 10).isEmpty());
+    }
+
+    @Test
+    void testAccountIndexFollowsUpdateAndDelete() {
+        Transaction original = transaction("ACC1", 10);
+        transaction("ACC1", 20);
+
+        Transaction replacement = new Transaction("ACC1", BigDecimal.ONE, "WITHDRAWAL", "Updated");
+        replacement.setId(original.getId());
+        replacement.setTimestamp(LocalDateTime.of(2025, 1, 1, 12, 40));
+        assertTrue(repository.update(replacement));
+
+        List<Transaction> afterUpdate = repository.findByAccountId("ACC1", 0, 10);
+        assertEquals(2, afterUpdate.size());
+        assertSame(replacement, afterUpdate.get(1));
+
+        assertTrue(repository.delete(original.getId()));
+        assertEquals(1, repository.findByAccountId("ACC1", 0, 10).size());
+        assertFalse(repository.delete(original.getId()));
+    }
+
+    @Test
+    void testCursorPagesAreStableAcrossInserts() {
+        Transaction first = transaction("ACC1", 10);
+        Transaction second = transaction("ACC2", 20);
+        Transaction third = transaction("ACC1", 30);
+
+        List<Transaction> page0 = repository.findAllAfter(null, 2);
+        assertEquals(List.of(first, second), page0);
+
+        // a row inserted before the cursor must not shift the next page
+        transaction("ACC1", 5);
+        TransactionKey cursor = TransactionKey.fromCursor(TransactionKey.of(second).toCursor());
+        assertEquals(List.of(third), repository.findAllAfter(cursor, 2));
+
+        assertEquals(List.of(third), repository.findByAccountIdAfter("ACC1", TransactionKey.of(first), 10));
+    }
+
+    @Test
+    void testSearchMatchesPrefixesAcrossFields() {
+        Transaction rent = transaction("ACC1", 10, "Monthly rent payment");
+        Transaction salary = transaction("ACC2", 20, "Salary");
+
+        assertEquals(List.of(rent.getId()), ids(repository.search("RENT", 0, 10)));
+        assertEquals(List.of(rent.getId()), ids(repository.search("pay acc1", 0, 10)));
+        assertEquals(List.of(rent.getId(), salary.getId()), ids(repository.search("dep", 0, 10)));
+        assertEquals(List.of(salary.getId()), ids(repository.search("dep", 1, 1)));
+        assertTrue(repository.search("pay acc2", 0, 10).isEmpty());
+
+        Transaction renamed = new Transaction(rent);
+        renamed.setDescription("Groceries");
+        repository.update(renamed);
+        assertTrue(repository.search("rent", 0, 10).isEmpty());
+        assertEquals(List.of(rent.getId()), ids(repository.search("groc", 0, 10)));
+
+        repository.delete(rent.getId());
+        assertTrue(repository.search("groceries", 0, 10).isEmpty());
+    }
+
+    @Test
+    void testFindByTimeRangeHonoursBoundsAndCursor() {
+        Transaction early = transaction("ACC1", 5);
+        Transaction inside1 = transaction("ACC1", 10);
+        Transaction inside2 = transaction("ACC2", 15);
+        Transaction inside3 = transaction("ACC1", 19);
+        transaction("ACC1", 20);
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 12, 10);
+        LocalDateTime to = LocalDateTime.of(2025, 1, 1, 12, 20);
+
+        assertEquals(List.of(inside1, inside2, inside3), repository.findByTimeRange(null, from, to, null, 10));
+        assertEquals(List.of(inside1, inside3), repository.findByTimeRange("ACC1", from, to, null, 10));
+        assertEquals(List.of(inside2), repository.findByTimeRange(null, from, to, TransactionKey.of(inside1), 1));
+        assertEquals(List.of(inside1), repository.findByTimeRange(null, from, to, TransactionKey.of(early), 1));
+        assertEquals(List.of(early), repository.findByTimeRange(null, null, from, null, 10));
+        assertEquals(List.of(inside3), repository.findByTimeRange("ACC1", from, to, 1, 1));
+    }
+
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).toList();
+    }
+
+    @Test
+    void testStoredRowsCannotBeChangedButTheirCopiesCan() {
+        Transaction stored = transaction("ACC1", 10);
+        Transaction found = repository.findById(stored.getId()).orElseThrow();
+
+        assertThrows(IllegalStateException.class, () -> found.setAccountId("ACC2"));
+        Transaction copy = new Transaction(found);
+        copy.setAccountId("ACC2");
+        assertEquals("ACC2", copy.getAccountId());
+        assertEquals(List.of(found), repository.findByAccountId("ACC1", 0, 10));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.repository.store.OffHeapTransactionStore;
+
+import java.util.Optional;
+
+public class OffHeapStoreConformanceTest extends TransactionRepositoryConformanceTest {
+
+    @Override
+    protected TransactionRepository newRepository() {
+        return new localMemoryTransactionRepository(Optional.empty(), ids, new OffHeapTransactionStore());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.store.ObjectTransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedTransactionRepositoryTest extends TransactionRepositoryConformanceTest {
+
+    private PartitionedTransactionRepository partitioned;
+
+    @Override
+    protected TransactionRepository newRepository() {
+        partitioned = new PartitionedTransactionRepository(ids, 4, ObjectTransactionStore::new);
+        return partitioned;
+    }
+
+    private static Transaction transaction(String accountId, long second) {
+        Transaction transaction = new Transaction(accountId, BigDecimal.ONE, "DEPOSIT", "Payment " + second);
+        transaction.setTimestamp(LocalDateTime.of(2025, 1, 1, 0, 0).plusSeconds(second));
+        return transaction;
+    }
+
+    private String accountInOtherPartition(String accountId) {
+        for (int i = 0; ; i++) {
+            String candidate = "ACC" + i;
+            if (partitioned.partitionOf(candidate) != partitioned.partitionOf(accountId)) {
+                return candidate;
+            }
+        }
+    }
+
+    @Test
+    void testReplaceMovesRowToTheNewAccountsPartition() {
+        Transaction original = repository.create(transaction("ACC0", 1));
+        String other = accountInOtherPartition("ACC0");
+        Transaction moved = transaction(other, 2);
+        moved.setId(original.getId());
+
+        assertEquals("ACC0", repository.replace(moved).getAccountId());
+        assertEquals(other, repository.findById(original.getId()).orElseThrow().getAccountId());
+        assertTrue(repository.findByAccountId("ACC0", 0, 10).isEmpty());
+        assertEquals(1, repository.findByAccountId(other, 0, 10).size());
+        assertEquals(1, repository.count());
+        assertEquals(1, repository.findAll(0, 10).size());
+    }
+
+    @Test
+    void testConcurrentWritersAcrossPartitions() throws Exception {
+        int writers = 8;
+        int rowsPerWriter = 2000;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                results.add(executor.submit(() -> {
+                    for (int i = 0; i < rowsPerWriter; i++) {
+                        repository.create(transaction("ACC" + (writer * 31 + i) % 100, (long) writer * rowsPerWriter + i));
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(writers * rowsPerWriter, repository.count());
+        List<Transaction> all = repository.findAll(0, writers * rowsPerWriter);
+        assertEquals(writers * rowsPerWriter, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(TransactionKey.of(all.get(i - 1)).compareTo(TransactionKey.of(all.get(i))) < 0);
+        }
+    }
+
+    @Test
+    void testReadersNeverMissARowBeingMoved() throws Exception {
+        Transaction row = repository.create(transaction("ACC0", 1));
+        String[] accounts = {"ACC0", accountInOtherPartition("ACC0")};
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> mover = executor.submit(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    Transaction moved = transaction(accounts[i % 2], 1);
+                    moved.setId(row.getId());
+                    repository.replace(moved);
+                }
+                done.set(true);
+            });
+            while (!done.get()) {
+                assertTrue(repository.findById(row.getId()).isPresent());
+            }
+            mover.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
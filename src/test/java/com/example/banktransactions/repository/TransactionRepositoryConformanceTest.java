@@ -0,0 +1,384 @@
+package com.example.banktransactions.repository;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.IdGenerator;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The contract of {@link TransactionRepository}, run once per engine by the subclasses. Engines may hand out
+ * copies, so rows are compared by id and field values rather than by identity.
+ */
+public abstract class TransactionRepositoryConformanceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    protected final PeekableIds ids = new PeekableIds();
+    protected TransactionRepository repository;
+
+    protected abstract TransactionRepository newRepository();
+
+    @BeforeEach
+    void setUp() {
+        repository = newRepository();
+    }
+
+    /**
+     * Snowflake ids for the repository under test, with the next one readable ahead of time, as a client that
+     * guesses it could.
+     */
+    protected static final class PeekableIds implements IdGenerator {
+
+        private final IdGenerator delegate = new SnowflakeIdGenerator(0);
+        private final Deque<String> ahead = new ArrayDeque<>();
+
+        synchronized String peek() {
+            if (ahead.isEmpty()) {
+                ahead.add(delegate.nextId());
+            }
+            return ahead.peek();
+        }
+
+        @Override
+        public synchronized String nextId() {
+            return ahead.isEmpty() ? delegate.nextId() : ahead.poll();
+        }
+
+        @Override
+        public void observe(String id) {
+            delegate.observe(id);
+        }
+    }
+
+    private static Transaction transaction(String accountId, int minute, String description) {
+        Transaction transaction = new Transaction(accountId, BigDecimal.TEN, "DEPOSIT", description);
+        transaction.setTimestamp(START.plusMinutes(minute));
+        return transaction;
+    }
+
+    private Transaction create(String accountId, int minute) {
+        return repository.create(transaction(accountId, minute, "Test transaction"));
+    }
+
+    @Test
+    void testRowsReadBackExactly() {
+        Transaction transaction = new Transaction("ACC1", new BigDecimal("100.50"), "TRANSFER", null);
+        transaction.setTimestamp(LocalDateTime.of(2025, 3, 1, 9, 30, 15, 123_456_000));
+        transaction.setVersion(7);
+        String id = repository.create(transaction).getId();
+        assertNotNull(id);
+
+        Transaction stored = repository.findById(id).orElseThrow();
+        assertEquals(id, stored.getId());
+        assertEquals("ACC1", stored.getAccountId());
+        assertEquals(new BigDecimal("100.50"), stored.getAmount());
+        assertEquals("TRANSFER", stored.getType());
+        assertNull(stored.getDescription());
+        assertEquals(transaction.getTimestamp(), stored.getTimestamp());
+        assertEquals(7, stored.getVersion());
+        assertTrue(repository.findById("missing").isEmpty());
+    }
+
+    @Test
+    void testFindAllByIdLeavesOutUnknownIds() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            ids.add(create("ACC" + (i % 3), i).getId());
+        }
+        List<String> wanted = new ArrayList<>(ids.subList(0, 1100));
+        wanted.add("missing");
+
+        Map<String, Transaction> found = repository.findAllById(wanted);
+        assertEquals(1100, found.size());
+        assertFalse(found.containsKey("missing"));
+        assertEquals("ACC2", found.get(ids.get(5)).getAccountId());
+        assertTrue(repository.findAllById(List.of()).isEmpty());
+    }
+
+    @Test
+    void testCreateReplacesRowWithSameId() {
+        Transaction original = create("ACC1", 10);
+        Transaction replacement = transaction("ACC2", 20, "Replacement");
+        replacement.setId(original.getId());
+        repository.create(replacement);
+
+        assertEquals(1, repository.count());
+        assertEquals("ACC2", repository.findById(original.getId()).orElseThrow().getAccountId());
+        assertTrue(repository.findByAccountId("ACC1", 0, 10).isEmpty());
+        assertEquals(ids(replacement), ids(repository.search("repl", 0, 10)));
+        assertTrue(repository.search("test", 0, 10).isEmpty());
+    }
+
+    @Test
+    void testCreateIfAbsentAndCreateAllReportConflicts() {
+        Transaction existing = create("ACC1", 10);
+        Transaction duplicate = transaction("ACC1", 11, "Duplicate");
+        duplicate.setId(existing.getId());
+        assertFalse(repository.createIfAbsent(duplicate));
+        assertEquals("Test transaction", repository.findById(existing.getId()).orElseThrow().getDescription());
+
+        Transaction fresh = transaction("ACC1", 12, "Fresh");
+        Transaction repeated = transaction("ACC1", 13, "Repeated");
+        repeated.setId("repeated");
+        Transaction repeatedAgain = transaction("ACC1", 14, "Repeated again");
+        repeatedAgain.setId("repeated");
+        List<Transaction> conflicts = repository.createAll(List.of(fresh, duplicate, repeated, repeatedAgain));
+
+        assertEquals(List.of(duplicate, repeatedAgain), conflicts);
+        assertNotNull(fresh.getId());
+        assertEquals(3, repository.count());
+        assertEquals("Repeated", repository.findById("repeated").orElseThrow().getDescription());
+    }
+
+    @Test
+    void testConcurrentCreateIfAbsentHasOneWinner() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Transaction transaction = transaction("ACC" + i, i, "Contender " + i);
+                transaction.setId("contested");
+                results.add(executor.submit(() -> repository.createIfAbsent(transaction)));
+            }
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                winners += result.get() ? 1 : 0;
+            }
+            assertEquals(1, winners);
+            assertEquals(1, repository.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testListingsAreKeyOrderedAndPaged() {
+        Transaction third = create("ACC1", 30);
+        Transaction first = create("ACC1", 10);
+        Transaction other = create("ACC2", 15);
+        Transaction second = create("ACC1", 20);
+        // same timestamp as first: ties are broken by id
+        Transaction tie = transaction("ACC2", 10, "Tie");
+        tie.setId(first.getId() + "~");
+        repository.create(tie);
+
+        assertEquals(ids(first, tie, other, second, third), ids(repository.findAll(0, 10)));
+        assertEquals(ids(other, second), ids(repository.findAll(1, 2)));
+        assertEquals(ids(first, second), ids(repository.findByAccountId("ACC1", 0, 2)));
+        assertEquals(ids(third), ids(repository.findByAccountId("ACC1", 1, 2)));
+        assertTrue(repository.findByAccountId("ACC1", 2, 2).isEmpty());
+        assertTrue(repository.findByAccountId("missing", 0, 10).isEmpty());
+
+        assertEquals(ids(tie, other), ids(repository.findAllAfter(TransactionKey.of(first), 2)));
+        assertEquals(ids(third), ids(repository.findByAccountIdAfter("ACC1", TransactionKey.of(second), 10)));
+        assertEquals(ids(first, tie), ids(repository.findAllAfter(null, 2)));
+    }
+
+    @Test
+    void testFindByTimeRangeHonoursBoundsAndCursor() {
+        Transaction early = create("ACC1", 5);
+        Transaction inside1 = create("ACC1", 10);
+        Transaction inside2 = create("ACC2", 15);
+        Transaction inside3 = create("ACC1", 19);
+        create("ACC1", 20);
+        LocalDateTime from = START.plusMinutes(10);
+        LocalDateTime to = START.plusMinutes(20);
+
+        assertEquals(ids(inside1, inside2, inside3), ids(repository.findByTimeRange(null, from, to, null, 10)));
+        assertEquals(ids(inside1, inside3), ids(repository.findByTimeRange("ACC1", from, to, null, 10)));
+        assertEquals(ids(inside2), ids(repository.findByTimeRange(null, from, to, TransactionKey.of(inside1), 1)));
+        assertEquals(ids(inside1), ids(repository.findByTimeRange(null, from, to, TransactionKey.of(early), 1)));
+        assertEquals(ids(early), ids(repository.findByTimeRange(null, null, from, null, 10)));
+        assertEquals(ids(inside3), ids(repository.findByTimeRange("ACC1", from, to, 1, 1)));
+    }
+
+    @Test
+    void testSearchFollowsWrites() {
+        Transaction rent = repository.create(transaction("ACC1", 10, "Monthly rent payment"));
+        Transaction salary = repository.create(transaction("ACC2", 20, "Salary"));
+
+        assertEquals(ids(rent), ids(repository.search("RENT", 0, 10)));
+        assertEquals(ids(rent), ids(repository.search("pay acc1", 0, 10)));
+        assertEquals(ids(rent, salary), ids(repository.search("dep", 0, 10)));
+        assertEquals(ids(salary), ids(repository.search("dep", 1, 1)));
+        assertTrue(repository.search("pay acc2", 0, 10).isEmpty());
+        assertTrue(repository.search(" - ", 0, 10).isEmpty());
+
+        Transaction renamed = transaction("ACC1", 10, "Groceries");
+        renamed.setId(rent.getId());
+        repository.update(renamed);
+        assertTrue(repository.search("rent", 0, 10).isEmpty());
+        assertEquals(ids(rent), ids(repository.search("groc", 0, 10)));
+
+        repository.delete(rent.getId());
+        assertTrue(repository.search("groceries", 0, 10).isEmpty());
+    }
+
+    @Test
+    void testPrefixSpanningSeveralTokensMergesInTimeOrder() {
+        Transaction payroll = repository.create(transaction("ACC1", 40, "Payroll"));
+        Transaction both = repository.create(transaction("ACC1", 10, "Payment via paypal"));
+        Transaction paypal = repository.create(transaction("ACC2", 30, "Paypal refund"));
+        repository.create(transaction("ACC2", 20, "Rent"));
+
+        assertEquals(ids(both, paypal, payroll), ids(repository.search("pay", 0, 10)));
+        assertEquals(ids(paypal), ids(repository.search("pay", 1, 1)));
+        assertEquals(ids(both, payroll), ids(repository.search("pay acc1", 0, 10)));
+        assertEquals(ids(both, paypal), ids(repository.search("payp", 0, 10)));
+    }
+
+    @Test
+    void testReplaceAndRemoveReturnPreviousValue() {
+        Transaction original = create("ACC1", 10);
+        Transaction replacement = transaction("ACC2", 40, "Updated");
+        replacement.setId(original.getId());
+
+        assertEquals("Test transaction", repository.replace(replacement).getDescription());
+        assertEquals(ids(replacement), ids(repository.findByAccountId("ACC2", 0, 10)));
+        assertTrue(repository.findByAccountId("ACC1", 0, 10).isEmpty());
+
+        Transaction unknown = transaction("ACC1", 50, "Unknown");
+        unknown.setId("unknown");
+        assertNull(repository.replace(unknown));
+        assertFalse(repository.update(unknown));
+        assertTrue(repository.findById("unknown").isEmpty());
+
+        assertEquals("Updated", repository.remove(original.getId()).getDescription());
+        assertNull(repository.remove(original.getId()));
+        assertFalse(repository.delete(original.getId()));
+        assertEquals(0, repository.count());
+        assertTrue(repository.findAll(0, 10).isEmpty());
+    }
+
+    @Test
+    void testConditionalWritesCompareTheStoredVersion() {
+        Transaction original = transaction("ACC1", 10, "Original");
+        original.setVersion(1);
+        repository.create(original);
+        Transaction next = transaction("ACC2", 20, "Next");
+        next.setId(original.getId());
+        next.setVersion(2);
+
+        // a stale expectation returns the stored row and changes nothing
+        assertEquals(1, repository.replaceIfVersion(next, 5).getVersion());
+        assertEquals("Original", repository.findById(original.getId()).orElseThrow().getDescription());
+        assertEquals(1, repository.removeIfVersion(original.getId(), 5).getVersion());
+        assertEquals(1, repository.count());
+
+        assertEquals(1, repository.replaceIfVersion(next, 1).getVersion());
+        Transaction stored = repository.findById(original.getId()).orElseThrow();
+        assertEquals(2, stored.getVersion());
+        assertEquals("Next", stored.getDescription());
+        assertEquals(ids(next), ids(repository.findByAccountId("ACC2", 0, 10)));
+
+        assertEquals(2, repository.removeIfVersion(original.getId(), 2).getVersion());
+        assertTrue(repository.findById(original.getId()).isEmpty());
+        assertNull(repository.replaceIfVersion(next, 2));
+        assertNull(repository.removeIfVersion(original.getId(), 2));
+    }
+
+    @Test
+    void testConcurrentConditionalReplacesHaveOneWinnerPerVersion() throws Exception {
+        Transaction original = transaction("ACC1", 10, "Original");
+        original.setVersion(1);
+        repository.create(original);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                Transaction contender = transaction("ACC" + i, 10, "Contender " + i);
+                contender.setId(original.getId());
+                contender.setVersion(2);
+                results.add(executor.submit(() -> repository.replaceIfVersion(contender, 1).getVersion() == 1));
+            }
+            int winners = 0;
+            for (Future<Boolean> result : results) {
+                winners += result.get() ? 1 : 0;
+            }
+            assertEquals(1, winners);
+            assertEquals(2, repository.findById(original.getId()).orElseThrow().getVersion());
+            assertEquals(1, repository.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * An import-sized load: every row is visited exactly once by forEach and by a keyset walk in key order.
+     */
+    @Test
+    void testBulkLoadIsWalkedCompletely() {
+        int rows = 5000;
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            batch.add(transaction("ACC" + i % 50, i % 600, "Bulk payment " + i));
+        }
+        for (int start = 0; start < rows; start += 1000) {
+            assertTrue(repository.createAll(batch.subList(start, start + 1000)).isEmpty());
+        }
+        assertEquals(rows, repository.count());
+
+        Set<String> visited = new HashSet<>();
+        repository.forEach(transaction -> assertTrue(visited.add(transaction.getId())));
+        assertEquals(rows, visited.size());
+
+        List<TransactionKey> walked = new ArrayList<>();
+        TransactionKey cursor = null;
+        List<Transaction> page;
+        while (!(page = repository.findAllAfter(cursor, 250)).isEmpty()) {
+            page.forEach(transaction -> walked.add(TransactionKey.of(transaction)));
+            cursor = walked.get(walked.size() - 1);
+        }
+        List<TransactionKey> expected = batch.stream().map(TransactionKey::of).sorted().toList();
+        assertEquals(expected, walked);
+    }
+
+    private static List<String> ids(Transaction... transactions) {
+        return Arrays.stream(transactions).map(Transaction::getId).toList();
+    }
+
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getId).toList();
+    }
+
+    @Test
+    void testGeneratedIdTakenByAClientIsNotAConflict() {
+        List<String> claimed = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Transaction ahead = transaction("ACC1", i, "Claimed ahead");
+            ahead.setId(ids.peek());
+            assertTrue(repository.createIfAbsent(ahead));
+            claimed.add(ahead.getId());
+
+            Transaction generated = transaction("ACC2", i, "Generated");
+            switch (i) {
+                case 0 -> assertTrue(repository.createIfAbsent(generated));
+                case 1 -> assertTrue(repository.createAll(List.of(generated)).isEmpty());
+                default -> repository.create(generated);
+            }
+            assertNotEquals(ahead.getId(), generated.getId());
+            assertEquals("Generated", repository.findById(generated.getId()).orElseThrow().getDescription());
+        }
+        for (String id : claimed) {
+            assertEquals("Claimed ahead", repository.findById(id).orElseThrow().getDescription());
+        }
+        assertEquals(6, repository.count());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.banktransactions.repository.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnowflakeIdGeneratorTest {
+
+    @Test
+    void testIdsAreUniqueAndSortByCreationUnderContention() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        Map<Integer, List<String>> perThread = new ConcurrentHashMap<>();
+        IntStream.range(0, 8).parallel().forEach(thread -> {
+            List<String> sequence = new ArrayList<>();
+            for (int i = 0; i < 20_000; i++) {
+                String id = generator.nextId();
+                ids.add(id);
+                sequence.add(id);
+            }
+            perThread.put(thread, sequence);
+        });
+
+        assertEquals(160_000, ids.size());
+        for (List<String> sequence : perThread.values()) {
+            List<String> sorted = new ArrayList<>(sequence);
+            Collections.sort(sorted);
+            assertEquals(sorted, sequence, "ids issued later must sort later");
+        }
+    }
+
+    @Test
+    void testEncodingRoundTripsAndCarriesTimestamp() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID);
+        long value = generator.nextLong();
+        assertEquals(value, SnowflakeIdGenerator.decode(SnowflakeIdGenerator.encode(value)));
+        Instant created = SnowflakeIdGenerator.timestampOf(generator.nextId());
+        assertTrue(Duration.between(created, Instant.now()).abs().toSeconds() < 5);
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+
+    @Test
+    void testObservedIdsOfThisNodeAreNeverIssuedAgain() {
+        // stored before a restart by a clock an hour ahead of this one, i.e. this clock stepped back
+        long ahead = Instant.now().plus(Duration.ofHours(1)).toEpochMilli() - SnowflakeIdGenerator.EPOCH.toEpochMilli();
+        String stored = SnowflakeIdGenerator.encode((ahead << 22) | (3L << 12) | 4095);
+        String otherNode = SnowflakeIdGenerator.encode(((ahead + 1000) << 22) | (4L << 12));
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        generator.observe(otherNode);
+        generator.observe("client-chosen-id");
+        generator.observe("ZZZZZZZZZZZZZ");
+        generator.observe(stored);
+
+        String next = generator.nextId();
+        assertTrue(next.compareTo(stored) > 0, next + " must sort after " + stored);
+        assertTrue(next.compareTo(otherNode) < 0, "ids of other nodes cannot collide and are ignored");
+        assertEquals(Instant.ofEpochMilli(ahead + 1 + SnowflakeIdGenerator.EPOCH.toEpochMilli()),
+                SnowflakeIdGenerator.timestampOf(next));
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.banktransactions.repository.journal;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private localMemoryTransactionRepository open(DurabilityMode mode) throws IOException {
+        TransactionJournal journal = new TransactionJournal(directory, mode, 5, 1 << 20);
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository(Optional.of(journal), new SnowflakeIdGenerator(0));
+        repository.recover();
+        return repository;
+    }
+
+    private static Transaction transaction(String id, String accountId) {
+        Transaction transaction = new Transaction(accountId, new BigDecimal("12.34"), "DEPOSIT", "描述 " + id);
+        transaction.setId(id);
+        return transaction;
+    }
+
+    @Test
+    void testWritesSurviveRestartInEveryMode() throws IOException {
+        for (DurabilityMode mode : DurabilityMode.values()) {
+            localMemoryTransactionRepository repository = open(mode);
+            repository.create(transaction(mode + "-1", "ACC1"));
+            repository.create(transaction(mode + "-2", "ACC1"));
+            Transaction updated = transaction(mode + "-1", "ACC1");
+            updated.setAmount(new BigDecimal("99.5"));
+            updated.setVersion(2);
+            repository.update(updated);
+            repository.delete(mode + "-2");
+            repository.close();
+        }
+
+        localMemoryTransactionRepository recovered = open(DurabilityMode.FSYNC);
+        assertEquals(DurabilityMode.values().length, recovered.count());
+        Transaction restored = recovered.findById("ASYNC-1").orElseThrow();
+        assertEquals(new BigDecimal("99.5"), restored.getAmount());
+        assertEquals(2, restored.getVersion());
+        assertEquals("描述 ASYNC-1", restored.getDescription());
+        assertEquals(1, recovered.findByAccountId("ACC1", 0, 10).stream().filter(t -> t.getId().startsWith("BATCHED")).count());
+        recovered.close();
+    }
+
+    @Test
+    void testIdsGeneratedAfterRestartStayAboveRecoveredOnes() throws IOException {
+        localMemoryTransactionRepository repository = open(DurabilityMode.FSYNC);
+        String last = null;
+        for (int i = 0; i < 100; i++) {
+            last = repository.create(new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", null)).getId();
+        }
+        repository.close();
+
+        localMemoryTransactionRepository restarted = open(DurabilityMode.FSYNC);
+        String next = restarted.create(new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", null)).getId();
+        assertTrue(next.compareTo(last) > 0, next + " must sort after " + last);
+        assertEquals(101, restarted.count());
+        restarted.close();
+    }
+
+    @Test
+    void testSnapshotTruncatesReplayAndTornTailIsDropped() throws IOException {
+        localMemoryTransactionRepository repository = open(DurabilityMode.BATCHED);
+        repository.create(transaction("1", "ACC1"));
+        repository.create(transaction("2", "ACC1"));
+        repository.snapshot();
+        repository.create(transaction("3", "ACC2"));
+        repository.delete("1");
+        repository.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count(), "older segments are dropped once a snapshot covers them");
+        }
+        Path tail;
+        try (Stream<Path> files = Files.list(directory)) {
+            tail = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(tail, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        localMemoryTransactionRepository recovered = open(DurabilityMode.BATCHED);
+        assertEquals(2, recovered.count());
+        assertTrue(recovered.findById("1").isEmpty());
+        assertTrue(recovered.findById("3").isPresent());
+        recovered.create(transaction("4", "ACC2"));
+        recovered.close();
+
+        localMemoryTransactionRepository reopened = open(DurabilityMode.BATCHED);
+        assertEquals(3, reopened.count());
+        reopened.close();
+    }
+
+    @Test
+    void testFailedForceIsNotAcknowledgedAndLeavesMemoryAsTheLog() throws IOException {
+        for (DurabilityMode mode : new DurabilityMode[]{DurabilityMode.FSYNC, DurabilityMode.BATCHED}) {
+            Path modeDirectory = Files.createDirectories(directory.resolve(mode.name()));
+            FailingJournal journal = new FailingJournal(modeDirectory, mode);
+            localMemoryTransactionRepository repository = new localMemoryTransactionRepository(Optional.of(journal), new SnowflakeIdGenerator(0));
+            repository.recover();
+            repository.create(transaction("1", "ACC1"));
+
+            journal.failing = true;
+            Transaction updated = transaction("1", "ACC1");
+            updated.setVersion(2);
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                assertThrows(UncheckedIOException.class, () -> repository.update(updated));
+                assertThrows(UncheckedIOException.class, () -> repository.create(transaction("2", "ACC1")));
+            });
+            journal.failing = false;
+            assertThrows(UncheckedIOException.class, () -> repository.create(transaction("3", "ACC1")));
+
+            assertEquals(1, repository.count(), mode.name());
+            assertEquals(0, repository.findById("1").orElseThrow().getVersion());
+            assertEquals(1, repository.findByAccountId("ACC1", 0, 10).size());
+            repository.close();
+
+            TransactionJournal reopenedJournal = new TransactionJournal(modeDirectory, mode, 5, 1 << 20);
+            localMemoryTransactionRepository reopened = new localMemoryTransactionRepository(Optional.of(reopenedJournal), new SnowflakeIdGenerator(0));
+            reopened.recover();
+            assertEquals(1, reopened.count());
+            assertEquals(0, reopened.findById("1").orElseThrow().getVersion());
+            reopened.close();
+        }
+    }
+
+    /**
+     * Writes reach the file, but forcing them fails while {@code failing} is set, like a disk that went away.
+     */
+    private static final class FailingJournal extends TransactionJournal {
+
+        volatile boolean failing;
+
+        FailingJournal(Path directory, DurabilityMode mode) throws IOException {
+            super(directory, mode, 5, 1 << 20);
+        }
+
+        @Override
+        FileChannel open(Path file) throws IOException {
+            FileChannel channel = super.open(file);
+            return new FileChannel() {
+                @Override
+                public void force(boolean metaData) throws IOException {
+                    if (failing) {
+                        throw new IOException("disk gone");
+                    }
+                    channel.force(metaData);
+                }
+
+                @Override
+                public int write(ByteBuffer src) throws IOException {
+                    return channel.write(src);
+                }
+
+                @Override
+                public long size() throws IOException {
+                    return channel.size();
+                }
+
+                @Override
+                public FileChannel truncate(long size) throws IOException {
+                    channel.truncate(size);
+                    return this;
+                }
+
+                @Override
+                protected void implCloseChannel() throws IOException {
+                    channel.close();
+                }
+
+                @Override
+                public int read(ByteBuffer dst) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long read(ByteBuffer[] dsts, int offset, int length) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long write(ByteBuffer[] srcs, int offset, int length) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long position() throws IOException {
+                    return channel.position();
+                }
+
+                @Override
+                public FileChannel position(long newPosition) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long transferTo(long position, long count, WritableByteChannel target) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public long transferFrom(ReadableByteChannel src, long position, long count) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read(ByteBuffer dst, long position) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int write(ByteBuffer src, long position) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public MappedByteBuffer map(MapMode mode, long position, long size) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public FileLock lock(long position, long size, boolean shared) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public FileLock tryLock(long position, long size, boolean shared) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
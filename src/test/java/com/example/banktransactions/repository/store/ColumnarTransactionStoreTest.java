@@ -0,0 +1,117 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarTransactionStoreTest {
+
+    private final ColumnarTransactionStore store = new ColumnarTransactionStore();
+
+    private static Transaction transaction(String id, String accountId, BigDecimal amount, String type) {
+        Transaction transaction = new Transaction(accountId, amount, type, "Description of " + id);
+        transaction.setId(id);
+        transaction.setTimestamp(LocalDateTime.of(2025, 3, 1, 9, 30, 15, 123_456_000));
+        return transaction;
+    }
+
+    private void put(Transaction transaction) {
+        store.compute(transaction.getId(), (id, current) -> transaction);
+    }
+
+    private static void assertSameRow(Transaction expected, Transaction actual) {
+        assertNotSame(expected, actual);
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    @Test
+    void testRowsReadBackExactly() {
+        List<Transaction> rows = List.of(
+                transaction("1", "ACC1", new BigDecimal("100.50"), "DEPOSIT"),
+                transaction("2", "ACC1", new BigDecimal("1E+3"), "TRANSFER"),
+                transaction("3", "ACC2", new BigDecimal("123456789012345678901234567890.12"), "withdrawal"),
+                transaction("4", null, null, null));
+        rows.forEach(this::put);
+
+        for (Transaction row : rows) {
+            assertSameRow(row, store.get(row.getId()));
+        }
+        assertEquals(4, store.size());
+        assertNull(store.get("missing"));
+    }
+
+    @Test
+    void testReleasedSlotsAreReused() {
+        put(transaction("1", "ACC1", BigDecimal.ONE, "OTHER"));
+        store.compute("1", (id, current) -> null);
+        assertNull(store.get("1"));
+
+        Transaction reuse = transaction("2", "ACC2", BigDecimal.TEN, "DEPOSIT");
+        put(reuse);
+        assertNull(store.get("1"));
+        assertSameRow(reuse, store.get("2"));
+        assertEquals(1, store.size());
+
+        // returning the current row leaves it untouched
+        store.compute("2", (id, current) -> current);
+        assertSameRow(reuse, store.get("2"));
+    }
+
+    @Test
+    void testReadersNeverSeeTornRows() throws Exception {
+        put(transaction("1", "ACC0", BigDecimal.ZERO, "DEPOSIT"));
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 1; i < 200_000; i++) {
+                    put(transaction("1", "ACC" + i, BigDecimal.valueOf(i), "DEPOSIT"));
+                }
+                running.set(false);
+            });
+            Future<?> reader = executor.submit(() -> {
+                while (running.get()) {
+                    Transaction row = store.get("1");
+                    assertEquals("ACC" + row.getAmount().intValueExact(), row.getAccountId());
+                }
+            });
+            writer.get(30, TimeUnit.SECONDS);
+            reader.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRepositoryOnColumnarStore() {
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository(
+                Optional.empty(), new SnowflakeIdGenerator(0), store);
+        Transaction rent = repository.create(new Transaction("ACC1", new BigDecimal("950.00"), "WITHDRAWAL", "Rent"));
+        repository.create(new Transaction("ACC2", BigDecimal.ONE, "DEPOSIT", "Interest"));
+
+        Transaction changed = new Transaction(rent);
+        changed.setDescription("Rent March");
+        Transaction previous = repository.replace(changed);
+
+        assertEquals("Rent", previous.getDescription());
+        assertEquals("Rent March", repository.findById(rent.getId()).orElseThrow().getDescription());
+        assertEquals(1, repository.findByAccountId("ACC1", 0, 10).size());
+        assertEquals(rent.getId(), repository.search("march", 0, 10).get(0).getId());
+        assertTrue(repository.search("rent acc2", 0, 10).isEmpty());
+        assertEquals(rent.getId(), repository.remove(rent.getId()).getId());
+        assertEquals(1, repository.count());
+    }
+}
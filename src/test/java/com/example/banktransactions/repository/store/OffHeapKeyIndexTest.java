@@ -0,0 +1,114 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.repository.TransactionKey;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapKeyIndexTest {
+
+    // small nodes so a few thousand keys build a tree several levels deep
+    private final OffHeapKeyIndex index = new OffHeapKeyIndex(256);
+
+    private static List<TransactionKey> list(Iterator<TransactionKey> keys) {
+        List<TransactionKey> list = new ArrayList<>();
+        keys.forEachRemaining(list::add);
+        return list;
+    }
+
+    @Test
+    void testMatchesSortedSetsUnderRandomWrites() {
+        TreeMap<String, NavigableSet<TransactionKey>> expected = new TreeMap<>();
+        Random random = new Random(42);
+        // ids and scopes outside ASCII, and times on both sides of the epoch, exercise the byte order
+        String[] scopes = {"ACC1", "ACC10", "ACC2", "zürich", "交易", "a\u0000b"};
+        for (int i = 0; i < 30_000; i++) {
+            String scope = scopes[random.nextInt(scopes.length)];
+            TransactionKey key = new TransactionKey(random.nextInt(2_000) - 1_000,
+                    (char) ('a' + random.nextInt(3)) + "😀".substring(random.nextInt(3)));
+            if (random.nextInt(3) == 0) {
+                index.remove(scope, key);
+                NavigableSet<TransactionKey> keys = expected.get(scope);
+                if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    expected.remove(scope);
+                }
+            } else {
+                index.add(scope, key);
+                expected.computeIfAbsent(scope, s -> new TreeSet<>()).add(key);
+            }
+        }
+
+        for (String scope : scopes) {
+            NavigableSet<TransactionKey> keys = expected.getOrDefault(scope, new TreeSet<>());
+            assertEquals(new ArrayList<>(keys), list(index.iterator(scope, null, false, null)), scope);
+            assertEquals(keys.size(), index.count(scope), scope);
+            TransactionKey from = new TransactionKey(-200, "b");
+            TransactionKey to = new TransactionKey(300, "");
+            assertEquals(new ArrayList<>(keys.subSet(from, false, to, false)),
+                    list(index.iterator(scope, from, false, to)), scope);
+            assertEquals(new ArrayList<>(keys.subSet(from, true, to, false)),
+                    list(index.iterator(scope, from, true, to)), scope);
+            List<TransactionKey> range = new ArrayList<>(keys.subSet(from, true, to, false));
+            for (int skip : new int[]{1, 7, 100, range.size(), range.size() + 1}) {
+                assertEquals(range.subList(Math.min(skip, range.size()), range.size()),
+                        list(index.iterator(scope, from, true, to, skip)), scope);
+            }
+            for (TransactionKey key : keys) {
+                assertTrue(index.contains(scope, key));
+            }
+        }
+        assertEquals(List.of("ACC1", "ACC10"), index.scopes("ACC1"));
+        assertEquals(List.of("zürich"), index.scopes("zü"));
+        assertEquals(List.of(), index.scopes("ACC3"));
+    }
+
+    @Test
+    void testEmptiedNodesAreReused() {
+        for (int i = 0; i < 5_000; i++) {
+            index.add("", new TransactionKey(i, "T" + i));
+        }
+        long allocated = index.offHeapBytes();
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 5_000; i++) {
+                index.remove("", new TransactionKey(i, "T" + i));
+            }
+            assertFalse(index.iterator("", null, false, null).hasNext());
+            for (int i = 0; i < 5_000; i++) {
+                index.add("", new TransactionKey(i, "T" + i));
+            }
+        }
+        assertEquals(allocated, index.offHeapBytes());
+        assertEquals(5_000, index.count(""));
+        assertThrows(IllegalArgumentException.class, () -> index.add("", new TransactionKey(0, "x".repeat(100))));
+    }
+
+    @Test
+    void testIteratorSeesKeysThatStayDuringWrites() {
+        for (int i = 0; i < 1_000; i++) {
+            index.add("", new TransactionKey(i, "T"));
+        }
+        Iterator<TransactionKey> keys = index.iterator("", null, false, null);
+        List<Long> seen = new ArrayList<>();
+        while (keys.hasNext()) {
+            long time = keys.next().timeMicros();
+            seen.add(time);
+            // odd keys are removed and re-added ahead of the cursor as it goes
+            if (time + 1 < 1_000 && (time + 1) % 2 == 1) {
+                index.remove("", new TransactionKey(time + 1, "T"));
+                index.add("", new TransactionKey(time + 1, "T"));
+            }
+        }
+        assertEquals(1_000, seen.size());
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(i, seen.get(i));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.banktransactions.repository.store;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.id.SnowflakeIdGenerator;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapTransactionStoreTest {
+
+    // small pages and few segments so tests cross page boundaries and share hash tables
+    private final OffHeapTransactionStore store = new OffHeapTransactionStore(2, 1024);
+
+    private static Transaction transaction(String id, String description) {
+        Transaction transaction = new Transaction("ACC" + id.length(), new BigDecimal("12.34"), "DEPOSIT", description);
+        transaction.setId(id);
+        transaction.setTimestamp(LocalDateTime.of(2025, 3, 1, 9, 30, 15, 123_456_000));
+        return transaction;
+    }
+
+    private void put(Transaction transaction) {
+        store.compute(transaction.getId(), (id, current) -> transaction);
+    }
+
+    @Test
+    void testRowsReadBackExactly() {
+        Transaction full = transaction("1", "Grocery store ✓");
+        full.setAmount(new BigDecimal("123456789012345678901234567890.12"));
+        Transaction empty = new Transaction();
+        empty.setId("2");
+        empty.setTimestamp(null);
+        put(full);
+        put(empty);
+
+        assertEquals(full.toString(), store.get("1").toString());
+        assertEquals(empty.toString(), store.get("2").toString());
+        assertNull(store.get("3"));
+    }
+
+    @Test
+    void testMatchesHashMapUnderRandomWrites() {
+        Map<String, String> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            String id = "T" + random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                store.compute(id, (key, current) -> null);
+                expected.remove(id);
+            } else {
+                // varying lengths move rows between size classes
+                String description = "x".repeat(random.nextInt(300));
+                put(transaction(id, description));
+                expected.put(id, description);
+            }
+        }
+
+        assertEquals(expected.size(), store.size());
+        for (int i = 0; i < 2_000; i++) {
+            String id = "T" + i;
+            Transaction stored = store.get(id);
+            assertEquals(expected.get(id), stored == null ? null : stored.getDescription(), id);
+        }
+        Set<String> iterated = new HashSet<>();
+        store.forEach(transaction -> assertTrue(iterated.add(transaction.getId())));
+        assertEquals(expected.keySet(), iterated);
+    }
+
+    @Test
+    void testDeletedBlocksAreReused() {
+        for (int i = 0; i < 500; i++) {
+            put(transaction("T" + i, "Payment"));
+        }
+        long allocated = store.offHeapBytes();
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 500; i++) {
+                store.compute("T" + i, (id, current) -> null);
+            }
+            for (int i = 0; i < 500; i++) {
+                put(transaction("T" + i, "Payment"));
+            }
+        }
+        assertEquals(allocated, store.offHeapBytes());
+        assertThrows(IllegalArgumentException.class, () -> put(transaction("big", "x".repeat(2048))));
+    }
+
+    @Test
+    void testRepositoryOnOffHeapStore() {
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository(
+                Optional.empty(), new SnowflakeIdGenerator(0), new OffHeapTransactionStore());
+        Transaction rent = repository.create(new Transaction("ACC1", new BigDecimal("950.00"), "WITHDRAWAL", "Rent"));
+        repository.create(new Transaction("ACC2", BigDecimal.ONE, "DEPOSIT", "Interest"));
+
+        Transaction changed = new Transaction(rent);
+        changed.setDescription("Rent March");
+        assertEquals("Rent", repository.replace(changed).getDescription());
+        assertEquals("Rent March", repository.findById(rent.getId()).orElseThrow().getDescription());
+        assertEquals(rent.getId(), repository.findByAccountId("ACC1", 0, 10).get(0).getId());
+        assertEquals(rent.getId(), repository.search("march", 0, 10).get(0).getId());
+        assertTrue(repository.delete(rent.getId()));
+        assertEquals(1, repository.count());
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.model.AccountBalance;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AccountBalanceViewTest {
+
+    private localMemoryTransactionRepository repository;
+    private TransactionService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = new localMemoryTransactionRepository();
+        service = new TransactionService(repository, new AccountBalanceView(repository),
+                new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC),
+                new TransactionChangeFeed(256), TransactionCluster.standalone(), new NoOpCacheManager(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 1000, 1000);
+    }
+
+    @Test
+    void testDeltasOnCreateUpdateDelete() {
+        Transaction deposit = service.createTransaction(new Transaction("ACC1", new BigDecimal("100.00"), "DEPOSIT", null));
+        Transaction withdrawal = service.createTransaction(new Transaction("ACC1", new BigDecimal("30.00"), "WITHDRAWAL", null));
+        service.createTransaction(new Transaction("ACC1", new BigDecimal("20.00"), "TRANSFER", null));
+
+        Transaction change = new Transaction();
+        change.setId(withdrawal.getId());
+        change.setAmount(new BigDecimal("45.00"));
+        service.updateTransaction(change, null);
+        service.deleteTransaction(deposit.getId(), null);
+
+        AccountBalance balance = service.getAccountBalance("ACC1").orElseThrow();
+        assertEquals(0, new BigDecimal("-65.00").compareTo(balance.getBalance()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balance.getDepositTotal()));
+        assertEquals(0, new BigDecimal("45.00").compareTo(balance.getWithdrawalTotal()));
+        assertEquals(0, new BigDecimal("20.00").compareTo(balance.getTransferTotal()));
+        assertEquals(2, balance.getCount());
+        assertEquals(2, service.getAccountTransactionCount("ACC1"));
+        assertEquals(2, service.getTransactionCount());
+        assertNotNull(balance.getLastActivity());
+        assertTrue(service.getAccountBalance("ACC2").isEmpty());
+    }
+
+    @Test
+    void testConcurrentWritesMatchRecomputedTotals() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            ids.add(service.createTransaction(new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", null)).getId());
+        }
+        IntStream.range(0, 8).parallel().forEach(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 2000; i++) {
+                String id = ids.get(random.nextInt(ids.size()));
+                Transaction change = new Transaction();
+                change.setId(id);
+                change.setAmount(BigDecimal.valueOf(random.nextInt(1, 100)));
+                change.setType(random.nextBoolean() ? "DEPOSIT" : "WITHDRAWAL");
+                service.updateTransaction(change, null);
+            }
+        });
+
+        BigDecimal expected = BigDecimal.ZERO;
+        for (Transaction transaction : repository.findByAccountId("ACC1", 0, 1000)) {
+            expected = "DEPOSIT".equals(transaction.getType())
+                    ? expected.add(transaction.getAmount())
+                    : expected.subtract(transaction.getAmount());
+        }
+        AccountBalance balance = service.getAccountBalance("ACC1").orElseThrow();
+        assertEquals(0, expected.compareTo(balance.getBalance()));
+        assertEquals(200, balance.getCount());
+    }
+
+    @Test
+    void testCountsFollowConcurrentCreatesAndDeletesAndSurviveRebuild() {
+        List<String> ids = IntStream.range(0, 8).parallel()
+                .mapToObj(thread -> {
+                    List<String> created = new ArrayList<>();
+                    for (int i = 0; i < 500; i++) {
+                        created.add(service.createTransaction(
+                                new Transaction("ACC" + (i % 4), BigDecimal.ONE, "DEPOSIT", null)).getId());
+                    }
+                    return created;
+                })
+                .flatMap(List::stream)
+                .toList();
+        ids.subList(0, 1000).parallelStream().forEach(id -> service.deleteTransaction(id, null));
+
+        assertEquals(3000, service.getTransactionCount());
+        assertEquals(repository.count(), service.getTransactionCount());
+        long perAccount = IntStream.range(0, 4).mapToLong(i -> service.getAccountTransactionCount("ACC" + i)).sum();
+        assertEquals(3000, perAccount);
+        assertEquals(0, service.getAccountTransactionCount("ACC9"));
+
+        AccountBalanceView rebuilt = new AccountBalanceView(repository);
+        rebuilt.rebuild();
+        assertEquals(3000, rebuilt.count());
+        assertEquals(service.getAccountTransactionCount("ACC1"), rebuilt.count("ACC1"));
+    }
+
+    @Test
+    void testDeleteDeltaArrivingBeforeItsCreateKeepsTheOtherAmounts() {
+        AccountBalanceView view = new AccountBalanceView(repository);
+        Transaction kept = new Transaction("ACC1", new BigDecimal("70.00"), "DEPOSIT", null);
+        Transaction raced = new Transaction("ACC1", new BigDecimal("30.00"), "DEPOSIT", null);
+        view.onChange(null, kept);
+
+        view.onChange(raced, null);
+        view.onChange(null, raced);
+
+        AccountBalance balance = view.get("ACC1").orElseThrow();
+        assertEquals(0, new BigDecimal("70.00").compareTo(balance.getBalance()));
+        assertEquals(1, balance.getCount());
+        view.onChange(kept, null);
+        assertTrue(view.get("ACC1").isEmpty());
+    }
+
+    @Test
+    void testEmptiedAccountsAreForgottenWithoutReusingRevisions() {
+        AccountBalanceView view = new AccountBalanceView(repository);
+        long unseen = view.revision("ACC1");
+        Transaction transaction = new Transaction("ACC1", new BigDecimal("30.00"), "DEPOSIT", null);
+        view.onChange(null, transaction);
+        long written = view.revision("ACC1");
+        view.onChange(transaction, null);
+
+        long emptied = view.revision("ACC1");
+        assertNotEquals(unseen, written);
+        assertNotEquals(unseen, emptied);
+        assertNotEquals(written, emptied);
+        for (int i = 0; i < 1000; i++) {
+            Transaction other = new Transaction("ACC" + (i + 2), BigDecimal.ONE, "DEPOSIT", null);
+            view.onChange(null, other);
+            view.onChange(other, null);
+        }
+        assertEquals(0, view.trackedAccounts());
+        assertNotEquals(emptied, view.revision("ACC1"));
+    }
+
+    @Test
+    void testConcurrentCreatesAndDeletesOfOneAccountMatchRecomputedTotals() {
+        service.createTransaction(new Transaction("ACC1", new BigDecimal("5.00"), "DEPOSIT", null));
+        IntStream.range(0, 8).parallel().forEach(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 2000; i++) {
+                Transaction created = service.createTransaction(
+                        new Transaction("ACC1", BigDecimal.valueOf(random.nextInt(1, 100)), "DEPOSIT", null));
+                service.deleteTransaction(created.getId(), null);
+            }
+        });
+
+        AccountBalance balance = service.getAccountBalance("ACC1").orElseThrow();
+        assertEquals(0, new BigDecimal("5.00").compareTo(balance.getBalance()));
+        assertEquals(1, balance.getCount());
+        assertEquals(1, service.getTransactionCount());
+    }
+}
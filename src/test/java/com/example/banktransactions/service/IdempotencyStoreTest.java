@@ -0,0 +1,125 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.exception.IdempotencyKeyReusedException;
+import com.example.banktransactions.exception.TransactionAlreadyExistsException;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdempotencyStoreTest {
+
+    private localMemoryTransactionRepository repository;
+    private TransactionService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = new localMemoryTransactionRepository();
+        service = new TransactionService(repository, new AccountBalanceView(repository),
+                new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC),
+                new TransactionChangeFeed(256), TransactionCluster.standalone(), new NoOpCacheManager(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 1000, 1000);
+    }
+
+    private static Transaction request(String amount) {
+        return new Transaction("ACC1", new BigDecimal(amount), "DEPOSIT", "Retried payment");
+    }
+
+    @Test
+    void testRetryReturnsTheFirstTransaction() {
+        Transaction first = service.createTransaction(request("10.00"), "key-1");
+        Transaction retry = service.createTransaction(request("10.0"), "key-1");
+
+        assertEquals(first.getId(), retry.getId());
+        assertEquals(1, repository.count());
+        assertNotEquals(first.getId(), service.createTransaction(request("10.00"), "key-2").getId());
+        assertNotEquals(first.getId(), service.createTransaction(request("10.00"), null).getId());
+        assertEquals(3, repository.count());
+
+        assertThrows(IdempotencyKeyReusedException.class, () -> service.createTransaction(request("99"), "key-1"));
+        assertEquals(3, repository.count());
+    }
+
+    @Test
+    void testFailedAttemptReleasesTheKey() {
+        Transaction existing = service.createTransaction(request("10"));
+        Transaction duplicate = request("10");
+        duplicate.setId(existing.getId());
+        assertThrows(TransactionAlreadyExistsException.class, () -> service.createTransaction(duplicate, "key-1"));
+
+        repository.delete(existing.getId());
+        Transaction retry = request("10");
+        retry.setId(existing.getId());
+        assertEquals(existing.getId(), service.createTransaction(retry, "key-1").getId());
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    void testConcurrentRetriesCreateOnce() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Transaction>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> service.createTransaction(request("10"), "contested")));
+            }
+            String id = results.get(0).get().getId();
+            for (Future<Transaction> result : results) {
+                assertEquals(id, result.get().getId());
+            }
+            assertEquals(1, repository.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testErrorInFirstAttemptReleasesWaitingRetries() throws Exception {
+        IdempotencyStore store = new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC);
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Transaction created = request("10");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Transaction> first = executor.submit(() -> store.execute("key-1", request("10"), () -> {
+                claimed.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new AssertionError("create failed");
+            }));
+            assertTrue(claimed.await(5, TimeUnit.SECONDS));
+            Future<Transaction> retry = executor.submit(() -> store.execute("key-1", request("10"), () -> created));
+            Thread.sleep(50);
+            release.countDown();
+
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, failure.getCause());
+            try {
+                // a retry that arrived after the key was released runs its own create
+                assertSame(created, retry.get(5, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertInstanceOf(AssertionError.class, e.getCause());
+            }
+            assertSame(created, store.execute("key-1", request("10"), () -> created));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionCacheTest {
+
+    private final CaffeineCache caffeine = (CaffeineCache) new CaffeineCacheManager("transactions").getCache("transactions");
+    private final TransactionCache cache = new TransactionCache(caffeine, transaction -> true);
+
+    @Test
+    void testOlderVersionNeverReplacesNewerOne() {
+        cache.stored(version("1", 3));
+        cache.stored(version("1", 2));
+
+        assertEquals(3, cache.get("1", id -> Optional.empty()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void testLateWriteOrLookupCannotResurrectDeletedRow() {
+        cache.stored(version("1", 2));
+        cache.deleted(version("1", 2));
+
+        // an update that lost the race to the delete, and a lookup that read the row before it
+        cache.stored(version("1", 2));
+        cache.getAll(List.of("1"), ids -> Map.of("1", version("1", 1)));
+        assertTrue(cache.get("1", id -> Optional.empty()).isEmpty());
+
+        cache.stored(version("1", 3));
+        assertEquals(3, cache.get("1", id -> Optional.empty()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void testRowsOutsideThePredicateAreNotCached() {
+        TransactionCache owned = new TransactionCache(caffeine, transaction -> "ACC1".equals(transaction.getAccountId()));
+        Transaction other = new Transaction("ACC2", BigDecimal.ONE, "DEPOSIT", null);
+        other.setId("2");
+        owned.stored(other);
+        assertEquals(other, owned.get("2", id -> Optional.of(other)).orElseThrow());
+
+        assertNull(caffeine.getNativeCache().getIfPresent("2"));
+    }
+
+    @Test
+    void testCacheFollowsConcurrentUpdatesDeletesAndLookups() {
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository();
+        TransactionService service = new TransactionService(repository, new AccountBalanceView(repository),
+                new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC), new TransactionChangeFeed(256),
+                TransactionCluster.standalone(), new CaffeineCacheManager("transactions"),
+                Validation.buildDefaultValidatorFactory().getValidator(), 1000, 1000);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(service.createTransaction(new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", null)).getId());
+        }
+
+        IntStream.range(0, 8).parallel().forEach(thread -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 2000; i++) {
+                String id = ids.get(random.nextInt(ids.size()));
+                switch (random.nextInt(4)) {
+                    case 0 -> {
+                        Transaction change = new Transaction();
+                        change.setId(id);
+                        change.setAmount(BigDecimal.valueOf(random.nextInt(1, 100)));
+                        service.updateTransaction(change, null);
+                    }
+                    case 1 -> service.deleteTransaction(id, null);
+                    case 2 -> service.getTransactionsByIds(List.of(id));
+                    default -> service.getTransactionById(id);
+                }
+            }
+        });
+
+        for (String id : ids) {
+            assertEquals(repository.findById(id).map(Transaction::getVersion),
+                    service.getTransactionById(id).map(Transaction::getVersion), id);
+        }
+    }
+
+    private static Transaction version(String id, long version) {
+        Transaction transaction = new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", null);
+        transaction.setId(id);
+        transaction.setVersion(version);
+        return transaction;
+    }
+}
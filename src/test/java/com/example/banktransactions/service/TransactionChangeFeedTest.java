@@ -0,0 +1,178 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.model.TransactionChange;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionChangeFeedTest {
+
+    private TransactionChangeFeed feed;
+    private TransactionService service;
+
+    @BeforeEach
+    void setUp() {
+        localMemoryTransactionRepository repository = new localMemoryTransactionRepository();
+        feed = new TransactionChangeFeed(16);
+        service = new TransactionService(repository, new AccountBalanceView(repository),
+                new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC), feed,
+                TransactionCluster.standalone(), new NoOpCacheManager(),
+                Validation.buildDefaultValidatorFactory().getValidator(), 1000, 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    private static class RecordingSink implements TransactionChangeFeed.Sink {
+
+        final BlockingQueue<TransactionChange> received = new LinkedBlockingQueue<>();
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void send(TransactionChange change) throws IOException {
+            received.add(change);
+        }
+
+        @Override
+        public void heartbeat() throws IOException {
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        TransactionChange next() throws InterruptedException {
+            TransactionChange change = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(change, "no change received");
+            return change;
+        }
+    }
+
+    @Test
+    void testSubscribersSeeTheirAccountsChangesInOrder() throws InterruptedException {
+        RecordingSink acc1 = new RecordingSink();
+        RecordingSink all = new RecordingSink();
+        service.subscribe("ACC1", acc1);
+        service.subscribe(null, all);
+
+        Transaction created = service.createTransaction(new Transaction("ACC1", BigDecimal.TEN, "DEPOSIT", "Salary"));
+        service.createTransaction(new Transaction("ACC2", BigDecimal.ONE, "DEPOSIT", "Other account"));
+        Transaction changes = new Transaction();
+        changes.setId(created.getId());
+        changes.setDescription("Salary, corrected");
+        service.updateTransaction(changes, null);
+        service.deleteTransaction(created.getId(), null);
+
+        TransactionChange first = acc1.next();
+        assertEquals(TransactionChange.Type.CREATED, first.getType());
+        assertEquals(created.getId(), first.getTransaction().getId());
+        TransactionChange second = acc1.next();
+        assertEquals(TransactionChange.Type.UPDATED, second.getType());
+        assertEquals("Salary, corrected", second.getTransaction().getDescription());
+        assertEquals(2, second.getTransaction().getVersion());
+        TransactionChange third = acc1.next();
+        assertEquals(TransactionChange.Type.DELETED, third.getType());
+        assertEquals(created.getId(), third.getTransaction().getId());
+        // the delete orders after the update whose row it removed
+        assertEquals(3, third.getTransaction().getVersion());
+        assertEquals("Salary, corrected", third.getTransaction().getDescription());
+        assertTrue(first.getSequence() < second.getSequence() && second.getSequence() < third.getSequence());
+
+        for (int i = 0; i < 4; i++) {
+            all.next();
+        }
+        assertNull(acc1.received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testSlowSubscriberIsShedWithoutHoldingUpWriters() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink() {
+            @Override
+            public void send(TransactionChange change) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        RecordingSink other = new RecordingSink();
+        service.subscribe("ACC1", slow);
+        service.subscribe("ACC2", other);
+
+        // one change is stuck in send, sixteen fill the buffer, the next finds it full
+        for (int i = 0; i < 20; i++) {
+            service.createTransaction(new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", "Payment " + i));
+        }
+        assertTrue(slow.closed.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertEquals(1, feed.subscriberCount());
+
+        service.createTransaction(new Transaction("ACC2", BigDecimal.ONE, "DEPOSIT", "Still delivered"));
+        assertEquals("Still delivered", other.next().getTransaction().getDescription());
+    }
+
+    @Test
+    void testFailedWriteOrCancelEndsTheSubscription() throws InterruptedException {
+        RecordingSink broken = new RecordingSink() {
+            @Override
+            public void heartbeat() throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        service.subscribe(null, broken);
+        assertTrue(broken.closed.await(5, TimeUnit.SECONDS));
+
+        RecordingSink leaving = new RecordingSink();
+        service.subscribe("ACC1", leaving).cancel();
+        assertEquals(0, feed.subscriberCount());
+        service.createTransaction(new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", "Nobody listening"));
+        assertNull(leaving.received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testSubscribingWhileOthersCancelNeverLosesTheSubscription() throws InterruptedException {
+        // every thread cancels its previous subscription to the account as it opens the next one
+        List<RecordingSink> kept = IntStream.range(0, 8).parallel()
+                .mapToObj(thread -> {
+                    RecordingSink sink = null;
+                    TransactionChangeFeed.Subscription previous = null;
+                    for (int i = 0; i < 2000; i++) {
+                        sink = new RecordingSink();
+                        TransactionChangeFeed.Subscription next = feed.subscribe("ACC1", sink);
+                        if (previous != null) {
+                            previous.cancel();
+                        }
+                        previous = next;
+                    }
+                    return sink;
+                })
+                .toList();
+        assertEquals(8, feed.subscriberCount());
+
+        service.createTransaction(new Transaction("ACC1", BigDecimal.ONE, "DEPOSIT", "Everyone sees this"));
+        for (RecordingSink sink : kept) {
+            assertEquals("Everyone sees this", sink.next().getTransaction().getDescription());
+        }
+    }
+}
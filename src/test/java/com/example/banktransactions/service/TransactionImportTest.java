@@ -0,0 +1,121 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.cluster.TransactionCluster;
+import com.example.banktransactions.model.BulkImportResult;
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.repository.localMemoryTransactionRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NoOpCacheManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionImportTest {
+
+    private localMemoryTransactionRepository repository;
+    private TransactionService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = new localMemoryTransactionRepository();
+        service = new TransactionService(repository, new AccountBalanceView(repository),
+                new IdempotencyStore(IdempotencyStore.DEFAULT_SPEC),
+                new TransactionChangeFeed(256), TransactionCluster.standalone(), new NoOpCacheManager(), Validation.buildDefaultValidatorFactory().getValidator(), 2, 2);
+    }
+
+    private static ByteArrayInputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testNdjsonImportReportsBadRows() {
+        String ndjson = """
+                {"id":"a","accountId":"ACC1","amount":10,"type":"DEPOSIT"}
+                {"accountId":"ACC1","amount":5.5,"type":"WITHDRAWAL","description":"atm"}
+
+                {"accountId":"ACC2","amount":0,"type":"DEPOSIT"}
+                {not json
+                {"id":"a","accountId":"ACC3","amount":1,"type":"DEPOSIT"}
+                {"accountId":"ACC2","amount":7,"type":"TRANSFER","timestamp":"2025-01-01T12:30:00"}
+                """;
+        BulkImportResult result = service.importTransactions(
+                TransactionImportReader.ndjson(body(ndjson), new ObjectMapper().registerModule(new JavaTimeModule())));
+
+        assertEquals(3, result.getAccepted());
+        assertEquals(3, result.getRejected());
+        assertEquals(4, result.getErrors().get(0).line());
+        assertEquals("Amount must be greater than 0", result.getErrors().get(0).message());
+        assertEquals(5, result.getErrors().get(1).line());
+        assertEquals("a", result.getErrors().get(2).id());
+        assertEquals(3, repository.count());
+        assertEquals("ACC1", repository.findById("a").orElseThrow().getAccountId());
+    }
+
+    @Test
+    void testCsvImportWithQuotedFields() {
+        String csv = """
+                accountId,amount,type,description
+                ACC1,12.50,DEPOSIT,"Salary, January"
+                ACC1,abc,DEPOSIT,broken
+                ACC2,3,WITHDRAWAL,"He said ""hi\"\"\"
+                """;
+        BulkImportResult result = service.importTransactions(TransactionImportReader.csv(body(csv)));
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        assertEquals(3, result.getErrors().get(0).line());
+        assertEquals(new BigDecimal("12.50"), repository.findByAccountId("ACC1", 0, 10).get(0).getAmount());
+        assertEquals("Salary, January", repository.findByAccountId("ACC1", 0, 10).get(0).getDescription());
+        assertEquals("He said \"hi\"", repository.findByAccountId("ACC2", 0, 10).get(0).getDescription());
+    }
+
+    @Test
+    void testCsvExportRoundTripsMultiLineDescriptions() throws IOException {
+        Transaction exported = new Transaction("ACC1", new BigDecimal("9.99"), "DEPOSIT",
+                "first line\nsecond, \"quoted\"\r\nthird\rlast");
+        exported.setId("multi");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TransactionExportWriter writer = new TransactionExportWriter(TransactionExportWriter.Format.CSV, out,
+                new ObjectMapper().registerModule(new JavaTimeModule()))) {
+            writer.write(exported);
+            writer.write(new Transaction("ACC1", BigDecimal.ONE, "WITHDRAWAL", "plain"));
+        }
+
+        BulkImportResult result = service.importTransactions(
+                TransactionImportReader.csv(new ByteArrayInputStream(out.toByteArray())));
+
+        assertEquals(2, result.getAccepted());
+        assertEquals(0, result.getRejected());
+        Transaction imported = repository.findById("multi").orElseThrow();
+        assertEquals(exported.getDescription(), imported.getDescription());
+        assertEquals(exported.getAmount(), imported.getAmount());
+    }
+
+    @Test
+    void testCsvRowsAfterMultiLineRecordKeepTheirLineNumbers() {
+        String csv = """
+                accountId,amount,type,description
+                ACC1,1,DEPOSIT,"two
+                lines"
+                ACC1,abc,DEPOSIT,broken
+                ACC1,2,DEPOSIT,"never closed
+                """;
+        BulkImportResult result = service.importTransactions(TransactionImportReader.csv(body(csv)));
+
+        assertEquals(1, result.getAccepted());
+        assertEquals(2, result.getRejected());
+        assertEquals(4, result.getErrors().get(0).line());
+        assertEquals(5, result.getErrors().get(1).line());
+        assertEquals("Unterminated quoted field", result.getErrors().get(1).message());
+        assertEquals("two\nlines", repository.findByAccountId("ACC1", 0, 10).get(0).getDescription());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.banktransactions.service;
+
+import com.example.banktransactions.model.Transaction;
+import com.example.banktransactions.model.TransactionLookupResult;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class TransactionServiceCacheTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    void testCachedTransactionFollowsUpdateAndDelete() {
+        Transaction created = transactionService.createTransaction(
+                new Transaction("CACHE1", BigDecimal.TEN, "DEPOSIT", "Original"));
+        assertEquals("Original", transactionService.getTransactionById(created.getId()).orElseThrow().getDescription());
+
+        Transaction change = new Transaction();
+        change.setId(created.getId());
+        change.setDescription("Updated");
+        transactionService.updateTransaction(change, null);
+        assertEquals("Updated", transactionService.getTransactionById(created.getId()).orElseThrow().getDescription());
+
+        transactionService.deleteTransaction(created.getId(), null);
+        assertTrue(transactionService.getTransactionById(created.getId()).isEmpty());
+        // the miss is not cached: no row is left behind, only the tombstone that keeps late writers out
+        Cache<Object, Object> transactions = ((CaffeineCache) cacheManager.getCache("transactions")).getNativeCache();
+        assertFalse(transactions.getIfPresent(created.getId()) instanceof Transaction);
+    }
+
+    @Test
+    void testLookupReadsThroughTheTransactionCache() {
+        Transaction first = transactionService.createTransaction(new Transaction("CACHE3", BigDecimal.ONE, "DEPOSIT", "First"));
+        Transaction second = transactionService.createTransaction(new Transaction("CACHE3", BigDecimal.ONE, "DEPOSIT", "Second"));
+        cacheManager.getCache("transactions").evict(second.getId());
+        Cache<Object, Object> transactions = ((CaffeineCache) cacheManager.getCache("transactions")).getNativeCache();
+        long hits = transactions.stats().hitCount();
+
+        TransactionLookupResult result = transactionService.getTransactionsByIds(
+                List.of(second.getId(), "missing", first.getId(), second.getId()));
+        assertEquals(List.of(second.getId(), first.getId()), result.getFound().stream().map(Transaction::getId).toList());
+        assertEquals(List.of("missing"), result.getMissing());
+        assertEquals(hits + 1, transactions.stats().hitCount());
+        // the miss was loaded from the repository and cached; an unknown id never is
+        assertNotNull(transactions.getIfPresent(second.getId()));
+        assertNull(transactions.getIfPresent("missing"));
+    }
+
+    @Test
+    void testCachedAccountPageSeesNewWrites() {
+        transactionService.createTransaction(new Transaction("CACHE2", BigDecimal.ONE, "DEPOSIT", "First"));
+        assertEquals(1, transactionService.getTransactionsByAccountId("CACHE2", 0, 10).size());
+        assertEquals(1, transactionService.getTransactionsByAccountId("CACHE2", 0, 10).size());
+
+        transactionService.createTransaction(new Transaction("CACHE2", BigDecimal.ONE, "DEPOSIT", "Second"));
+        assertEquals(2, transactionService.getTransactionsByAccountId("CACHE2", 0, 10).size());
+
+        Cache<Object, Object> pages = ((CaffeineCache) cacheManager.getCache("accountTransactions")).getNativeCache();
+        assertTrue(pages.stats().hitCount() >= 1);
+    }
+}